@@ -1,3 +1,11 @@
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
 import components.binarytree.BinaryTree;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
@@ -6,19 +14,262 @@ import components.simplewriter.SimpleWriter1L;
 
 /**
  * Utility class with implementation of {@code BinaryTree} static, generic
- * methods height and isInTree.
+ * methods height and isInTree, and of fork-join variants of them and of a
+ * reduction over the labels for large trees.
+ *
+ * <p>
+ * The fork-join variants disassemble a tree larger than
+ * {@code PARALLEL_THRESHOLD} and work on its two subtrees in parallel, each of
+ * them split the same way, before reassembling it; a subtree no larger than
+ * that is handled sequentially by the calling task. Since each task changes
+ * only its own subtree, no two tasks touch the same node, but no other thread
+ * may use the tree while one of them runs.
  *
  * @author Zhao Liu
  *
  */
 public final class BinaryTreeMethods {
 
+    /**
+     * Size above which a subtree is split between two tasks.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     /**
      * Private constructor so this utility class cannot be instantiated.
      */
     private BinaryTreeMethods() {
     }
 
+    /**
+     * Function computing the result for a tree from its root and the results
+     * for its left and right subtrees.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param <R>
+     *            the type of the results
+     */
+    private interface NodeFunction<T, R> {
+
+        /**
+         * Returns the result for the tree with the given root and subtrees.
+         *
+         * @param root
+         *            the root label
+         * @param left
+         *            the result for the left subtree
+         * @param right
+         *            the result for the right subtree
+         * @return the result for the whole tree
+         */
+        R apply(T root, R left, R right);
+
+    }
+
+    /**
+     * Returns the labels of {@code t}, each mapped by {@code mapper}, combined
+     * by {@code combiner} in in-order, sequentially.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param <R>
+     *            the type of the result
+     * @param t
+     *            the {@code BinaryTree} to reduce
+     * @param identity
+     *            the result for the empty tree
+     * @param mapper
+     *            the function mapping each label to a result
+     * @param combiner
+     *            the function combining two results
+     * @return the combination of the mapped labels
+     * @ensures <pre>
+     * reduce = [identity combined by combiner with mapper(y) for every label
+     *  y of t, in in-order]
+     * </pre>
+     */
+    private static <T, R> R reduce(BinaryTree<T> t, R identity,
+            Function<? super T, ? extends R> mapper,
+            BinaryOperator<R> combiner) {
+        R result = identity;
+        for (T x : t) {
+            result = combiner.apply(result, mapper.apply(x));
+        }
+        return result;
+    }
+
+    /**
+     * Task computing a result for a tree: {@code sequential} gives it for a
+     * tree no larger than {@code PARALLEL_THRESHOLD}, and {@code f} combines
+     * the root of a larger one with the results for its subtrees, the left one
+     * computed in a forked task.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param <R>
+     *            the type of the result
+     */
+    private static final class TreeTask<T, R> extends RecursiveTask<R> {
+
+        /**
+         * Serial version UID, since {@code RecursiveTask} is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tree.
+         */
+        private final transient BinaryTree<T> t;
+
+        /**
+         * The sequential computation, for small trees.
+         */
+        private final transient Function<BinaryTree<T>, R> sequential;
+
+        /**
+         * The function combining a root with the results for its subtrees.
+         */
+        private final transient NodeFunction<T, R> f;
+
+        /**
+         * Constructor.
+         *
+         * @param t
+         *            the tree
+         * @param sequential
+         *            the sequential computation, for small trees
+         * @param f
+         *            the function combining a root with the results for its
+         *            subtrees
+         */
+        TreeTask(BinaryTree<T> t, Function<BinaryTree<T>, R> sequential,
+                NodeFunction<T, R> f) {
+            this.t = t;
+            this.sequential = sequential;
+            this.f = f;
+        }
+
+        @Override
+        protected R compute() {
+            R result;
+            if (this.t.size() <= PARALLEL_THRESHOLD) {
+                result = this.sequential.apply(this.t);
+            } else {
+                BinaryTree<T> leftNode = this.t.newInstance();
+                BinaryTree<T> rightNode = this.t.newInstance();
+                T root = this.t.disassemble(leftNode, rightNode);
+
+                // fork the left half and do the right half in this task.
+                TreeTask<T, R> leftTask = new TreeTask<T, R>(leftNode,
+                        this.sequential, this.f);
+                leftTask.fork();
+                R right = new TreeTask<T, R>(rightNode, this.sequential,
+                        this.f)
+                        .compute();
+                R left = leftTask.join();
+
+                this.t.assemble(root, leftNode, rightNode);
+                result = this.f.apply(root, left, right);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Task searching a tree for {@code x} and setting {@code found} once any
+     * task finds it. A tree larger than {@code PARALLEL_THRESHOLD} has its
+     * root compared first, and is split only if that does not match; every
+     * task gives up as soon as {@code found} is set, so that a match stops
+     * the search everywhere.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     */
+    private static final class SearchTask<T> extends RecursiveAction {
+
+        /**
+         * Serial version UID, since {@code RecursiveAction} is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tree.
+         */
+        private final transient BinaryTree<T> t;
+
+        /**
+         * The label to search for.
+         */
+        private final transient T x;
+
+        /**
+         * Whether some task has found {@code x}, shared by all the tasks of
+         * one search.
+         */
+        private final AtomicBoolean found;
+
+        /**
+         * Constructor.
+         *
+         * @param t
+         *            the tree
+         * @param x
+         *            the label to search for
+         * @param found
+         *            whether some task has found {@code x}
+         */
+        SearchTask(BinaryTree<T> t, T x, AtomicBoolean found) {
+            this.t = t;
+            this.x = x;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            // a task starting after x has been found has nothing to do.
+            if (!this.found.get()) {
+                if (this.t.size() <= PARALLEL_THRESHOLD) {
+                    Iterator<T> it = this.t.iterator();
+                    while (!this.found.get() && it.hasNext()) {
+                        if (it.next().equals(this.x)) {
+                            this.found.set(true);
+                        }
+                    }
+                } else {
+                    this.split();
+                }
+            }
+        }
+
+        /**
+         * Compares the root of {@code t} with {@code x} and, if it does not
+         * match, searches the two subtrees, the left one in a forked task.
+         *
+         * @restores t
+         */
+        private void split() {
+            BinaryTree<T> leftNode = this.t.newInstance();
+            BinaryTree<T> rightNode = this.t.newInstance();
+            T root = this.t.disassemble(leftNode, rightNode);
+
+            if (root.equals(this.x)) {
+                this.found.set(true);
+            } else {
+                // fork the left half and do the right half in this task.
+                SearchTask<T> leftTask = new SearchTask<T>(leftNode, this.x,
+                        this.found);
+                leftTask.fork();
+                new SearchTask<T>(rightNode, this.x, this.found).compute();
+                leftTask.join();
+            }
+
+            this.t.assemble(root, leftNode, rightNode);
+        }
+
+    }
+
     /**
      * Returns the height of the given {@code BinaryTree<T>}.
      *
@@ -86,6 +337,103 @@ public final class BinaryTreeMethods {
         return exist;
     }
 
+    /**
+     * Returns the height of the given {@code BinaryTree<T>}, working on large
+     * subtrees in parallel in {@code pool}.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param t
+     *            the {@code BinaryTree} whose height to return
+     * @param pool
+     *            the pool to run the tasks in
+     * @return the height of the given {@code BinaryTree}
+     * @ensures parallelHeight = ht(t)
+     */
+    public static <T> int parallelHeight(BinaryTree<T> t, ForkJoinPool pool) {
+        assert t != null : "Violation of: t is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        NodeFunction<T, Integer> f = (root, left, right) -> 1
+                + Math.max(left, right);
+        return pool.invoke(new TreeTask<T, Integer>(t,
+                BinaryTreeMethods::height, f));
+    }
+
+    /**
+     * Returns true if the given {@code T} is in the given {@code BinaryTree<T>}
+     * or false otherwise, working on large subtrees in parallel in
+     * {@code pool}. The root of a large subtree is compared before the
+     * subtree is split, and the search stops everywhere once {@code x} is
+     * found.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param t
+     *            the {@code BinaryTree} to search
+     * @param x
+     *            the {@code T} to search for
+     * @param pool
+     *            the pool to run the tasks in
+     * @return true if the given {@code T} is in the given {@code BinaryTree},
+     *         false otherwise
+     * @ensures parallelIsInTree = [true if x is in t, false otherwise]
+     */
+    public static <T> boolean parallelIsInTree(BinaryTree<T> t, T x,
+            ForkJoinPool pool) {
+        assert t != null : "Violation of: t is not null";
+        assert x != null : "Violation of: x is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        AtomicBoolean found = new AtomicBoolean(false);
+        pool.invoke(new SearchTask<T>(t, x, found));
+        return found.get();
+    }
+
+    /**
+     * Returns the labels of the given {@code BinaryTree<T>}, each mapped by
+     * {@code mapper}, combined by {@code combiner} in in-order, working on
+     * large subtrees in parallel in {@code pool}. Since the subtrees are
+     * combined in whichever grouping the tree's shape gives, {@code combiner}
+     * must be associative and {@code identity} its identity.
+     *
+     * @param <T>
+     *            the type of the {@code BinaryTree} node labels
+     * @param <R>
+     *            the type of the result
+     * @param t
+     *            the {@code BinaryTree} to reduce
+     * @param identity
+     *            the result for the empty tree
+     * @param mapper
+     *            the function mapping each label to a result
+     * @param combiner
+     *            the function combining two results
+     * @param pool
+     *            the pool to run the tasks in
+     * @return the combination of the mapped labels
+     * @requires <pre>
+     * [combiner is associative, and identity is an identity for it]
+     * </pre>
+     * @ensures <pre>
+     * parallelReduce = [identity combined by combiner with mapper(y) for every
+     *  label y of t, in in-order]
+     * </pre>
+     */
+    public static <T, R> R parallelReduce(BinaryTree<T> t, R identity,
+            Function<? super T, ? extends R> mapper,
+            BinaryOperator<R> combiner, ForkJoinPool pool) {
+        assert t != null : "Violation of: t is not null";
+        assert mapper != null : "Violation of: mapper is not null";
+        assert combiner != null : "Violation of: combiner is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        NodeFunction<T, R> f = (root, left, right) -> combiner
+                .apply(combiner.apply(left, mapper.apply(root)), right);
+        return pool.invoke(new TreeTask<T, R>(
+                t, tree -> reduce(tree, identity, mapper, combiner), f));
+    }
+
     /**
      * Main method.
      *
@@ -0,0 +1,178 @@
+import java.util.concurrent.ForkJoinPool;
+
+import components.binarytree.BinaryTree;
+import components.binarytree.BinaryTree1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times {@code height} and {@code isInTree} of {@code BinaryTreeMethods} on a
+ * large tree against their fork-join variants, and a sum of the labels by
+ * {@code parallelReduce}, in pools of 1, 2, 4, ... threads up to the number of
+ * available processors.
+ *
+ * @author Zhao Liu
+ *
+ */
+public final class BinaryTreeMethodsBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BinaryTreeMethodsBenchmark() {
+    }
+
+    /**
+     * Number of timed runs of each operation.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Returns a perfect tree of the given height whose labels, in in-order,
+     * are {@code lo}, {@code lo + 1}, ....
+     *
+     * @param lo
+     *            the first label
+     * @param height
+     *            the height of the tree
+     * @return the tree
+     * @requires height >= 0
+     */
+    private static BinaryTree<Integer> perfectTree(int lo, int height) {
+        BinaryTree<Integer> t = new BinaryTree1<Integer>();
+        if (height > 0) {
+            int half = (1 << (height - 1)) - 1;
+            BinaryTree<Integer> left = perfectTree(lo, height - 1);
+            BinaryTree<Integer> right = perfectTree(lo + half + 1, height - 1);
+            t.assemble(lo + half, left, right);
+        }
+        return t;
+    }
+
+    /**
+     * Runs one operation on {@code t}: 0 for height, 1 for a search for a label
+     * not in {@code t}, 2 for the sum of the labels; sequentially if
+     * {@code pool} is null and in {@code pool} otherwise.
+     *
+     * @param t
+     *            the tree
+     * @param operation
+     *            which operation to run
+     * @param pool
+     *            the pool, or null
+     * @return the result, as a number
+     * @requires 0 <= operation <= 2
+     */
+    private static long run(BinaryTree<Integer> t, int operation,
+            ForkJoinPool pool) {
+        long result;
+        if (operation == 0) {
+            if (pool == null) {
+                result = BinaryTreeMethods.height(t);
+            } else {
+                result = BinaryTreeMethods.parallelHeight(t, pool);
+            }
+        } else if (operation == 1) {
+            boolean found;
+            if (pool == null) {
+                found = BinaryTreeMethods.isInTree(t, -1);
+            } else {
+                found = BinaryTreeMethods.parallelIsInTree(t, -1, pool);
+            }
+            result = 0;
+            if (found) {
+                result = 1;
+            }
+        } else {
+            if (pool == null) {
+                result = 0;
+                for (Integer x : t) {
+                    result += x;
+                }
+            } else {
+                result = BinaryTreeMethods.parallelReduce(t, 0L,
+                        x -> (long) x, Long::sum, pool);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} runs of one operation on
+     * {@code t}; one untimed run warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param t
+     *            the tree
+     * @param operation
+     *            0 for height, 1 for isInTree, 2 for the sum of the labels
+     * @param pool
+     *            the pool, or null to run sequentially
+     * @updates out.content
+     * @requires out.is_open and 0 <= operation <= 2
+     */
+    private static void report(SimpleWriter out, BinaryTree<Integer> t,
+            int operation, ForkJoinPool pool) {
+        final String[] names = { "height", "isInTree", "sum" };
+        long elapsed = 0;
+        long result = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            result = run(t, operation, pool);
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        String how = "sequential";
+        if (pool != null) {
+            how = pool.getParallelism() + " threads";
+        }
+        out.println(names[operation] + "\t" + how + "\t"
+                + String.format("%.1f", elapsed / NANOS_PER_MILLI / ROUNDS)
+                + " ms\t(" + result + ")");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Height of the perfect tree (e.g., 21): ");
+        int height = in.nextInteger();
+
+        BinaryTree<Integer> t = perfectTree(0, height);
+        int processors = Runtime.getRuntime().availableProcessors();
+        out.println(t.size() + " nodes, " + processors
+                + " processors, average of " + ROUNDS + " runs:");
+        final int operations = 3;
+        for (int operation = 0; operation < operations; operation++) {
+            report(out, t, operation, null);
+            int threads = 1;
+            while (threads <= processors) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                report(out, t, operation, pool);
+                pool.shutdown();
+                if (threads < processors && 2 * threads > processors) {
+                    threads = processors;
+                } else {
+                    threads *= 2;
+                }
+            }
+        }
+        in.close();
+        out.close();
+    }
+
+}
@@ -1,8 +1,11 @@
 import static org.junit.Assert.assertEquals;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
 import components.binarytree.BinaryTree;
+import components.binarytree.BinaryTree1;
 
 /**
  * JUnit test fixture for {@code BinaryTree<String>}'s methods.
@@ -12,6 +15,38 @@ import components.binarytree.BinaryTree;
  */
 public final class BinaryTreeMethodsTest {
 
+    /**
+     * Height of the large perfect tree, big enough for the fork-join variants
+     * to split it several times.
+     */
+    private static final int LARGE_HEIGHT = 16;
+
+    /**
+     * Pool for the fork-join variants.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    /**
+     * Returns a perfect tree of the given height whose labels, in in-order,
+     * are {@code lo}, {@code lo + 1}, ....
+     *
+     * @param lo
+     *            the first label
+     * @param height
+     *            the height of the tree
+     * @return the tree
+     */
+    private static BinaryTree<Integer> perfectTree(int lo, int height) {
+        BinaryTree<Integer> t = new BinaryTree1<Integer>();
+        if (height > 0) {
+            int half = (1 << (height - 1)) - 1;
+            BinaryTree<Integer> left = perfectTree(lo, height - 1);
+            BinaryTree<Integer> right = perfectTree(lo + half + 1, height - 1);
+            t.assemble(lo + half, left, right);
+        }
+        return t;
+    }
+
     @Test
     public void testHeightEmpty() {
         /*
@@ -264,4 +299,128 @@ public final class BinaryTreeMethodsTest {
         assertEquals(tExpected, t);
     }
 
+    @Test
+    public void testParallelHeightMore() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<String> t = BinaryTreeUtility.treeFromString(
+                "a(b(d(g(j(()())())())())c(e(h(()())i(()()))f(()())))");
+        BinaryTree<String> tExpected = BinaryTreeUtility.treeFromString(
+                "a(b(d(g(j(()())())())())c(e(h(()())i(()()))f(()())))");
+        /*
+         * Call method under test
+         */
+        int h = BinaryTreeMethods.parallelHeight(t, POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(5, h);
+        assertEquals(tExpected, t);
+    }
+
+    @Test
+    public void testParallelHeightLarge() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<Integer> t = perfectTree(0, LARGE_HEIGHT);
+        BinaryTree<Integer> tExpected = perfectTree(0, LARGE_HEIGHT);
+        /*
+         * Call method under test
+         */
+        int h = BinaryTreeMethods.parallelHeight(t, POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(LARGE_HEIGHT, h);
+        assertEquals(tExpected, t);
+    }
+
+    @Test
+    public void testParallelIsInTreeLarge() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<Integer> t = perfectTree(0, LARGE_HEIGHT);
+        BinaryTree<Integer> tExpected = perfectTree(0, LARGE_HEIGHT);
+        int n = (1 << LARGE_HEIGHT) - 1;
+        /*
+         * Call method under test
+         */
+        boolean foundFirst = BinaryTreeMethods.parallelIsInTree(t, 0, POOL);
+        boolean foundLast = BinaryTreeMethods.parallelIsInTree(t, n - 1, POOL);
+        boolean foundAbove = BinaryTreeMethods.parallelIsInTree(t, n, POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(true, foundFirst);
+        assertEquals(true, foundLast);
+        assertEquals(false, foundAbove);
+        assertEquals(tExpected, t);
+    }
+
+    @Test
+    public void testParallelIsInTreeLargeRootAndMiddle() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<Integer> t = perfectTree(0, LARGE_HEIGHT);
+        BinaryTree<Integer> tExpected = perfectTree(0, LARGE_HEIGHT);
+        int root = (1 << (LARGE_HEIGHT - 1)) - 1;
+        /*
+         * Call method under test
+         */
+        boolean foundRoot = BinaryTreeMethods.parallelIsInTree(t, root, POOL);
+        boolean foundNext = BinaryTreeMethods.parallelIsInTree(t, root + 1,
+                POOL);
+        boolean foundBelowAll = BinaryTreeMethods.parallelIsInTree(t, -1,
+                POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(true, foundRoot);
+        assertEquals(true, foundNext);
+        assertEquals(false, foundBelowAll);
+        assertEquals(tExpected, t);
+    }
+
+    @Test
+    public void testParallelReduceLarge() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<Integer> t = perfectTree(0, LARGE_HEIGHT);
+        BinaryTree<Integer> tExpected = perfectTree(0, LARGE_HEIGHT);
+        long n = (1 << LARGE_HEIGHT) - 1;
+        /*
+         * Call method under test
+         */
+        long sum = BinaryTreeMethods.parallelReduce(t, 0L, x -> (long) x,
+                Long::sum, POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(n * (n - 1) / 2, sum);
+        assertEquals(tExpected, t);
+    }
+
+    @Test
+    public void testParallelReduceOrder() {
+        /*
+         * Set up variables
+         */
+        BinaryTree<String> t = BinaryTreeUtility
+                .treeFromString("a(b(()())c(d(()e(f(()())()))()))");
+        /*
+         * Call method under test
+         */
+        String labels = BinaryTreeMethods.parallelReduce(t, "", x -> x,
+                String::concat, POOL);
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("badfec", labels);
+    }
+
 }
@@ -1,6 +1,8 @@
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import components.map.Map;
+import components.map.Map1L;
 import components.map.MapSecondary;
 import components.queue.Queue;
 import components.queue.Queue1L;
@@ -9,18 +11,65 @@ import components.queue.Queue1L;
  * {@code Map} represented as a {@code Queue} of pairs with implementations of
  * primary methods.
  *
+ * <p>
+ * A {@code Map2} constructed with an index also keeps a hash table from each
+ * key to its pair in the queue, so {@code hasKey} and {@code value} take
+ * constant time. {@code remove} then just drops the key from the index and
+ * leaves its pair in the queue as a stale pair, skipped by iteration and by
+ * {@code removeAny}; once stale pairs outnumber live ones the queue is
+ * compacted, so {@code remove} takes amortized constant time too. Iteration
+ * order is always the order in which the entries were added, so
+ * {@code remove} followed by {@code add} moves an entry to the back and
+ * {@code removeAny} takes the entry at the front: an indexed {@code Map2} is
+ * a small LRU-ordered map.
+ *
+ * <p>
+ * Without an index, {@code hasKey} and {@code value} scan the queue from the
+ * front and stop at the key they are looking for; a {@code Map2} constructed
+ * with a {@code SelfOrganizingPolicy} then rearranges the queue so that keys
+ * looked up often are found after fewer comparisons. The rearranging rotates
+ * the whole queue, but only when the pair found has to move, so repeated
+ * lookups of a key already at the front cost a single comparison.
+ * {@code lookups} and {@code comparisons} count the work done by the scans.
+ *
  * @param <K>
  *            type of {@code Map} domain (key) entries
  * @param <V>
  *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * IS_LIVE(
+ *   p: (key, value),
+ *   index: PARTIAL_FUNCTION
+ *  ): boolean is
+ *  [index is null]  or  (p.key, [the very object p]) is in index
+ *
+ * LIVE(
+ *   q: string of (key, value),
+ *   index: PARTIAL_FUNCTION
+ *  ): string of (key, value) satisfies
+ *  [LIVE is the subsequence of the pairs p of q with IS_LIVE(p, index)]
+ * </pre>
  * @convention <pre>
  * for all key1, key2: K, value1, value2: V, str1, str2: string of (key, value)
- *     where (str1 * <(key1, value1)> is prefix of $this.pairsQueue and
- *            str2 * <(key2, value2)> is prefix of $this.pairsQueue and
+ *     where (str1 * <(key1, value1)> is prefix of
+ *              LIVE($this.pairsQueue, $this.index) and
+ *            str2 * <(key2, value2)> is prefix of
+ *              LIVE($this.pairsQueue, $this.index) and
  *            str1 /= str2)
- *   (key1 /= key2)
+ *   (key1 /= key2)  and
+ * (if [$this.index is null] then
+ *    $this.stalePairs = 0
+ *  else
+ *    [every pair in $this.index is in $this.pairsQueue]  and
+ *    $this.stalePairs = |$this.pairsQueue| - |$this.index|  and
+ *    $this.stalePairs <= |$this.index|)  and
+ * (if $this.policy = FREQUENCY_COUNT  and  [$this.index is null] then
+ *    |$this.lookupCounts| = |$this.pairsQueue|  and
+ *    [the counts in $this.lookupCounts are in non-increasing order]
+ *  else
+ *    $this.lookupCounts = null)
  * </pre>
- * @correspondence this = entries($this.pairsQueue)
+ * @correspondence this = entries(LIVE($this.pairsQueue, $this.index))
  */
 public class Map2<K, V> extends MapSecondary<K, V> {
 
@@ -29,45 +78,311 @@ public class Map2<K, V> extends MapSecondary<K, V> {
      */
 
     /**
-     * Pairs included in {@code this}.
+     * Pairs included in {@code this}, in the order they were added; with an
+     * index, also stale pairs of removed entries.
      */
     private Queue<Pair<K, V>> pairsQueue;
 
     /**
-     * Finds pair with first component {@code key} and, if such exists, moves it
-     * to the front of {@code q}.
+     * Index from each key to its pair in {@code pairsQueue}, or null if
+     * {@code this} has no index.
+     */
+    private Map<K, Pair<K, V>> index;
+
+    /**
+     * Number of stale pairs in {@code pairsQueue}.
+     */
+    private int stalePairs;
+
+    /**
+     * Whether {@code this} keeps an index.
+     */
+    private final boolean indexed;
+
+    /**
+     * With {@code FREQUENCY_COUNT}, the number of lookups of each pair of
+     * {@code pairsQueue}, in the same order; otherwise null.
+     */
+    private Queue<Count> lookupCounts;
+
+    /**
+     * How {@code pairsQueue} is rearranged after a successful lookup.
+     */
+    private final SelfOrganizingPolicy policy;
+
+    /**
+     * Number of calls to {@code hasKey} and {@code value} that scanned
+     * {@code pairsQueue}.
+     */
+    private long lookups;
+
+    /**
+     * Number of keys compared by those calls.
+     */
+    private long comparisons;
+
+    /**
+     * Mutable lookup count of one pair.
+     */
+    private static final class Count {
+
+        /**
+         * The count.
+         */
+        private int value;
+
+    }
+
+    /**
+     * Moves the entry at position {@code from} of {@code q} to position
+     * {@code to}, leaving the other entries in order.
      *
-     * @param <K>
-     *            type of {@code Pair} key
-     * @param <V>
-     *            type of {@code Pair} value
+     * @param <E>
+     *            type of {@code Queue} entries
      * @param q
-     *            the {@code Queue} to be searched
-     * @param key
-     *            the key to be searched for
+     *            the {@code Queue} to be rearranged
+     * @param from
+     *            the position of the entry to move
+     * @param to
+     *            the position to move it to
      * @updates q
+     * @requires 0 <= to <= from < |q|
      * @ensures <pre>
-     * perms(q, #q)  and
-     * if there exists value: V (<(key, value)> is substring of q)
-     *  then there exists value: V (<(key, value)> is prefix of q)
+     * q = #q[0, to) * #q[from, from+1) * #q[to, from) * #q[from+1, |#q|)
      * </pre>
      */
-    private static <K, V> void moveToFront(Queue<Pair<K, V>> q, K key) {
+    private static <E> void moveForward(Queue<E> q, int from, int to) {
         assert q != null : "Violation of: q is not null";
-        assert key != null : "Violation of: key is not null";
+        assert 0 <= to && to <= from && from < q.length() : ""
+                + "Violation of: 0 <= to <= from < |q|";
 
-        Queue<Pair<K, V>> tempQueue = q.newInstance();
-        for (Pair<K, V> tempPair : q) {
-            K tempKey = tempPair.key();
-            if (tempQueue.length() > 0 && tempKey.equals(key)) {
-                Pair<K, V> frontValue = tempQueue.front();
-                tempQueue.replaceFront(tempPair);
-                tempQueue.enqueue(frontValue);
+        int length = q.length();
+        E moved = null;
+        for (int i = 0; i < length; i++) {
+            E entry = q.dequeue();
+            if (i == from) {
+                moved = entry;
             } else {
-                tempQueue.enqueue(tempPair);
+                q.enqueue(entry);
+            }
+        }
+        for (int i = 0; i < length - 1; i++) {
+            if (i == to) {
+                q.enqueue(moved);
+            }
+            q.enqueue(q.dequeue());
+        }
+        if (to == length - 1) {
+            q.enqueue(moved);
+        }
+    }
+
+    /**
+     * Removes and returns the entry at position {@code pos} of {@code q},
+     * leaving the other entries in order.
+     *
+     * @param <E>
+     *            type of {@code Queue} entries
+     * @param q
+     *            the {@code Queue} to remove from
+     * @param pos
+     *            the position of the entry to remove
+     * @return the entry removed
+     * @updates q
+     * @requires 0 <= pos < |q|
+     * @ensures <pre>
+     * q = #q[0, pos) * #q[pos+1, |#q|)  and  <removeAt> = #q[pos, pos+1)
+     * </pre>
+     */
+    private static <E> E removeAt(Queue<E> q, int pos) {
+        assert q != null : "Violation of: q is not null";
+        assert 0 <= pos && pos < q.length() : ""
+                + "Violation of: 0 <= pos < |q|";
+
+        int length = q.length();
+        E removed = null;
+        for (int i = 0; i < length; i++) {
+            E entry = q.dequeue();
+            if (i == pos) {
+                removed = entry;
+            } else {
+                q.enqueue(entry);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the position in {@code $this.pairsQueue} of the pair with key
+     * {@code key}, or -1 if there is none. Neither counts nor rearranges
+     * anything.
+     *
+     * @param key
+     *            the key to be searched for
+     * @return the position of the pair, or -1
+     * @requires $this.index is null
+     * @ensures <pre>
+     * if key is in DOMAIN(this)
+     *  then there exists value: V
+     *   ($this.pairsQueue[indexOf, indexOf+1) = <(key, value)>)
+     *  else indexOf = -1
+     * </pre>
+     */
+    private int indexOf(K key) {
+        int pos = 0;
+        Iterator<Pair<K, V>> it = this.pairsQueue.iterator();
+        while (it.hasNext() && !it.next().key().equals(key)) {
+            pos++;
+        }
+        if (pos == this.pairsQueue.length()) {
+            pos = -1;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the pair with key {@code key}, or null if there is none. Neither
+     * counts nor rearranges anything.
+     *
+     * @param key
+     *            the key to be searched for
+     * @return the pair, or null
+     * @ensures <pre>
+     * if key is in DOMAIN(this)
+     *  then pairOf is in this and pairOf.key = key
+     *  else pairOf = null
+     * </pre>
+     */
+    private Pair<K, V> pairOf(K key) {
+        Pair<K, V> pair = null;
+        if (this.index != null) {
+            if (this.index.hasKey(key)) {
+                pair = this.index.value(key);
+            }
+        } else {
+            for (Pair<K, V> p : this.pairsQueue) {
+                if (pair == null && p.key().equals(key)) {
+                    pair = p;
+                }
+            }
+        }
+        return pair;
+    }
+
+    /**
+     * Looks up {@code key} for {@code hasKey} and {@code value}: scans
+     * {@code $this.pairsQueue} until it finds {@code key}, updating the lookup
+     * and comparison counts, and then rearranges {@code $this.pairsQueue} as
+     * {@code $this.policy} says.
+     *
+     * @param key
+     *            the key to be searched for
+     * @return the pair with key {@code key}, or null if there is none
+     * @updates $this
+     * @requires $this.index is null
+     * @ensures <pre>
+     * this = #this  and
+     * if key is in DOMAIN(this)
+     *  then lookUp is in this and lookUp.key = key
+     *  else lookUp = null
+     * </pre>
+     */
+    private Pair<K, V> lookUp(K key) {
+        this.lookups++;
+        Iterator<Pair<K, V>> it = this.pairsQueue.iterator();
+        Iterator<Count> countIt = null;
+        if (this.lookupCounts != null) {
+            countIt = this.lookupCounts.iterator();
+        }
+        Pair<K, V> found = null;
+        int pos = 0;
+        int runStart = 0;
+        int previousCount = -1;
+        Count count = null;
+        while (found == null && it.hasNext()) {
+            Pair<K, V> pair = it.next();
+            if (countIt != null) {
+                count = countIt.next();
+                if (count.value != previousCount) {
+                    runStart = pos;
+                    previousCount = count.value;
+                }
+            }
+            this.comparisons++;
+            if (pair.key().equals(key)) {
+                found = pair;
+            } else {
+                pos++;
+            }
+        }
+        if (found != null) {
+            int target;
+            switch (this.policy) {
+                case MOVE_TO_FRONT:
+                    target = 0;
+                    break;
+                case TRANSPOSE:
+                    target = Math.max(pos - 1, 0);
+                    break;
+                case FREQUENCY_COUNT:
+                    /*
+                     * The pairs before runStart were looked up more often than
+                     * this one, and those from runStart on as often; this one
+                     * now passes the latter
+                     */
+                    count.value++;
+                    target = runStart;
+                    break;
+                default:
+                    target = pos;
+                    break;
+            }
+            if (target < pos) {
+                moveForward(this.pairsQueue, pos, target);
+                if (this.lookupCounts != null) {
+                    moveForward(this.lookupCounts, pos, target);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reports whether {@code pair}, taken from {@code $this.pairsQueue}, is
+     * the pair of an entry of {@code this} rather than a stale pair.
+     *
+     * @param pair
+     *            the pair to check
+     * @return true iff {@code pair} is live
+     * @ensures isLive = IS_LIVE(pair, $this.index)
+     */
+    private boolean isLive(Pair<K, V> pair) {
+        K key = pair.key();
+        return this.index == null
+                || (this.index.hasKey(key) && this.index.value(key) == pair);
+    }
+
+    /**
+     * Drops every stale pair from {@code $this.pairsQueue} once stale pairs
+     * outnumber live ones.
+     *
+     * @updates $this.pairsQueue, $this.stalePairs
+     * @ensures <pre>
+     * this = #this  and
+     * [$this.stalePairs = 0 or $this.stalePairs <= |$this.index|]
+     * </pre>
+     */
+    private void compactIfNeeded() {
+        if (this.stalePairs > this.index.size()) {
+            int length = this.pairsQueue.length();
+            for (int i = 0; i < length; i++) {
+                Pair<K, V> pair = this.pairsQueue.dequeue();
+                if (this.isLive(pair)) {
+                    this.pairsQueue.enqueue(pair);
+                }
             }
+            this.stalePairs = 0;
         }
-        q.transferFrom(tempQueue);
     }
 
     /**
@@ -75,6 +390,17 @@ public class Map2<K, V> extends MapSecondary<K, V> {
      */
     private void createNewRep() {
         this.pairsQueue = new Queue1L<Pair<K, V>>();
+        if (this.indexed) {
+            this.index = new Map1L<K, Pair<K, V>>();
+        } else {
+            this.index = null;
+        }
+        this.stalePairs = 0;
+        if (this.policy == SelfOrganizingPolicy.FREQUENCY_COUNT) {
+            this.lookupCounts = new Queue1L<Count>();
+        } else {
+            this.lookupCounts = null;
+        }
     }
 
     /*
@@ -85,6 +411,52 @@ public class Map2<K, V> extends MapSecondary<K, V> {
      * No-argument constructor.
      */
     public Map2() {
+        this(false, SelfOrganizingPolicy.NONE);
+    }
+
+    /**
+     * Constructor resulting in a {@code Map2} that, if {@code indexed}, keeps
+     * an index from keys to pairs.
+     *
+     * @param indexed
+     *            whether to keep an index
+     * @ensures this = {}
+     */
+    public Map2(boolean indexed) {
+        this(indexed, SelfOrganizingPolicy.NONE);
+    }
+
+    /**
+     * Constructor resulting in a {@code Map2} without an index that rearranges
+     * its pairs as {@code policy} says.
+     *
+     * @param policy
+     *            how to rearrange the pairs after a successful lookup
+     * @ensures this = {}
+     */
+    public Map2(SelfOrganizingPolicy policy) {
+        this(false, policy);
+    }
+
+    /**
+     * Constructor resulting in a {@code Map2} that, if {@code indexed}, keeps
+     * an index from keys to pairs, and otherwise rearranges its pairs as
+     * {@code policy} says.
+     *
+     * @param indexed
+     *            whether to keep an index
+     * @param policy
+     *            how to rearrange the pairs after a successful lookup
+     * @requires not indexed or policy = NONE
+     * @ensures this = {}
+     */
+    private Map2(boolean indexed, SelfOrganizingPolicy policy) {
+        assert policy != null : "Violation of: policy is not null";
+        assert !indexed || policy == SelfOrganizingPolicy.NONE : ""
+                + "Violation of: not indexed or policy = NONE";
+
+        this.indexed = indexed;
+        this.policy = policy;
         this.createNewRep();
     }
 
@@ -121,6 +493,21 @@ public class Map2<K, V> extends MapSecondary<K, V> {
          */
         Map2<K, V> localSource = (Map2<K, V>) source;
         this.pairsQueue = localSource.pairsQueue;
+        this.index = localSource.index;
+        this.stalePairs = localSource.stalePairs;
+        this.lookupCounts = localSource.lookupCounts;
+        if (this.policy != SelfOrganizingPolicy.FREQUENCY_COUNT
+                || this.index != null) {
+            this.lookupCounts = null;
+        } else if (this.lookupCounts == null) {
+            /*
+             * source did not count lookups, so start every count at zero
+             */
+            this.lookupCounts = new Queue1L<Count>();
+            for (int i = 0; i < this.pairsQueue.length(); i++) {
+                this.lookupCounts.enqueue(new Count());
+            }
+        }
         localSource.createNewRep();
     }
 
@@ -132,20 +519,37 @@ public class Map2<K, V> extends MapSecondary<K, V> {
     public final void add(K key, V value) {
         assert key != null : "Violation of: key is not null";
         assert value != null : "Violation of: value is not null";
-        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+        assert this.pairOf(key) == null : ""
+                + "Violation of: key is not in DOMAIN(this)";
 
         Pair<K, V> pair = new SimplePair<>(key, value);
         this.pairsQueue.enqueue(pair);
+        if (this.index != null) {
+            this.index.add(key, pair);
+        }
+        if (this.lookupCounts != null) {
+            this.lookupCounts.enqueue(new Count());
+        }
     }
 
     @Override
     public final Pair<K, V> remove(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
-
-        moveToFront(this.pairsQueue, key);
+        assert this.pairOf(key) != null : ""
+                + "Violation of: key is in DOMAIN(this)";
 
-        Pair<K, V> pair = this.pairsQueue.dequeue();
+        Pair<K, V> pair;
+        if (this.index != null) {
+            pair = this.index.remove(key).value();
+            this.stalePairs++;
+            this.compactIfNeeded();
+        } else {
+            int pos = this.indexOf(key);
+            pair = removeAt(this.pairsQueue, pos);
+            if (this.lookupCounts != null) {
+                removeAt(this.lookupCounts, pos);
+            }
+        }
 
         return pair;
     }
@@ -155,6 +559,16 @@ public class Map2<K, V> extends MapSecondary<K, V> {
         assert this.size() > 0 : "Violation of: |this| > 0";
 
         Pair<K, V> pair = this.pairsQueue.dequeue();
+        while (!this.isLive(pair)) {
+            this.stalePairs--;
+            pair = this.pairsQueue.dequeue();
+        }
+        if (this.index != null) {
+            this.index.remove(pair.key());
+        }
+        if (this.lookupCounts != null) {
+            this.lookupCounts.dequeue();
+        }
 
         return pair;
     }
@@ -162,14 +576,14 @@ public class Map2<K, V> extends MapSecondary<K, V> {
     @Override
     public final V value(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        assert this.pairOf(key) != null : ""
+                + "Violation of: key is in DOMAIN(this)";
 
-        V value = null;
-        for (Pair<K, V> pair : this.pairsQueue) {
-            K tempKey = pair.key();
-            if (tempKey.equals(key)) {
-                value = pair.value();
-            }
+        V value;
+        if (this.index != null) {
+            value = this.index.value(key).value();
+        } else {
+            value = this.lookUp(key).value();
         }
         return value;
     }
@@ -179,11 +593,10 @@ public class Map2<K, V> extends MapSecondary<K, V> {
         assert key != null : "Violation of: key is not null";
 
         boolean exist = false;
-        for (Pair<K, V> pair : this.pairsQueue) {
-            K tempKey = pair.key();
-            if (tempKey.equals(key)) {
-                exist = true;
-            }
+        if (this.index != null) {
+            exist = this.index.hasKey(key);
+        } else {
+            exist = this.lookUp(key) != null;
         }
         return exist;
     }
@@ -191,13 +604,135 @@ public class Map2<K, V> extends MapSecondary<K, V> {
     @Override
     public final int size() {
 
-        int length = this.pairsQueue.length();
+        int length = this.pairsQueue.length() - this.stalePairs;
         return length;
     }
 
     @Override
     public final Iterator<Pair<K, V>> iterator() {
-        return this.pairsQueue.iterator();
+        Iterator<Pair<K, V>> iterator;
+        if (this.stalePairs == 0) {
+            iterator = this.pairsQueue.iterator();
+        } else {
+            iterator = new Map2Iterator();
+        }
+        return iterator;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports how {@code this} rearranges its pairs after a lookup.
+     *
+     * @return the policy given to the constructor, or {@code NONE}
+     */
+    public final SelfOrganizingPolicy policy() {
+        return this.policy;
+    }
+
+    /**
+     * Reports the number of calls to {@code hasKey} and {@code value} that
+     * scanned the queue since {@code this} was constructed or its counts were
+     * last reset. An indexed {@code Map2} never scans.
+     *
+     * @return the number of lookups
+     */
+    public final long lookups() {
+        return this.lookups;
+    }
+
+    /**
+     * Reports the number of keys compared by those calls.
+     *
+     * @return the number of comparisons
+     */
+    public final long comparisons() {
+        return this.comparisons;
+    }
+
+    /**
+     * Reports the mean number of keys compared per lookup, or 0 if there were
+     * no lookups.
+     *
+     * @return comparisons / lookups
+     * @ensures <pre>
+     * meanScanLength = [if lookups = 0 then 0 else comparisons / lookups]
+     * </pre>
+     */
+    public final double meanScanLength() {
+        double mean = 0.0;
+        if (this.lookups > 0) {
+            mean = (double) this.comparisons / this.lookups;
+        }
+        return mean;
+    }
+
+    /**
+     * Resets the lookup and comparison counts to zero.
+     *
+     * @ensures lookups = 0 and comparisons = 0
+     */
+    public final void resetLookupCounts() {
+        this.lookups = 0;
+        this.comparisons = 0;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map2}, skipping
+     * stale pairs.
+     */
+    private final class Map2Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Iterator of the queue, stale pairs included.
+         */
+        private final Iterator<Pair<K, V>> queueIterator;
+
+        /**
+         * No-argument constructor.
+         */
+        Map2Iterator() {
+            this.numberSeen = 0;
+            this.queueIterator = Map2.this.pairsQueue.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map2.this.size();
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            Pair<K, V> pair = this.queueIterator.next();
+            while (!Map2.this.isLive(pair)) {
+                pair = this.queueIterator.next();
+            }
+            return pair;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
     }
 
 }
@@ -0,0 +1,30 @@
+/**
+ * How a self-organizing list rearranges itself after a successful lookup, so
+ * that frequently looked-up entries drift towards the front, where later
+ * lookups find them after fewer comparisons.
+ */
+public enum SelfOrganizingPolicy {
+
+    /**
+     * Never rearrange.
+     */
+    NONE,
+
+    /**
+     * Move the entry found to the front.
+     */
+    MOVE_TO_FRONT,
+
+    /**
+     * Swap the entry found with the one just before it.
+     */
+    TRANSPOSE,
+
+    /**
+     * Count the lookups of each entry, and keep the entries ordered by
+     * non-increasing count, moving the entry found ahead of every entry looked
+     * up less often.
+     */
+    FREQUENCY_COUNT;
+
+}
@@ -0,0 +1,142 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map2} with an index.
+ */
+public class Map2TestIndexed extends MapTest {
+
+    /**
+     * Number of entries used by the larger tests.
+     */
+    private static final int TEST_ENTRIES = 1000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map2<String, String>(true);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Checks that iterating over {@code m} yields keys "k" followed by
+     * {@code keys[0]}, {@code keys[1]}, ..., in that order.
+     *
+     * @param m
+     *            the map
+     * @param keys
+     *            the expected key suffixes, in order
+     */
+    private static void assertOrder(Map<String, String> m, int... keys) {
+        Iterator<Map.Pair<String, String>> it = m.iterator();
+        for (int key : keys) {
+            assertEquals("k" + key, it.next().key());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /*
+     * Test that remove keeps the insertion order of the other entries
+     */
+    @Test
+    public final void testOrder_1() {
+        /*
+         * Set up variables
+         */
+        Map<String, String> m = this.constructorTest();
+        for (int i = 0; i < 5; i++) {
+            m.add("k" + i, "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        m.remove("k3");
+        m.remove("k0");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(3, m.size());
+        assertOrder(m, 1, 2, 4);
+    }
+
+    /*
+     * Test LRU use: re-adding an entry moves it to the back, and removeAny
+     * takes the least recently added entry
+     */
+    @Test
+    public final void testOrder_2() {
+        /*
+         * Set up variables
+         */
+        Map<String, String> m = this.constructorTest();
+        for (int i = 0; i < 4; i++) {
+            m.add("k" + i, "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        Map.Pair<String, String> touched = m.remove("k0");
+        m.add(touched.key(), touched.value());
+        Map.Pair<String, String> eldest = m.removeAny();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("k1", eldest.key());
+        assertOrder(m, 2, 3, 0);
+        assertEquals("v0", m.value("k0"));
+    }
+
+    /*
+     * Test many removes and re-adds, which compact the queue along the way
+     */
+    @Test
+    public final void testCompaction_1() {
+        /*
+         * Set up variables
+         */
+        Map<String, String> m = this.constructorTest();
+        Map<String, String> mExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            m.add("k" + i, "v" + i);
+            mExpected.add("k" + i, "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < TEST_ENTRIES; i += 2) {
+            m.remove("k" + i);
+            mExpected.remove("k" + i);
+        }
+        for (int i = 0; i < TEST_ENTRIES; i += 4) {
+            m.add("k" + i, "w" + i);
+            mExpected.add("k" + i, "w" + i);
+        }
+        while (m.size() > TEST_ENTRIES / 2) {
+            mExpected.remove(m.removeAny().key());
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        for (Map.Pair<String, String> pair : mExpected) {
+            assertEquals(pair.value(), m.value(pair.key()));
+        }
+    }
+
+}
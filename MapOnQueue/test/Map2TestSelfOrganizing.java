@@ -0,0 +1,197 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for self-organizing {@code Map2}; the inherited
+ * tests use {@code FREQUENCY_COUNT}.
+ */
+public class Map2TestSelfOrganizing extends MapTest {
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map2<String, String>(SelfOrganizingPolicy.FREQUENCY_COUNT);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Returns a {@code Map2} with the given policy and entries "k0" through
+     * "k" + (n - 1), each mapped to "v" followed by its number, added in
+     * order, so its queue is in that order.
+     *
+     * @param policy
+     *            the policy
+     * @param n
+     *            the number of entries
+     * @return the new map
+     */
+    private static Map2<String, String> createMap(
+            SelfOrganizingPolicy policy, int n) {
+        Map2<String, String> m = new Map2<String, String>(policy);
+        for (int i = 0; i < n; i++) {
+            m.add("k" + i, "v" + i);
+        }
+        return m;
+    }
+
+    /**
+     * Checks that iterating over {@code m} yields keys "k" followed by
+     * {@code keys[0]}, {@code keys[1]}, ..., in that order.
+     *
+     * @param m
+     *            the map
+     * @param keys
+     *            the expected key suffixes, in order
+     */
+    private static void assertOrder(Map<String, String> m, int... keys) {
+        Iterator<Map.Pair<String, String>> it = m.iterator();
+        for (int key : keys) {
+            assertEquals("k" + key, it.next().key());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /*
+     * Test that move-to-front moves the pair found to the front
+     */
+    @Test
+    public final void testMoveToFront_1() {
+        /*
+         * Set up variables
+         */
+        Map2<String, String> m = createMap(SelfOrganizingPolicy.MOVE_TO_FRONT,
+                4);
+
+        /*
+         * Call method under test
+         */
+        String value = m.value("k2");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("v2", value);
+        assertOrder(m, 2, 0, 1, 3);
+    }
+
+    /*
+     * Test that transpose swaps the pair found with its predecessor
+     */
+    @Test
+    public final void testTranspose_1() {
+        /*
+         * Set up variables
+         */
+        Map2<String, String> m = createMap(SelfOrganizingPolicy.TRANSPOSE, 4);
+
+        /*
+         * Call method under test
+         */
+        boolean found = m.hasKey("k3");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(found);
+        assertOrder(m, 0, 1, 3, 2);
+    }
+
+    /*
+     * Test that frequency-count keeps keys looked up more often in front, and
+     * that remove keeps the order of the others
+     */
+    @Test
+    public final void testFrequencyCount_1() {
+        /*
+         * Set up variables
+         */
+        Map2<String, String> m = createMap(
+                SelfOrganizingPolicy.FREQUENCY_COUNT, 5);
+
+        /*
+         * Call method under test
+         */
+        m.hasKey("k4");
+        m.hasKey("k4");
+        m.value("k2");
+        m.remove("k0");
+        m.hasKey("k3");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertOrder(m, 4, 2, 3, 1);
+    }
+
+    /*
+     * Test the lookup and comparison counts of an unindexed map and of an
+     * indexed one
+     */
+    @Test
+    public final void testLookupCounts_1() {
+        /*
+         * Set up variables
+         */
+        Map2<String, String> m = createMap(SelfOrganizingPolicy.NONE, 5);
+        Map2<String, String> indexed = new Map2<String, String>(true);
+        indexed.add("k0", "v0");
+
+        /*
+         * Call method under test
+         */
+        m.hasKey("k1");
+        m.hasKey("missing");
+        m.value("k4");
+        indexed.hasKey("k0");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(3, m.lookups());
+        assertEquals(2 + 5 + 5, m.comparisons());
+        assertEquals(4.0, m.meanScanLength(), 0.0);
+        assertOrder(m, 0, 1, 2, 3, 4);
+        assertEquals(0, indexed.lookups());
+    }
+
+    /*
+     * Test that move-to-front shortens repeated lookups of one key, and that
+     * the counts can be reset
+     */
+    @Test
+    public final void testLookupCounts_2() {
+        /*
+         * Set up variables
+         */
+        Map2<String, String> m = createMap(SelfOrganizingPolicy.MOVE_TO_FRONT,
+                10);
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < 10; i++) {
+            m.value("k9");
+        }
+        long comparisons = m.comparisons();
+        m.resetLookupCounts();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(10 + 9, comparisons);
+        assertEquals(0, m.lookups());
+        assertEquals(0, m.comparisons());
+    }
+
+}
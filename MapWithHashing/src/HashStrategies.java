@@ -0,0 +1,190 @@
+/**
+ * Standard {@code HashStrategy}s.
+ *
+ * <p>
+ * {@code IDENTITY} reduces the hash code itself modulo the table size, as
+ * {@code Map4} always has; it keeps whatever table size it is given, even or
+ * odd, and grows a table of n buckets to 2n + 1. {@code MURMUR} first
+ * scrambles the hash code with the MurmurHash3 32-bit finalizer, so that hash
+ * codes differing only in a few bits, or only in their high bits, still land
+ * in different buckets; it rounds table sizes up to odd ones.
+ * {@code FIBONACCI} multiplies by 2^32 divided by the golden ratio and keeps
+ * the top bits, which needs a power-of-2 table but replaces the division by a
+ * multiplication and a shift.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public enum HashStrategies implements HashStrategy {
+
+    /**
+     * Hash code mod the table size.
+     */
+    IDENTITY {
+        @Override
+        public int tableSize(int minimumSize) {
+            return Math.max(minimumSize, 1);
+        }
+
+        @Override
+        public int grownTableSize(int tableSize) {
+            return 2 * tableSize + 1;
+        }
+
+        @Override
+        public int index(int hashCode, int tableSize) {
+            return mod(hashCode, tableSize);
+        }
+    },
+
+    /**
+     * MurmurHash3 finalizer of the hash code, mod an odd table size.
+     */
+    MURMUR {
+        @Override
+        public int tableSize(int minimumSize) {
+            return oddAtLeast(minimumSize);
+        }
+
+        @Override
+        public int grownTableSize(int tableSize) {
+            return 2 * tableSize + 1;
+        }
+
+        @Override
+        public int index(int hashCode, int tableSize) {
+            return mod(murmurMix(hashCode), tableSize);
+        }
+    },
+
+    /**
+     * Fibonacci hashing into a power-of-2 table, of at most 2^30 buckets.
+     */
+    FIBONACCI {
+        @Override
+        public int tableSize(int minimumSize) {
+            assert minimumSize <= MAX_POWER_OF_2 : ""
+                    + "Violation of: minimumSize <= 2^30";
+
+            int size = Integer.highestOneBit(Math.max(minimumSize, 1));
+            if (size < minimumSize) {
+                size *= 2;
+            }
+            return size;
+        }
+
+        @Override
+        public int grownTableSize(int tableSize) {
+            assert tableSize < MAX_POWER_OF_2 : ""
+                    + "Violation of: tableSize < 2^30";
+
+            return 2 * tableSize;
+        }
+
+        @Override
+        public int index(int hashCode, int tableSize) {
+            assert Integer.bitCount(tableSize) == 1 : ""
+                    + "Violation of: tableSize is a power of 2";
+
+            int index = 0;
+            if (tableSize > 1) {
+                int bits = Integer.numberOfTrailingZeros(tableSize);
+                index = (hashCode * GOLDEN_RATIO) >>> (Integer.SIZE - bits);
+            }
+            return index;
+        }
+    };
+
+    /**
+     * Largest power of 2 that is a positive {@code int}, hence the largest
+     * {@code FIBONACCI} table size.
+     */
+    private static final int MAX_POWER_OF_2 = 1 << 30;
+
+    /**
+     * 2^32 divided by the golden ratio, as a (wrapped) 32-bit int.
+     */
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    /**
+     * First multiplier of the MurmurHash3 finalizer.
+     */
+    private static final int MURMUR_C1 = 0x85EBCA6B;
+
+    /**
+     * Second multiplier of the MurmurHash3 finalizer.
+     */
+    private static final int MURMUR_C2 = 0xC2B2AE35;
+
+    /**
+     * First shift of the MurmurHash3 finalizer.
+     */
+    private static final int MURMUR_SHIFT1 = 16;
+
+    /**
+     * Second shift of the MurmurHash3 finalizer.
+     */
+    private static final int MURMUR_SHIFT2 = 13;
+
+    /**
+     * Computes {@code a} mod {@code b} as % should have been defined to work.
+     *
+     * @param a
+     *            the number being reduced
+     * @param b
+     *            the modulus
+     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
+     * @requires b > 0
+     * @ensures <pre>
+     * 0 <= mod  and  mod < b  and
+     * there exists k: integer (a = k * b + mod)
+     * </pre>
+     */
+    static int mod(int a, int b) {
+        assert b > 0 : "Violation of: b > 0";
+
+        // clock Arithmetic
+        int modulo = a % b;
+        if (modulo < 0) {
+            modulo = b + modulo;
+        }
+
+        return modulo;
+    }
+
+    /**
+     * Returns the smallest odd number that is at least {@code n} (and at least
+     * 1).
+     *
+     * @param n
+     *            the lower bound
+     * @return the smallest odd number >= n
+     */
+    static int oddAtLeast(int n) {
+        int odd = Math.max(n, 1);
+        if (odd % 2 == 0) {
+            odd++;
+        }
+        return odd;
+    }
+
+    /**
+     * Scrambles {@code h} with the MurmurHash3 32-bit finalizer, so that every
+     * bit of the result depends on every bit of {@code h}.
+     *
+     * @param h
+     *            the hash code to scramble
+     * @return the scrambled hash code
+     */
+    static int murmurMix(int h) {
+        int x = h;
+        x ^= x >>> MURMUR_SHIFT1;
+        x *= MURMUR_C1;
+        x ^= x >>> MURMUR_SHIFT2;
+        x *= MURMUR_C2;
+        x ^= x >>> MURMUR_SHIFT1;
+        return x;
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Strategy by which a hash table turns a key's hash code into a bucket index,
+ * together with the table sizes that strategy works with.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public interface HashStrategy {
+
+    /**
+     * Returns the table size this strategy uses when at least
+     * {@code minimumSize} buckets are wanted.
+     *
+     * @param minimumSize
+     *            the number of buckets wanted
+     * @return the table size to use
+     * @ensures tableSize >= minimumSize  and  tableSize > 0
+     */
+    int tableSize(int minimumSize);
+
+    /**
+     * Returns the table size this strategy grows a table of {@code tableSize}
+     * buckets to, about twice as large.
+     *
+     * @param tableSize
+     *            the current number of buckets
+     * @return the table size to grow to
+     * @requires tableSize = [result of tableSize(n) for some n]
+     * @ensures <pre>
+     * grownTableSize > tableSize  and
+     * grownTableSize = tableSize(grownTableSize)
+     * </pre>
+     */
+    int grownTableSize(int tableSize);
+
+    /**
+     * Returns the index of the bucket for a key with hash code
+     * {@code hashCode} in a table of {@code tableSize} buckets.
+     *
+     * @param hashCode
+     *            the hash code of the key
+     * @param tableSize
+     *            the number of buckets
+     * @return the bucket index
+     * @requires tableSize = [result of tableSize(n) for some n]
+     * @ensures 0 <= index < tableSize
+     */
+    int index(int hashCode, int tableSize);
+
+}
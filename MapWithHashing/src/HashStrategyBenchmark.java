@@ -0,0 +1,192 @@
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.set.Set;
+import components.set.Set1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares the standard {@code HashStrategy}s on the distinct lines of a text
+ * file (e.g., one of the files in HashingExperiments/data), both with
+ * {@code String.hashCode} and with the weak sum-of-characters hash code of
+ * {@code HashingExploration}. For each combination it reports the longest and
+ * the average probe length of a lookup, the number of empty buckets, and the
+ * time taken to look up every line repeatedly.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class HashStrategyBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private HashStrategyBenchmark() {
+    }
+
+    /**
+     * Number of times every line is looked up in the timed part.
+     */
+    private static final int LOOKUP_ROUNDS = 200;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * {@code String} key whose hash code is the sum of its characters, as in
+     * {@code HashingExploration.hashCode}.
+     */
+    private static final class SumHashKey implements Comparable<SumHashKey> {
+
+        /**
+         * The key text.
+         */
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param text
+         *            the key text
+         */
+        SumHashKey(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode() {
+            int sum = 0;
+            for (int i = 0; i < this.text.length(); i++) {
+                sum = sum + this.text.charAt(i);
+            }
+            return sum;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SumHashKey
+                    && ((SumHashKey) obj).text.equals(this.text);
+        }
+
+        @Override
+        public int compareTo(SumHashKey other) {
+            return this.text.compareTo(other.text);
+        }
+
+    }
+
+    /**
+     * Loads {@code keys} into a {@code Map4} of {@code hashTableSize} buckets
+     * using {@code strategy}, and reports probe lengths, empty buckets, and
+     * lookup time to {@code out}.
+     *
+     * @param <K>
+     *            type of keys
+     * @param out
+     *            the output stream
+     * @param label
+     *            label of the reported line
+     * @param keys
+     *            the distinct keys
+     * @param hashTableSize
+     *            the size of the hash table
+     * @param strategy
+     *            the strategy under test
+     * @updates out.content
+     * @requires out.is_open and [keys has no duplicates]
+     */
+    private static <K> void report(SimpleWriter out, String label,
+            Queue<K> keys, int hashTableSize, HashStrategy strategy) {
+        Map4<K, Integer> map = new Map4<K, Integer>(hashTableSize, strategy);
+        int n = 0;
+        for (K key : keys) {
+            map.add(key, n);
+            n++;
+        }
+
+        int maxProbe = 0;
+        long totalProbe = 0;
+        for (K key : keys) {
+            int probe = map.probeLength(key);
+            maxProbe = Math.max(maxProbe, probe);
+            totalProbe += probe;
+        }
+
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            for (K key : keys) {
+                checksum += map.value(key);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int buckets = map.capacity();
+        int empty = buckets - map.createdBucketCount();
+        double meanProbe = 0;
+        if (n > 0) {
+            meanProbe = (double) totalProbe / n;
+        }
+        out.println(label + "\t" + strategy + "\t" + buckets + "\t" + maxProbe
+                + "\t" + String.format("%.2f", meanProbe) + "\t" + empty
+                + "\t" + String.format("%.1f", elapsed / NANOS_PER_MILLI)
+                + "\t(" + checksum + ")");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        /*
+         * Get hash table size and file name.
+         */
+        out.print("Hash table size: ");
+        int hashTableSize = in.nextInteger();
+        out.print("Text file name: ");
+        String textFileName = in.nextLine();
+        /*
+         * Read the distinct lines, keeping them in file order.
+         */
+        Queue<String> lines = new Queue1L<String>();
+        Queue<SumHashKey> sumKeys = new Queue1L<SumHashKey>();
+        Set<String> counted = new Set1L<String>();
+        SimpleReader textFile = new SimpleReader1L(textFileName);
+        while (!textFile.atEOS()) {
+            String line = textFile.nextLine();
+            if (!counted.contains(line)) {
+                counted.add(line);
+                lines.enqueue(line);
+                sumKeys.enqueue(new SumHashKey(line));
+            }
+        }
+        textFile.close();
+        /*
+         * Report results.
+         */
+        out.println();
+        out.println("Keys:\t" + lines.length() + "\tLookups per key:\t"
+                + LOOKUP_ROUNDS);
+        out.println();
+        out.println("Hash\tStrategy\tBuckets\tMax\tMean\tEmpty\tms");
+        out.println("----\t--------\t-------\t---\t----\t-----\t--");
+        for (HashStrategies strategy : HashStrategies.values()) {
+            report(out, "String", lines, hashTableSize, strategy);
+        }
+        for (HashStrategies strategy : HashStrategies.values()) {
+            report(out, "Sum", sumKeys, hashTableSize, strategy);
+        }
+        in.close();
+        out.close();
+    }
+
+}
@@ -1,38 +1,88 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 import components.map.Map;
-import components.map.Map2;
 import components.map.MapSecondary;
 
 /**
  * {@code Map} represented as a hash table using {@code Map}s for the buckets,
  * with implementations of primary methods.
  *
+ * <p>
+ * A {@code Map4} constructed with a load factor grows its hash table (and,
+ * optionally, shrinks it) when the ratio of entries to buckets crosses that
+ * load factor. The entries of the old hash table are then migrated a few
+ * buckets at a time by subsequent calls to {@code add}, {@code remove}, and
+ * {@code removeAny}, so no single call pays for rehashing the whole table.
+ *
+ * <p>
+ * Buckets are created only when an entry is first added to them; a null
+ * entry in a hash table stands for an empty bucket, so {@code clear} and
+ * {@code transferFrom} allocate just the bucket array.
+ *
+ * <p>
+ * A bucket is a chain of nodes (a {@code ListBucket}) until it holds more than
+ * {@code TREEIFY_THRESHOLD} entries whose keys are all of the same
+ * {@code Comparable} class, no two of them comparing equal; it is then
+ * converted into a balanced search tree bucket, so lookups in it take
+ * O(log n) rather than O(n) time even when many keys share a hash code. It
+ * is converted back into a chain once it shrinks below
+ * {@code UNTREEIFY_THRESHOLD} entries.
+ *
+ * <p>
+ * Iteration, and the internal iteration of {@code forEach}, walk the chains
+ * directly rather than asking each bucket for an iterator; {@code forEach}
+ * allocates nothing at all.
+ *
+ * <p>
+ * How a hash code picks a bucket, and which table sizes are used, is up to
+ * the {@code HashStrategy} given to the constructor; by default the hash code
+ * is reduced mod the table size, which starts out as given to the constructor
+ * and grows from n to 2n + 1 buckets.
+ *
  * @param <K>
  *            type of {@code Map} domain (key) entries
  * @param <V>
  *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * ENTRIES(
+ *   table: string of PARTIAL_FUNCTION,
+ *   from: integer
+ *  ): PARTIAL_FUNCTION is
+ *  union i: integer, pf: PARTIAL_FUNCTION
+ *      where (from <= i  and  i < |table|  and
+ *             <pf> = table[i, i+1))
+ *    (pf)
+ *
+ * [ENTRIES of a null table, i.e., when no rehash is in progress, is {}, and
+ *  a null bucket contributes {} to ENTRIES]
+ * </pre>
  * @convention <pre>
  * |$this.hashTable| > 0  and
  * for all i: integer, pf: PARTIAL_FUNCTION, x: K
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1)  and
  *            x is in DOMAIN(pf))
- *   ([computed result of x.hashCode()] mod |$this.hashTable| = i))  and
- * for all i: integer
- *     where (0 <= i  and  i < |$this.hashTable|)
- *   ([entry at position i in $this.hashTable is not null])  and
- * $this.size = sum i: integer, pf: PARTIAL_FUNCTION
- *     where (0 <= i  and  i < |$this.hashTable|  and
- *            <pf> = $this.hashTable[i, i+1))
- *   (|pf|)
+ *   ($this.strategy.index([computed result of x.hashCode()],
+ *                         |$this.hashTable|) = i))  and
+ * |$this.hashTable| = $this.strategy.tableSize(|$this.hashTable|)  and
+ * if [$this.oldHashTable is null] then
+ *   $this.rehashIndex = 0
+ * else
+ *   0 <= $this.rehashIndex < |$this.oldHashTable|  and
+ *   ENTRIES($this.oldHashTable, 0) = ENTRIES($this.oldHashTable,
+ *                                            $this.rehashIndex)  and
+ *   [every bucket of $this.oldHashTable satisfies the same hashing
+ *    property with respect to |$this.oldHashTable|]  and
+ *   DOMAIN(ENTRIES($this.hashTable, 0)) intersection
+ *     DOMAIN(ENTRIES($this.oldHashTable, 0)) = {}  and
+ * $this.size = |ENTRIES($this.hashTable, 0)| +
+ *              |ENTRIES($this.oldHashTable, 0)|
  * </pre>
  * @correspondence <pre>
- * this = union i: integer, pf: PARTIAL_FUNCTION
- *            where (0 <= i  and  i < |$this.hashTable|  and
- *                   <pf> = $this.hashTable[i, i+1))
- *          (pf)
+ * this = ENTRIES($this.hashTable, 0) union ENTRIES($this.oldHashTable, 0)
  * </pre>
  *
  * @author Zhao Liu
@@ -51,69 +101,573 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
     /**
-     * Buckets for hashing.
+     * Default load factor for a resizable hash table.
+     */
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    /**
+     * A shrinkable hash table shrinks once its load drops below its load
+     * factor divided by this value; the gap keeps a table hovering around the
+     * threshold from growing and shrinking back and forth.
+     */
+    private static final int SHRINK_DIVISOR = 4;
+
+    /**
+     * Number of old buckets migrated by each call to {@code add},
+     * {@code remove}, or {@code removeAny} while a rehash is in progress.
+     */
+    private static final int REHASH_BUCKETS_PER_STEP = 4;
+
+    /**
+     * A list bucket holding more entries than this is converted into a tree
+     * bucket, if its keys allow it.
+     */
+    private static final int TREEIFY_THRESHOLD = 8;
+
+    /**
+     * A tree bucket holding fewer entries than this is converted back into a
+     * list bucket.
+     */
+    private static final int UNTREEIFY_THRESHOLD = 6;
+
+    /**
+     * Shared empty bucket returned for lookups on buckets not yet created;
+     * never modified.
+     */
+    private static final Map<?, ?> EMPTY_BUCKET = new ListBucket<Object,
+            Object>();
+
+    /**
+     * Buckets for hashing; null entries are empty buckets not yet created.
      */
     private Map<K, V>[] hashTable;
 
+    /**
+     * Buckets being migrated into {@code hashTable}, or null when no rehash is
+     * in progress.
+     */
+    private Map<K, V>[] oldHashTable;
+
+    /**
+     * Index of the next bucket of {@code oldHashTable} to be migrated.
+     */
+    private int rehashIndex;
+
     /**
      * Total size of abstract {@code this}.
      */
     private int size;
 
     /**
-     * Computes {@code a} mod {@code b} as % should have been defined to work.
-     *
-     * @param a
-     *            the number being reduced
-     * @param b
-     *            the modulus
-     * @return the result of a mod b, which satisfies 0 <= {@code mod} < b
-     * @requires b > 0
-     * @ensures <pre>
-     * 0 <= mod  and  mod < b  and
-     * there exists k: integer (a = k * b + mod)
-     * </pre>
+     * Minimum size of the hash table created by the constructor,
+     * {@code clear}, and {@code transferFrom}; a shrinkable hash table never
+     * shrinks below it.
      */
-    private static int mod(int a, int b) {
-        assert b > 0 : "Violation of: b > 0";
+    private final int initialHashTableSize;
 
-        // clock Arithmetic
-        int modulo = a % b;
-        if (modulo < 0) {
-            modulo = b + modulo;
-        }
+    /**
+     * Ratio of entries to buckets above which a resizable hash table grows.
+     */
+    private final double loadFactor;
+
+    /**
+     * Whether the hash table grows when {@code loadFactor} is exceeded.
+     */
+    private final boolean resizable;
+
+    /**
+     * Whether a resizable hash table also shrinks when it becomes sparse.
+     */
+    private final boolean shrinkable;
+
+    /**
+     * Maps hash codes to bucket indexes and picks table sizes; it goes along
+     * with the hash tables in {@code transferFrom}, since their layout
+     * depends on it.
+     */
+    private HashStrategy strategy;
+
+    /**
+     * Whether {@code hasKey} and {@code value} lookups are counted; off unless
+     * {@code setLookupCounting} turns it on, so that lookups write no shared
+     * fields when nobody reads the counts.
+     */
+    private boolean countingLookups;
+
+    /**
+     * Number of {@code hasKey} and {@code value} lookups counted on
+     * {@code this} since it was constructed or {@code resetLookupCounts} was
+     * last called.
+     */
+    private long lookupCount;
+
+    /**
+     * Number of key comparisons made by those lookups.
+     */
+    private long probeCount;
 
-        return modulo;
+    /**
+     * Returns the shared, never-modified empty bucket.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @return the shared empty bucket
+     * @ensures emptyBucket = {}
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V> emptyBucket() {
+        /*
+         * The cast cannot cause trouble since nothing is ever added to
+         * EMPTY_BUCKET.
+         */
+        return (Map<K, V>) EMPTY_BUCKET;
     }
 
     /**
-     * Creator of initial representation.
+     * Creates a hash table of empty buckets, none of which is created yet.
      *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
      * @param hashTableSize
      *            the size of the hash table
+     * @return the new hash table
      * @requires hashTableSize > 0
      * @ensures <pre>
-     * |$this.hashTable| = hashTableSize  and
+     * |newHashTable| = hashTableSize  and
      * for all i: integer
-     *     where (0 <= i  and  i < |$this.hashTable|)
-     *   ($this.hashTable[i, i+1) = <{}>)  and
-     * $this.size = 0
+     *     where (0 <= i  and  i < |newHashTable|)
+     *   (newHashTable[i, i+1) = <{}>)
      * </pre>
      */
     @SuppressWarnings("unchecked")
-    private void createNewRep(int hashTableSize) {
+    private static <K, V> Map<K, V>[] newHashTable(int hashTableSize) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+
         /*
          * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
          * compile; as shown, it results in a warning about an unchecked
          * conversion, though it cannot fail.
          */
-        this.hashTable = new Map[hashTableSize];
+        return new Map[hashTableSize];
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param hashTableSize
+     *            the minimum size of the hash table
+     * @requires hashTableSize > 0
+     * @ensures <pre>
+     * |$this.hashTable| = $this.strategy.tableSize(hashTableSize)  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |$this.hashTable|)
+     *   ($this.hashTable[i, i+1) = <{}>)  and
+     * [$this.oldHashTable is null]  and  $this.rehashIndex = 0  and
+     * $this.size = 0
+     * </pre>
+     */
+    private void createNewRep(int hashTableSize) {
+        this.hashTable = newHashTable(this.strategy.tableSize(hashTableSize));
+        this.oldHashTable = null;
+        this.rehashIndex = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the hash table holding the bucket for a key with hash code
+     * {@code hash}: the old hash table if a rehash is in progress and that
+     * bucket has not been migrated yet, the current hash table otherwise.
+     *
+     * @param hash
+     *            the hash code of the key
+     * @return the hash table holding the bucket for {@code hash}
+     * @ensures <pre>
+     * if [a rehash is in progress]  and
+     *    $this.strategy.index(hash, |$this.oldHashTable|) >=
+     *      $this.rehashIndex
+     *  then table = $this.oldHashTable
+     *  else table = $this.hashTable
+     * </pre>
+     */
+    private Map<K, V>[] table(int hash) {
+        Map<K, V>[] table = this.hashTable;
 
-        for (int i = 0; i < this.hashTable.length; i++) {
-            this.hashTable[i] = new Map2<K, V>();
+        if (this.oldHashTable != null
+                && this.strategy.index(hash,
+                        this.oldHashTable.length) >= this.rehashIndex) {
+            // this bucket has not been migrated yet.
+            table = this.oldHashTable;
         }
 
-        this.size = 0;
+        return table;
+    }
+
+    /**
+     * Returns the bucket in which {@code key} is, or would be, stored, or the
+     * shared empty bucket if that bucket has not been created yet. The result
+     * is only to be looked at, never modified.
+     *
+     * @param key
+     *            the key to be located
+     * @return the bucket for {@code key}
+     * @ensures <pre>
+     * bucket = [bucket of table(hash) at position
+     *           $this.strategy.index(hash, |table(hash)|), where hash is
+     *           the computed result of key.hashCode()]
+     * </pre>
+     */
+    private Map<K, V> bucket(K key) {
+        int hash = key.hashCode();
+        Map<K, V>[] table = this.table(hash);
+
+        Map<K, V> bucket = table[this.strategy.index(hash, table.length)];
+        if (bucket == null) {
+            bucket = emptyBucket();
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Returns the value {@code key} is associated with, or null if
+     * {@code key} is not in {@code DOMAIN(this)}, counting the lookup and its
+     * key comparisons if {@code $this.countingLookups}. A tree bucket is
+     * descended once, counting the nodes on the search path as it goes.
+     *
+     * @param key
+     *            the key to be looked up
+     * @return the value of {@code key}, or null
+     * @updates $this.lookupCount, $this.probeCount
+     * @ensures <pre>
+     * if key is in DOMAIN(this) then (key, lookup) is in this
+     *  else [lookup is null]
+     * </pre>
+     */
+    private V lookup(K key) {
+        Map<K, V> bucket = this.bucket(key);
+        V value = null;
+
+        int probes = 0;
+        if (bucket instanceof ListBucket<?, ?>) {
+            ListBucket.Node<K, V> n = ((ListBucket<K, V>) bucket).first;
+            while (n != null && value == null) {
+                probes++;
+                if (n.key.equals(key)) {
+                    value = n.value;
+                }
+                n = n.next;
+            }
+        } else {
+            TreeBucket<K, V> tree = (TreeBucket<K, V>) bucket;
+            if (tree.accepts(key)) {
+                TreeBucket.Node<K, V> n = tree.root;
+                int cmp = 1;
+                while (n != null && cmp != 0) {
+                    probes++;
+                    cmp = TreeBucket.compare(key, n.key);
+                    if (cmp < 0) {
+                        n = n.left;
+                    } else if (cmp > 0) {
+                        n = n.right;
+                    }
+                }
+                // as in TreeBucket.find, a key comparing equal must be equal.
+                if (n != null && n.key.equals(key)) {
+                    value = n.value;
+                }
+            }
+        }
+        if (this.countingLookups) {
+            this.lookupCount++;
+            this.probeCount += probes;
+        }
+
+        return value;
+    }
+
+    /**
+     * Reports whether the entries of {@code bucket} may be kept in a tree
+     * bucket, i.e., whether its keys all have the same class, that class
+     * implements {@code Comparable}, and no two of them compare equal, as
+     * distinct keys of a class whose ordering is inconsistent with
+     * {@code equals} can (e.g., {@code BigDecimal} 1.0 and 1.00).
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param bucket
+     *            the bucket to check
+     * @return true iff the keys of {@code bucket} are mutually comparable
+     */
+    private static <K, V> boolean isTreeifiable(Map<K, V> bucket) {
+        Class<?> keyClass = null;
+        boolean treeifiable = true;
+        Object[] keys = new Object[bucket.size()];
+        int n = 0;
+
+        Iterator<Pair<K, V>> it = bucket.iterator();
+        while (treeifiable && it.hasNext()) {
+            K key = it.next().key();
+            Class<?> c = key.getClass();
+            if (keyClass == null) {
+                keyClass = c;
+                treeifiable = Comparable.class.isAssignableFrom(c);
+            } else if (c != keyClass) {
+                treeifiable = false;
+            }
+            keys[n] = key;
+            n++;
+        }
+
+        if (treeifiable) {
+            /*
+             * The keys are distinct, so once they are sorted, two neighbors
+             * comparing equal are distinct keys that compare equal
+             */
+            Arrays.sort(keys, TreeBucket::compare);
+            for (int i = 1; i < keys.length && treeifiable; i++) {
+                treeifiable = TreeBucket.compare(keys[i - 1], keys[i]) != 0;
+            }
+        }
+
+        return treeifiable;
+    }
+
+    /**
+     * Moves every entry of {@code from} into {@code to}.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param from
+     *            the bucket to empty
+     * @param to
+     *            the bucket to fill
+     * @updates from, to
+     * @requires DOMAIN(from) intersection DOMAIN(to) = {}
+     * @ensures from = {}  and  to = #to union #from
+     */
+    private static <K, V> void moveEntries(Map<K, V> from, Map<K, V> to) {
+        while (from.size() > 0) {
+            Pair<K, V> pair = from.removeAny();
+            to.add(pair.key(), pair.value());
+        }
+    }
+
+    /**
+     * Adds {@code (key, value)} to the bucket at {@code index} of
+     * {@code table}, creating that bucket if needed and converting it between
+     * list and tree form as its size and keys require.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param table
+     *            the hash table owning the bucket
+     * @param index
+     *            the position of the bucket in {@code table}
+     * @param key
+     *            the key to add
+     * @param value
+     *            the value to add
+     * @updates table
+     * @requires [key belongs in that bucket and is not in it]
+     * @ensures [(key, value) is added to that bucket]
+     */
+    private static <K, V> void addToBucket(Map<K, V>[] table, int index,
+            K key, V value) {
+        Map<K, V> bucket = table[index];
+
+        if (bucket == null) {
+            bucket = new ListBucket<K, V>();
+            table[index] = bucket;
+        } else if (bucket instanceof TreeBucket<?, ?>
+                && !((TreeBucket<K, V>) bucket).admits(key)) {
+            /*
+             * key cannot be compared with the keys already in the tree, or
+             * compares equal to one of them without being equal to it
+             */
+            Map<K, V> list = new ListBucket<K, V>();
+            moveEntries(bucket, list);
+            bucket = list;
+            table[index] = bucket;
+        }
+
+        bucket.add(key, value);
+
+        if (bucket instanceof ListBucket<?, ?>
+                && bucket.size() > TREEIFY_THRESHOLD
+                && !((ListBucket<K, V>) bucket).treeifyRejected) {
+            if (isTreeifiable(bucket)) {
+                Map<K, V> tree = new TreeBucket<K, V>();
+                moveEntries(bucket, tree);
+                table[index] = tree;
+            } else {
+                /*
+                 * Do not check again on every add; the mark is cleared once
+                 * the bucket shrinks below UNTREEIFY_THRESHOLD
+                 */
+                ((ListBucket<K, V>) bucket).treeifyRejected = true;
+            }
+        }
+    }
+
+    /**
+     * Converts the bucket at {@code index} of {@code table} back into a list
+     * bucket if it is a tree bucket that has shrunk below
+     * {@code UNTREEIFY_THRESHOLD} entries.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param table
+     *            the hash table owning the bucket
+     * @param index
+     *            the position of the bucket in {@code table}
+     * @updates table
+     * @ensures [the entries of that bucket are unchanged]
+     */
+    private static <K, V> void untreeifyIfNeeded(Map<K, V>[] table,
+            int index) {
+        Map<K, V> bucket = table[index];
+
+        if (bucket instanceof TreeBucket<?, ?>
+                && bucket.size() < UNTREEIFY_THRESHOLD) {
+            Map<K, V> list = new ListBucket<K, V>();
+            moveEntries(bucket, list);
+            table[index] = list;
+        }
+    }
+
+    /**
+     * Moves the entries of {@code bucket}, which is not a bucket of
+     * {@code $this.hashTable}, into their buckets in {@code $this.hashTable}.
+     *
+     * @param bucket
+     *            the bucket to empty
+     * @updates bucket, $this.hashTable
+     * @requires <pre>
+     * DOMAIN(bucket) intersection DOMAIN(ENTRIES($this.hashTable, 0)) = {}
+     * </pre>
+     * @ensures <pre>
+     * bucket = {}  and
+     * ENTRIES($this.hashTable, 0) = #ENTRIES($this.hashTable, 0) union #bucket
+     * </pre>
+     */
+    private void migrate(Map<K, V> bucket) {
+        while (bucket.size() > 0) {
+            Pair<K, V> pair = bucket.removeAny();
+            int index = this.strategy.index(pair.key().hashCode(),
+                    this.hashTable.length);
+            addToBucket(this.hashTable, index, pair.key(), pair.value());
+        }
+    }
+
+    /**
+     * Moves every entry of {@code this}, including those not yet migrated by
+     * an in-progress rehash, into a new hash table of size
+     * {@code hashTableSize} in one pass.
+     *
+     * @param hashTableSize
+     *            the size of the new hash table
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @requires <pre>
+     * hashTableSize > 0  and
+     * hashTableSize = $this.strategy.tableSize(hashTableSize)
+     * </pre>
+     * @ensures <pre>
+     * this = #this  and  |$this.hashTable| = hashTableSize  and
+     * [$this.oldHashTable is null]
+     * </pre>
+     */
+    private void rebuild(int hashTableSize) {
+        Map<K, V>[] current = this.hashTable;
+        Map<K, V>[] old = this.oldHashTable;
+        int oldIndex = this.rehashIndex;
+
+        this.hashTable = newHashTable(hashTableSize);
+        this.oldHashTable = null;
+        this.rehashIndex = 0;
+
+        for (Map<K, V> bucket : current) {
+            if (bucket != null) {
+                this.migrate(bucket);
+            }
+        }
+        if (old != null) {
+            for (int i = oldIndex; i < old.length; i++) {
+                if (old[i] != null) {
+                    this.migrate(old[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Migrates up to {@code REHASH_BUCKETS_PER_STEP} buckets of
+     * {@code $this.oldHashTable} into {@code $this.hashTable}, finishing the
+     * rehash once the last old bucket has been migrated.
+     *
+     * @updates $this.hashTable, $this.oldHashTable, $this.rehashIndex
+     * @ensures this = #this
+     */
+    private void rehashStep() {
+        int migrated = 0;
+        while (this.oldHashTable != null
+                && migrated < REHASH_BUCKETS_PER_STEP) {
+            Map<K, V> oldBucket = this.oldHashTable[this.rehashIndex];
+            if (oldBucket != null) {
+                this.migrate(oldBucket);
+                this.oldHashTable[this.rehashIndex] = null;
+            }
+            this.rehashIndex++;
+            migrated++;
+
+            if (this.rehashIndex == this.oldHashTable.length) {
+                // every old bucket is empty now.
+                this.oldHashTable = null;
+                this.rehashIndex = 0;
+            }
+        }
+    }
+
+    /**
+     * Starts a rehash into a larger (or, if shrinkable, smaller) hash table if
+     * {@code this} is resizable, no rehash is in progress, and the load factor
+     * has been crossed.
+     *
+     * @updates $this.hashTable, $this.oldHashTable
+     * @ensures this = #this
+     */
+    private void resizeIfNeeded() {
+        if (this.resizable && this.oldHashTable == null) {
+            int capacity = this.hashTable.length;
+            int newCapacity = capacity;
+
+            if (this.size > this.loadFactor * capacity) {
+                newCapacity = this.strategy.grownTableSize(capacity);
+            } else if (this.shrinkable
+                    && capacity > this.initialHashTableSize
+                    && this.size * SHRINK_DIVISOR < this.loadFactor
+                            * capacity) {
+                newCapacity = this.strategy.tableSize(
+                        Math.max(capacity / 2, this.initialHashTableSize));
+            }
+
+            if (newCapacity != capacity) {
+                this.oldHashTable = this.hashTable;
+                this.hashTable = newHashTable(newCapacity);
+                this.rehashIndex = 0;
+            }
+        }
     }
 
     /*
@@ -125,7 +679,8 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     public Map4() {
 
-        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this(DEFAULT_HASH_TABLE_SIZE, DEFAULT_LOAD_FACTOR, false, false,
+                HashStrategies.IDENTITY);
 
     }
 
@@ -138,12 +693,151 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      * @ensures this = {}
      */
     public Map4(int hashTableSize) {
+
+        this(hashTableSize, DEFAULT_LOAD_FACTOR, false, false,
+                HashStrategies.IDENTITY);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of (at least) size
+     * {@code hashTableSize} whose buckets are picked by {@code strategy}.
+     *
+     * @param hashTableSize
+     *            size of hash table, rounded up to a size {@code strategy}
+     *            supports
+     * @param strategy
+     *            maps hash codes to bucket indexes
+     * @requires hashTableSize > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, HashStrategy strategy) {
+
+        this(hashTableSize, DEFAULT_LOAD_FACTOR, false, false, strategy);
+
+    }
+
+    /**
+     * Constructor resulting in a resizable hash table, initially of size
+     * {@code hashTableSize}, that grows when the number of entries exceeds
+     * {@code loadFactor} times the number of buckets and, if
+     * {@code shrinkable}, shrinks back (never below {@code hashTableSize}) when
+     * it becomes sparse.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            ratio of entries to buckets above which the table grows
+     * @param shrinkable
+     *            whether the table shrinks when it becomes sparse
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor, boolean shrinkable) {
+
+        this(hashTableSize, loadFactor, true, shrinkable,
+                HashStrategies.IDENTITY);
+
+    }
+
+    /**
+     * Constructor resulting in a resizable hash table, as above, whose buckets
+     * are picked by {@code strategy}.
+     *
+     * @param hashTableSize
+     *            initial size of hash table, rounded up to a size
+     *            {@code strategy} supports
+     * @param loadFactor
+     *            ratio of entries to buckets above which the table grows
+     * @param shrinkable
+     *            whether the table shrinks when it becomes sparse
+     * @param strategy
+     *            maps hash codes to bucket indexes
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double loadFactor, boolean shrinkable,
+            HashStrategy strategy) {
+
+        this(hashTableSize, loadFactor, true, shrinkable, strategy);
+
+    }
+
+    /**
+     * Constructor shared by the public constructors.
+     *
+     * @param hashTableSize
+     *            initial size of hash table
+     * @param loadFactor
+     *            ratio of entries to buckets above which the table grows
+     * @param resizable
+     *            whether the table grows when the load factor is exceeded
+     * @param shrinkable
+     *            whether the table shrinks when it becomes sparse
+     * @param strategy
+     *            maps hash codes to bucket indexes
+     * @requires hashTableSize > 0 and loadFactor > 0
+     * @ensures this = {}
+     */
+    private Map4(int hashTableSize, double loadFactor, boolean resizable,
+            boolean shrinkable, HashStrategy strategy) {
         assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+        assert loadFactor > 0 : "Violation of: loadFactor > 0";
+        assert strategy != null : "Violation of: strategy is not null";
 
+        this.strategy = strategy;
+        this.initialHashTableSize = hashTableSize;
+        this.loadFactor = loadFactor;
+        this.resizable = resizable;
+        this.shrinkable = shrinkable;
         this.createNewRep(hashTableSize);
 
     }
 
+    /**
+     * Returns a new, empty, resizable {@code Map4} whose hash table is large
+     * enough to hold {@code expectedSize} entries without growing.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param expectedSize
+     *            the number of entries the map is expected to hold
+     * @return the new map
+     * @requires expectedSize >= 0
+     * @ensures <pre>
+     * withExpectedSize = {}  and
+     * expectedSize <= withExpectedSize.loadFactor() *
+     *                 withExpectedSize.capacity()
+     * </pre>
+     */
+    public static <K, V> Map4<K, V> withExpectedSize(int expectedSize) {
+        assert expectedSize >= 0 : "Violation of: expectedSize >= 0";
+
+        return new Map4<K, V>(minimumTableSize(expectedSize,
+                DEFAULT_LOAD_FACTOR), DEFAULT_LOAD_FACTOR, false);
+    }
+
+    /**
+     * Returns the smallest hash table size that holds {@code entries} entries
+     * without exceeding {@code loadFactor}.
+     *
+     * @param entries
+     *            the number of entries
+     * @param loadFactor
+     *            the load factor
+     * @return the minimum hash table size
+     * @requires entries >= 0 and loadFactor > 0
+     * @ensures <pre>
+     * minimumTableSize = max(1, [smallest integer not less than
+     *                            entries / loadFactor])
+     * </pre>
+     */
+    private static int minimumTableSize(int entries, double loadFactor) {
+        return Math.max(1, (int) Math.ceil(entries / loadFactor));
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -161,7 +855,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     @Override
     public final void clear() {
-        this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this.createNewRep(this.initialHashTableSize);
     }
 
     @Override
@@ -177,8 +871,11 @@ public class Map4<K, V> extends MapSecondary<K, V> {
          */
         Map4<K, V> localSource = (Map4<K, V>) source;
         this.hashTable = localSource.hashTable;
+        this.oldHashTable = localSource.oldHashTable;
+        this.rehashIndex = localSource.rehashIndex;
         this.size = localSource.size;
-        localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
+        this.strategy = localSource.strategy;
+        localSource.createNewRep(localSource.initialHashTableSize);
     }
 
     /*
@@ -189,34 +886,43 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final void add(K key, V value) {
         assert key != null : "Violation of: key is not null";
         assert value != null : "Violation of: value is not null";
-        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+        assert !this.bucket(key).hasKey(key) : ""
+                + "Violation of: key is not in DOMAIN(this)";
 
-        // get the index of array.
-        int index = mod(key.hashCode(), this.hashTable.length);
+        this.rehashStep();
 
-        Map<K, V> map = this.hashTable[index];
-        map.add(key, value);
+        int hash = key.hashCode();
+        Map<K, V>[] table = this.table(hash);
+        addToBucket(table, this.strategy.index(hash, table.length), key,
+                value);
 
         // add element into hashTable
         // size+1
         this.size++;
+
+        this.resizeIfNeeded();
     }
 
     @Override
     public final Pair<K, V> remove(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+        assert this.bucket(key).hasKey(key) : ""
+                + "Violation of: key is in DOMAIN(this)";
 
-        // get the index of array.
-        int index = mod(key.hashCode(), this.hashTable.length);
+        this.rehashStep();
 
-        Map<K, V> map = this.hashTable[index];
-        Pair<K, V> pair = map.remove(key);
+        int hash = key.hashCode();
+        Map<K, V>[] table = this.table(hash);
+        int index = this.strategy.index(hash, table.length);
+        Pair<K, V> pair = table[index].remove(key);
+        untreeifyIfNeeded(table, index);
 
         // remove element into hashTable
         // size-1
         this.size--;
 
+        this.resizeIfNeeded();
+
         return pair;
     }
 
@@ -224,36 +930,44 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final Pair<K, V> removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
+        this.rehashStep();
+
+        Map<K, V>[] table = this.hashTable;
         int index = -1;
         int mapSize = 0;
         Map<K, V> map;
 
-        // find the first element in hashTable[]
+        // find the first element in hashTable[], then in oldHashTable[]
         do {
             index++;
-            map = this.hashTable[index];
-            mapSize = map.size();
+            if (index == table.length) {
+                table = this.oldHashTable;
+                index = this.rehashIndex;
+            }
+            map = table[index];
+            if (map != null) {
+                mapSize = map.size();
+            }
         } while (mapSize == 0);
 
         Pair<K, V> pair = map.removeAny();
+        untreeifyIfNeeded(table, index);
 
         // remove element into hashTable
         // size-1
         this.size--;
 
+        this.resizeIfNeeded();
+
         return pair;
     }
 
     @Override
     public final V value(K key) {
         assert key != null : "Violation of: key is not null";
-        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
 
-        // get the index of array.
-        int index = mod(key.hashCode(), this.hashTable.length);
-
-        Map<K, V> map = this.hashTable[index];
-        V value = map.value(key);
+        V value = this.lookup(key);
+        assert value != null : "Violation of: key is in DOMAIN(this)";
 
         return value;
     }
@@ -262,16 +976,7 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final boolean hasKey(K key) {
         assert key != null : "Violation of: key is not null";
 
-        boolean exist = false;
-
-        // get the index of array.
-        int index = mod(key.hashCode(), this.hashTable.length);
-
-        Map<K, V> map = this.hashTable[index];
-        if (map.hasKey(key)) {
-            exist = true;
-        }
-        return exist;
+        return this.lookup(key) != null;
     }
 
     @Override
@@ -285,7 +990,297 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     }
 
     /**
-     * Implementation of {@code Iterator} interface for {@code Map4}.
+     * Calls {@code action.accept(key, value)} once for every entry
+     * {@code (key, value)} of {@code this}, in no particular order, without
+     * creating any iterator or {@code Pair} objects.
+     *
+     * @param action
+     *            the action to perform on each entry
+     * @requires [action does not change this]
+     * @ensures [action.accept has been called once on each entry of this]
+     */
+    public final void forEach(BiConsumer<? super K, ? super V> action) {
+        assert action != null : "Violation of: action is not null";
+
+        forEach(this.hashTable, 0, action);
+        if (this.oldHashTable != null) {
+            forEach(this.oldHashTable, this.rehashIndex, action);
+        }
+    }
+
+    /**
+     * Calls {@code action.accept(key, value)} once for every entry
+     * {@code (key, value)} in the buckets of {@code table} from {@code from}
+     * on.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param table
+     *            the hash table
+     * @param from
+     *            the first bucket to visit
+     * @param action
+     *            the action to perform on each entry
+     * @requires 0 <= from <= |table|
+     * @ensures [action.accept has been called once on each entry of
+     *          ENTRIES(table, from)]
+     */
+    private static <K, V> void forEach(Map<K, V>[] table, int from,
+            BiConsumer<? super K, ? super V> action) {
+        for (int i = from; i < table.length; i++) {
+            Map<K, V> bucket = table[i];
+            if (bucket instanceof ListBucket<?, ?>) {
+                ListBucket.Node<K, V> n = ((ListBucket<K, V>) bucket).first;
+                while (n != null) {
+                    action.accept(n.key, n.value);
+                    n = n.next;
+                }
+            } else if (bucket != null) {
+                ((TreeBucket<K, V>) bucket).forEach(action);
+            }
+        }
+    }
+
+    /*
+     * Bulk methods -----------------------------------------------------------
+     */
+
+    /**
+     * Adds every entry of {@code entries} to {@code this}. A resizable hash
+     * table is resized at most once, to fit all the new entries, rather than
+     * growing step by step, and each key is hashed just once; the keys are not
+     * checked against each other, so the caller must guarantee they are
+     * distinct.
+     *
+     * @param entries
+     *            the entries to add
+     * @updates this
+     * @requires <pre>
+     * [the keys of entries are distinct, not null, and not in DOMAIN(this)]
+     * and  [the values of entries are not null]
+     * </pre>
+     * @ensures this = #this union [the entries of entries]
+     */
+    public final void addAll(Iterable<Pair<K, V>> entries) {
+        assert entries != null : "Violation of: entries is not null";
+
+        int count = 0;
+        Iterator<Pair<K, V>> it = entries.iterator();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+
+        int newSize = this.size + count;
+        if (this.resizable
+                && newSize > this.loadFactor * this.hashTable.length) {
+            // grow to the size that repeated incremental growth would reach.
+            int newCapacity = this.hashTable.length;
+            while (newSize > this.loadFactor * newCapacity) {
+                newCapacity = this.strategy.grownTableSize(newCapacity);
+            }
+            this.rebuild(newCapacity);
+        }
+
+        for (Pair<K, V> pair : entries) {
+            K key = pair.key();
+            int hash = key.hashCode();
+            Map<K, V>[] table = this.table(hash);
+            int index = this.strategy.index(hash, table.length);
+            assert table[index] == null || !table[index].hasKey(key) : ""
+                    + "Violation of: [the keys of entries are not in"
+                    + " DOMAIN(this)]";
+            addToBucket(table, index, key, pair.value());
+            this.size++;
+        }
+    }
+
+    /**
+     * Returns a read-only copy of {@code this}, packed into flat arrays, that
+     * any number of threads may query at once without locking; {@code this}
+     * is left unchanged.
+     *
+     * @return the frozen copy of {@code this}
+     * @ensures freeze = this
+     */
+    public final Map4Frozen<K, V> freeze() {
+        return new Map4Frozen<K, V>(this);
+    }
+
+    /*
+     * Hash table inspection methods ------------------------------------------
+     */
+
+    /**
+     * Reports the number of buckets in the hash table into which new entries
+     * are added.
+     *
+     * @return the current capacity of the hash table
+     * @ensures capacity = |$this.hashTable|
+     */
+    public final int capacity() {
+        return this.hashTable.length;
+    }
+
+    /**
+     * Reports the strategy that maps hash codes to bucket indexes.
+     *
+     * @return the hash strategy of {@code this}
+     */
+    public final HashStrategy hashStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * Reports the ratio of entries to buckets above which {@code this} grows
+     * its hash table, if it is resizable.
+     *
+     * @return the load factor of {@code this}
+     */
+    public final double loadFactor() {
+        return this.loadFactor;
+    }
+
+    /**
+     * Reports how many buckets have actually been created, i.e., how many
+     * {@code Map} objects the hash tables of {@code this} currently hold.
+     *
+     * @return the number of created buckets
+     */
+    public final int createdBucketCount() {
+        int count = 0;
+        for (Map<K, V> bucket : this.hashTable) {
+            if (bucket != null) {
+                count++;
+            }
+        }
+        if (this.oldHashTable != null) {
+            for (Map<K, V> bucket : this.oldHashTable) {
+                if (bucket != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reports how many key comparisons a lookup of {@code key} makes: every
+     * entry of a list bucket, or the nodes on the search path of a tree
+     * bucket.
+     *
+     * @param key
+     *            the key to be looked up
+     * @return the number of key comparisons made looking up {@code key}
+     * @requires key is not null
+     */
+    public final int probeLength(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        Map<K, V> bucket = this.bucket(key);
+        int length;
+        if (bucket instanceof TreeBucket<?, ?>) {
+            length = ((TreeBucket<K, V>) bucket).searchLength(key);
+        } else {
+            length = bucket.size();
+        }
+        return length;
+    }
+
+    /**
+     * Returns a snapshot of the bucket lengths of {@code this} and of the
+     * lookups counted so far. Taking it visits every bucket. Lookups are
+     * counted only while {@code setLookupCounting} has turned counting on, so
+     * that {@code hasKey} and {@code value} write nothing otherwise.
+     *
+     * @return the statistics of {@code this}
+     */
+    public final Map4Statistics statistics() {
+        int[] lengthCounts = new int[1];
+        lengthCounts = countLengths(this.hashTable, 0, lengthCounts);
+        if (this.oldHashTable != null) {
+            lengthCounts = countLengths(this.oldHashTable, this.rehashIndex,
+                    lengthCounts);
+        }
+        return new Map4Statistics(lengthCounts, this.lookupCount,
+                this.probeCount);
+    }
+
+    /**
+     * Adds the lengths of the buckets of {@code table}, from {@code from} on,
+     * to the histogram {@code lengthCounts}, growing it as needed.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param table
+     *            the hash table
+     * @param from
+     *            the first bucket to count
+     * @param lengthCounts
+     *            number of buckets of each length counted so far
+     * @return the updated histogram, which may be {@code lengthCounts}
+     * @requires 0 <= from <= |table| and |lengthCounts| > 0
+     */
+    private static <K, V> int[] countLengths(Map<K, V>[] table, int from,
+            int[] lengthCounts) {
+        int[] counts = lengthCounts;
+        for (int i = from; i < table.length; i++) {
+            int length = 0;
+            if (table[i] != null) {
+                length = table[i].size();
+            }
+            if (length >= counts.length) {
+                counts = Arrays.copyOf(counts,
+                        Math.max(length + 1, 2 * counts.length));
+            }
+            counts[length]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Turns the counting of {@code hasKey} and {@code value} lookups, and of
+     * their key comparisons, on or off; it is off for a new map. The counts
+     * kept so far are not changed.
+     *
+     * @param counting
+     *            whether to count lookups from now on
+     * @ensures [lookups are counted iff counting]
+     */
+    public final void setLookupCounting(boolean counting) {
+        this.countingLookups = counting;
+    }
+
+    /**
+     * Resets to zero the counts of lookups and key comparisons reported by
+     * {@code statistics}.
+     *
+     * @ensures [no lookup of this has been counted]
+     */
+    public final void resetLookupCounts() {
+        this.lookupCount = 0;
+        this.probeCount = 0;
+    }
+
+    /**
+     * Reports whether entries are still being migrated from an old hash table
+     * into the current one.
+     *
+     * @return true iff a rehash is in progress
+     * @ensures isRehashing = [$this.oldHashTable is not null]
+     */
+    public final boolean isRehashing() {
+        return this.oldHashTable != null;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map4}, walking
+     * the chains of list buckets directly; only tree buckets are asked for an
+     * iterator.
      */
     private final class Map4Iterator implements Iterator<Pair<K, V>> {
 
@@ -295,22 +1290,52 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         private int numberSeen;
 
         /**
-         * Bucket from which current bucket iterator comes.
+         * Bucket from which the next element comes; buckets of
+         * {@code oldHashTable} are numbered after those of {@code hashTable}.
          */
         private int currentBucket;
 
         /**
-         * Bucket iterator from which next element will come.
+         * Next node of the current list bucket, or null.
          */
-        private Iterator<Pair<K, V>> bucketIterator;
+        private ListBucket.Node<K, V> node;
+
+        /**
+         * Iterator of the current tree bucket, or null.
+         */
+        private Iterator<Pair<K, V>> treeIterator;
 
         /**
          * No-argument constructor.
          */
         Map4Iterator() {
             this.numberSeen = 0;
-            this.currentBucket = 0;
-            this.bucketIterator = Map4.this.hashTable[0].iterator();
+            this.currentBucket = -1;
+            this.node = null;
+            this.treeIterator = null;
+        }
+
+        /**
+         * Moves on to the next non-empty bucket.
+         */
+        private void advance() {
+            this.treeIterator = null;
+            while (this.node == null && this.treeIterator == null) {
+                this.currentBucket++;
+                int index = this.currentBucket;
+                Map<K, V> bucket;
+                if (index < Map4.this.hashTable.length) {
+                    bucket = Map4.this.hashTable[index];
+                } else {
+                    index -= Map4.this.hashTable.length;
+                    bucket = Map4.this.oldHashTable[index];
+                }
+                if (bucket instanceof ListBucket<?, ?>) {
+                    this.node = ((ListBucket<K, V>) bucket).first;
+                } else if (bucket != null && bucket.size() > 0) {
+                    this.treeIterator = bucket.iterator();
+                }
+            }
         }
 
         @Override
@@ -330,12 +1355,18 @@ public class Map4<K, V> extends MapSecondary<K, V> {
                 throw new NoSuchElementException();
             }
             this.numberSeen++;
-            while (!this.bucketIterator.hasNext()) {
-                this.currentBucket++;
-                this.bucketIterator = Map4.this.hashTable[this.currentBucket]
-                        .iterator();
+            if (this.node == null && (this.treeIterator == null
+                    || !this.treeIterator.hasNext())) {
+                this.advance();
             }
-            return this.bucketIterator.next();
+            Pair<K, V> pair;
+            if (this.node != null) {
+                pair = this.node;
+                this.node = this.node.next;
+            } else {
+                pair = this.treeIterator.next();
+            }
+            return pair;
         }
 
         @Override
@@ -346,4 +1377,839 @@ public class Map4<K, V> extends MapSecondary<K, V> {
 
     }
 
+    /**
+     * {@code Map} represented as a singly-linked chain of nodes, newest first;
+     * used for buckets holding few entries. Its nodes are themselves the
+     * {@code Pair}s handed out by iterators.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @convention <pre>
+     * [$this.first is null or the first of a chain of $this.size nodes, linked
+     *  by next, with no duplicate keys]
+     * </pre>
+     * @correspondence this = [(key, value) pairs of the nodes of the chain]
+     */
+    private static final class ListBucket<K, V> extends MapSecondary<K, V> {
+
+        /**
+         * Node of the chain, which is also an unchanging {@code Pair}.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         */
+        private static final class Node<K, V> implements Pair<K, V> {
+
+            /**
+             * Key in node.
+             */
+            private final K key;
+
+            /**
+             * Value in node.
+             */
+            private final V value;
+
+            /**
+             * Next node in the chain, or null.
+             */
+            private Node<K, V> next;
+
+            /**
+             * Constructor.
+             *
+             * @param key
+             *            the key
+             * @param value
+             *            the value
+             * @param next
+             *            the next node, or null
+             */
+            Node(K key, V value, Node<K, V> next) {
+                this.key = key;
+                this.value = value;
+                this.next = next;
+            }
+
+            @Override
+            public K key() {
+                return this.key;
+            }
+
+            @Override
+            public V value() {
+                return this.value;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                boolean result = false;
+                if (obj instanceof Pair<?, ?>) {
+                    Pair<?, ?> pair = (Pair<?, ?>) obj;
+                    result = this.key.equals(pair.key())
+                            && this.value.equals(pair.value());
+                }
+                return result;
+            }
+
+            @Override
+            public int hashCode() {
+                return this.key.hashCode() ^ this.value.hashCode();
+            }
+
+            @Override
+            public String toString() {
+                return "(" + this.key + "," + this.value + ")";
+            }
+
+        }
+
+        /**
+         * First node of the chain, or null.
+         */
+        private Node<K, V> first;
+
+        /**
+         * Number of nodes in the chain.
+         */
+        private int size;
+
+        /**
+         * Whether the chain was found not to be treeifiable; set by
+         * {@code addToBucket} so it does not check again on every add, and
+         * cleared once the chain shrinks below {@code UNTREEIFY_THRESHOLD}.
+         */
+        private boolean treeifyRejected;
+
+        /**
+         * Clears {@code treeifyRejected} if the chain has shrunk below
+         * {@code UNTREEIFY_THRESHOLD} nodes.
+         */
+        private void forgetRejectionIfSmall() {
+            if (this.size < UNTREEIFY_THRESHOLD) {
+                this.treeifyRejected = false;
+            }
+        }
+
+        /**
+         * Returns the node holding {@code key}, or null if there is none.
+         *
+         * @param key
+         *            the key to look for
+         * @return the node holding {@code key}, or null
+         */
+        private Node<K, V> find(K key) {
+            Node<K, V> n = this.first;
+            while (n != null && !n.key.equals(key)) {
+                n = n.next;
+            }
+            return n;
+        }
+
+        @Override
+        public Map<K, V> newInstance() {
+            return new ListBucket<K, V>();
+        }
+
+        @Override
+        public void clear() {
+            this.first = null;
+            this.size = 0;
+            this.treeifyRejected = false;
+        }
+
+        @Override
+        public void transferFrom(Map<K, V> source) {
+            assert source instanceof ListBucket<?, ?> : ""
+                    + "Violation of: source is of dynamic type ListBucket<?,?>";
+            ListBucket<K, V> localSource = (ListBucket<K, V>) source;
+            this.first = localSource.first;
+            this.size = localSource.size;
+            this.treeifyRejected = localSource.treeifyRejected;
+            localSource.clear();
+        }
+
+        @Override
+        public void add(K key, V value) {
+            this.first = new Node<K, V>(key, value, this.first);
+            this.size++;
+        }
+
+        @Override
+        public Pair<K, V> remove(K key) {
+            Node<K, V> removed = this.first;
+            if (removed.key.equals(key)) {
+                this.first = removed.next;
+            } else {
+                Node<K, V> previous = removed;
+                removed = removed.next;
+                while (!removed.key.equals(key)) {
+                    previous = removed;
+                    removed = removed.next;
+                }
+                previous.next = removed.next;
+            }
+            removed.next = null;
+            this.size--;
+            this.forgetRejectionIfSmall();
+            return removed;
+        }
+
+        @Override
+        public Pair<K, V> removeAny() {
+            Node<K, V> removed = this.first;
+            this.first = removed.next;
+            removed.next = null;
+            this.size--;
+            this.forgetRejectionIfSmall();
+            return removed;
+        }
+
+        @Override
+        public V value(K key) {
+            return this.find(key).value;
+        }
+
+        @Override
+        public boolean hasKey(K key) {
+            return this.find(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public Iterator<Pair<K, V>> iterator() {
+            return new ListBucketIterator();
+        }
+
+        /**
+         * {@code Iterator} for {@code ListBucket}, following the chain.
+         */
+        private final class ListBucketIterator
+                implements Iterator<Pair<K, V>> {
+
+            /**
+             * Node to be returned next, or null.
+             */
+            private Node<K, V> node;
+
+            /**
+             * No-argument constructor.
+             */
+            ListBucketIterator() {
+                this.node = ListBucket.this.first;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.node != null;
+            }
+
+            @Override
+            public Pair<K, V> next() {
+                assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Node<K, V> n = this.node;
+                this.node = n.next;
+                return n;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "remove operation not supported");
+            }
+
+        }
+
+    }
+
+    /**
+     * {@code Map} represented as an AVL-balanced binary search tree of nodes,
+     * ordered by {@code compareTo} of keys that all have the same
+     * {@code Comparable} class and no two of which compare equal; used for
+     * buckets holding many entries. A key found by {@code compareTo} is
+     * still checked with {@code equals}.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @convention <pre>
+     * [$this.root is null or the root of a binary search tree of $this.size
+     *  nodes, ordered by compareTo of their keys, with no duplicate keys]  and
+     * [every node's height is 1 + the larger of its children's heights (0 for
+     *  a null child), and they differ by at most 1]  and
+     * [every key in the tree is of class $this.keyClass]  and
+     * [no two keys in the tree compare equal]
+     * </pre>
+     * @correspondence this = [(key, value) pairs of the nodes of the tree]
+     */
+    private static final class TreeBucket<K, V> extends MapSecondary<K, V> {
+
+        /**
+         * Node of the tree.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         */
+        private static final class Node<K, V> {
+
+            /**
+             * Key in node.
+             */
+            private K key;
+
+            /**
+             * Value in node.
+             */
+            private V value;
+
+            /**
+             * Left subtree, or null.
+             */
+            private Node<K, V> left;
+
+            /**
+             * Right subtree, or null.
+             */
+            private Node<K, V> right;
+
+            /**
+             * Height of the subtree rooted at this node.
+             */
+            private int height;
+
+        }
+
+        /**
+         * Root of the tree, or null.
+         */
+        private Node<K, V> root;
+
+        /**
+         * Number of nodes in the tree.
+         */
+        private int size;
+
+        /**
+         * Class of every key in the tree, or null if the tree is empty.
+         */
+        private Class<?> keyClass;
+
+        /**
+         * Compares two keys of the same {@code Comparable} class.
+         *
+         * @param a
+         *            the first key
+         * @param b
+         *            the second key
+         * @return negative, zero, or positive as a is less than, equal to, or
+         *         greater than b
+         */
+        @SuppressWarnings("unchecked")
+        private static int compare(Object a, Object b) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+
+        /**
+         * Returns the height of {@code n}.
+         *
+         * @param n
+         *            the subtree, or null
+         * @return the height of {@code n}
+         */
+        private static int height(Node<?, ?> n) {
+            int height = 0;
+            if (n != null) {
+                height = n.height;
+            }
+            return height;
+        }
+
+        /**
+         * Recomputes the height of {@code n} from its children.
+         *
+         * @param n
+         *            the node
+         */
+        private static void updateHeight(Node<?, ?> n) {
+            n.height = 1 + Math.max(height(n.left), height(n.right));
+        }
+
+        /**
+         * Rotates {@code n} right and returns the new subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree root, whose left child is not null
+         * @return the new subtree root
+         */
+        private static <K, V> Node<K, V> rotateRight(Node<K, V> n) {
+            Node<K, V> l = n.left;
+            n.left = l.right;
+            l.right = n;
+            updateHeight(n);
+            updateHeight(l);
+            return l;
+        }
+
+        /**
+         * Rotates {@code n} left and returns the new subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree root, whose right child is not null
+         * @return the new subtree root
+         */
+        private static <K, V> Node<K, V> rotateLeft(Node<K, V> n) {
+            Node<K, V> r = n.right;
+            n.right = r.left;
+            r.left = n;
+            updateHeight(n);
+            updateHeight(r);
+            return r;
+        }
+
+        /**
+         * Restores the AVL balance of {@code n}, whose children are balanced
+         * and differ in height by at most 2, and returns the new subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree root
+         * @return the new, balanced subtree root
+         */
+        private static <K, V> Node<K, V> rebalance(Node<K, V> n) {
+            updateHeight(n);
+            int balance = height(n.left) - height(n.right);
+            Node<K, V> result = n;
+            if (balance > 1) {
+                if (height(n.left.left) < height(n.left.right)) {
+                    n.left = rotateLeft(n.left);
+                }
+                result = rotateRight(n);
+            } else if (balance < -1) {
+                if (height(n.right.right) < height(n.right.left)) {
+                    n.right = rotateRight(n.right);
+                }
+                result = rotateLeft(n);
+            }
+            return result;
+        }
+
+        /**
+         * Inserts {@code node} into the subtree {@code n} and returns the new
+         * subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree, or null
+         * @param node
+         *            the new node, whose key is not in {@code n}
+         * @return the new subtree root
+         */
+        private static <K, V> Node<K, V> insert(Node<K, V> n, Node<K, V> node) {
+            Node<K, V> result = node;
+            if (n != null) {
+                if (compare(node.key, n.key) < 0) {
+                    n.left = insert(n.left, node);
+                } else {
+                    n.right = insert(n.right, node);
+                }
+                result = rebalance(n);
+            }
+            return result;
+        }
+
+        /**
+         * Removes the smallest node of the subtree {@code n}, stores it in
+         * {@code removed[0]}, and returns the new subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree, not null
+         * @param removed
+         *            one-element array receiving the removed node
+         * @return the new subtree root
+         */
+        private static <K, V> Node<K, V> removeSmallest(Node<K, V> n,
+                Node<K, V>[] removed) {
+            Node<K, V> result;
+            if (n.left == null) {
+                removed[0] = n;
+                result = n.right;
+            } else {
+                n.left = removeSmallest(n.left, removed);
+                result = rebalance(n);
+            }
+            return result;
+        }
+
+        /**
+         * Removes the node with key {@code key} from the subtree {@code n},
+         * stores it in {@code removed[0]}, and returns the new subtree root.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree, containing {@code key}
+         * @param key
+         *            the key to remove
+         * @param removed
+         *            one-element array receiving the removed node
+         * @return the new subtree root
+         */
+        private static <K, V> Node<K, V> remove(Node<K, V> n, K key,
+                Node<K, V>[] removed) {
+            Node<K, V> result;
+            int cmp = compare(key, n.key);
+            if (cmp < 0) {
+                n.left = remove(n.left, key, removed);
+                result = rebalance(n);
+            } else if (cmp > 0) {
+                n.right = remove(n.right, key, removed);
+                result = rebalance(n);
+            } else {
+                removed[0] = n;
+                if (n.left == null) {
+                    result = n.right;
+                } else if (n.right == null) {
+                    result = n.left;
+                } else {
+                    // replace n by the smallest node of its right subtree.
+                    Node<K, V>[] successor = newNodeHolder();
+                    Node<K, V> right = removeSmallest(n.right, successor);
+                    result = successor[0];
+                    result.left = n.left;
+                    result.right = right;
+                    result = rebalance(result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns a one-element array to receive a removed node.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @return a new one-element array
+         */
+        @SuppressWarnings("unchecked")
+        private static <K, V> Node<K, V>[] newNodeHolder() {
+            return new Node[1];
+        }
+
+        /**
+         * Returns the node whose key {@code compareTo} reports equal to
+         * {@code key}, or null if there is none.
+         *
+         * @param key
+         *            the key to find
+         * @return the node with a key comparing equal to {@code key}, or null
+         */
+        private Node<K, V> findComparable(K key) {
+            Node<K, V> n = null;
+            if (this.accepts(key)) {
+                n = this.root;
+                int cmp = 1;
+                while (n != null && cmp != 0) {
+                    cmp = compare(key, n.key);
+                    if (cmp < 0) {
+                        n = n.left;
+                    } else if (cmp > 0) {
+                        n = n.right;
+                    }
+                }
+            }
+            return n;
+        }
+
+        /**
+         * Returns the node with key {@code key}, or null if there is none.
+         *
+         * @param key
+         *            the key to find
+         * @return the node with key {@code key}, or null
+         */
+        private Node<K, V> find(K key) {
+            Node<K, V> n = this.findComparable(key);
+            if (n != null && !n.key.equals(key)) {
+                /*
+                 * No two keys in the tree compare equal, so a key comparing
+                 * equal to n.key without being equal to it is not in the tree
+                 */
+                n = null;
+            }
+            return n;
+        }
+
+        /**
+         * Reports whether {@code key} can be compared with the keys in
+         * {@code this}.
+         *
+         * @param key
+         *            the key
+         * @return true iff {@code this} is empty or {@code key} has the class
+         *         of its keys
+         */
+        boolean accepts(K key) {
+            return this.keyClass == null || key.getClass() == this.keyClass;
+        }
+
+        /**
+         * Reports whether {@code key}, which is not in {@code DOMAIN(this)},
+         * may be added to {@code this}: it can be compared with the keys in
+         * {@code this}, and none of them compares equal to it.
+         *
+         * @param key
+         *            the key
+         * @return true iff {@code key} may be added to {@code this}
+         */
+        boolean admits(K key) {
+            return this.accepts(key) && this.findComparable(key) == null;
+        }
+
+        /**
+         * Reports how many nodes a search for {@code key} visits.
+         *
+         * @param key
+         *            the key to search for
+         * @return the number of nodes visited searching for {@code key}
+         */
+        int searchLength(K key) {
+            int length = 0;
+            if (this.accepts(key)) {
+                Node<K, V> n = this.root;
+                int cmp = 1;
+                while (n != null && cmp != 0) {
+                    length++;
+                    cmp = compare(key, n.key);
+                    if (cmp < 0) {
+                        n = n.left;
+                    } else if (cmp > 0) {
+                        n = n.right;
+                    }
+                }
+            }
+            return length;
+        }
+
+        /**
+         * No-argument constructor.
+         */
+        TreeBucket() {
+            this.clear();
+        }
+
+        @Override
+        public Map<K, V> newInstance() {
+            return new TreeBucket<K, V>();
+        }
+
+        @Override
+        public void clear() {
+            this.root = null;
+            this.size = 0;
+            this.keyClass = null;
+        }
+
+        @Override
+        public void transferFrom(Map<K, V> source) {
+            assert source instanceof TreeBucket<?, ?> : ""
+                    + "Violation of: source is of dynamic type TreeBucket<?,?>";
+            TreeBucket<K, V> localSource = (TreeBucket<K, V>) source;
+            this.root = localSource.root;
+            this.size = localSource.size;
+            this.keyClass = localSource.keyClass;
+            localSource.clear();
+        }
+
+        @Override
+        public void add(K key, V value) {
+            assert this.admits(key) : "Violation of: key is admitted";
+
+            Node<K, V> node = new Node<K, V>();
+            node.key = key;
+            node.value = value;
+            node.height = 1;
+            this.root = insert(this.root, node);
+            this.keyClass = key.getClass();
+            this.size++;
+        }
+
+        @Override
+        public Pair<K, V> remove(K key) {
+            Node<K, V>[] removed = newNodeHolder();
+            this.root = remove(this.root, key, removed);
+            this.size--;
+            if (this.size == 0) {
+                this.keyClass = null;
+            }
+            return new SimplePair<K, V>(removed[0].key, removed[0].value);
+        }
+
+        @Override
+        public Pair<K, V> removeAny() {
+            Node<K, V>[] removed = newNodeHolder();
+            this.root = removeSmallest(this.root, removed);
+            this.size--;
+            if (this.size == 0) {
+                this.keyClass = null;
+            }
+            return new SimplePair<K, V>(removed[0].key, removed[0].value);
+        }
+
+        @Override
+        public V value(K key) {
+            return this.find(key).value;
+        }
+
+        @Override
+        public boolean hasKey(K key) {
+            return this.find(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public Iterator<Pair<K, V>> iterator() {
+            return new TreeBucketIterator();
+        }
+
+        /**
+         * Calls {@code action.accept(key, value)} on every entry of
+         * {@code this}, in order of keys.
+         *
+         * @param action
+         *            the action to perform on each entry
+         */
+        private void forEach(BiConsumer<? super K, ? super V> action) {
+            forEachInOrder(this.root, action);
+        }
+
+        /**
+         * Calls {@code action.accept(key, value)} on every entry of the
+         * subtree {@code n}, in order of keys.
+         *
+         * @param <K>
+         *            type of keys
+         * @param <V>
+         *            type of values
+         * @param n
+         *            the subtree, or null
+         * @param action
+         *            the action to perform on each entry
+         */
+        private static <K, V> void forEachInOrder(Node<K, V> n,
+                BiConsumer<? super K, ? super V> action) {
+            if (n != null) {
+                forEachInOrder(n.left, action);
+                action.accept(n.key, n.value);
+                forEachInOrder(n.right, action);
+            }
+        }
+
+        /**
+         * In-order {@code Iterator} for {@code TreeBucket}, keeping the path to
+         * the next node in an array sized by the height of the tree.
+         */
+        private final class TreeBucketIterator implements Iterator<Pair<K, V>> {
+
+            /**
+             * Nodes whose key and right subtree are still to be visited.
+             */
+            private final Node<K, V>[] path;
+
+            /**
+             * Number of nodes in {@code path}.
+             */
+            private int depth;
+
+            /**
+             * No-argument constructor.
+             */
+            @SuppressWarnings("unchecked")
+            TreeBucketIterator() {
+                this.path = new Node[height(TreeBucket.this.root)];
+                this.depth = 0;
+                this.pushLeftPath(TreeBucket.this.root);
+            }
+
+            /**
+             * Pushes {@code n} and its chain of left descendants.
+             *
+             * @param n
+             *            the subtree, or null
+             */
+            private void pushLeftPath(Node<K, V> n) {
+                Node<K, V> p = n;
+                while (p != null) {
+                    this.path[this.depth] = p;
+                    this.depth++;
+                    p = p.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.depth > 0;
+            }
+
+            @Override
+            public Pair<K, V> next() {
+                assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                this.depth--;
+                Node<K, V> n = this.path[this.depth];
+                this.pushLeftPath(n.right);
+                return new SimplePair<K, V>(n.key, n.value);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(
+                        "remove operation not supported");
+            }
+
+        }
+
+    }
+
 }
@@ -0,0 +1,322 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * Read-only {@code Map} packed into flat arrays, as produced by
+ * {@code Map4.freeze}.
+ *
+ * <p>
+ * The entries are grouped by bucket into parallel arrays of keys, values, and
+ * key hash codes, with {@code $this.start} marking where each bucket's group
+ * begins, so a lookup reads one short, contiguous run of array slots and
+ * compares cached hash codes before calling {@code equals}. Buckets are picked
+ * by {@code HashStrategies.FIBONACCI} on a power-of-two number of buckets.
+ *
+ * <p>
+ * All fields are final and never change after construction, so any number of
+ * threads may query a {@code Map4Frozen} at once without locking. Every method
+ * that would change {@code this} ({@code add}, {@code remove},
+ * {@code removeAny}, {@code clear}, {@code transferFrom},
+ * {@code replaceValue}, {@code combineWith}) throws
+ * {@code UnsupportedOperationException} without changing anything.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * |$this.keys| = |$this.values| = |$this.hashes|  and
+ * |$this.start| = STRATEGY.tableSize(|$this.start| - 1) + 1  and
+ * $this.start[0] = 0  and  $this.start[|$this.start| - 1] = |$this.keys|  and
+ * [$this.start is non-decreasing]  and
+ * for all b, i: integer
+ *     where (0 <= b  and  b < |$this.start| - 1  and
+ *            $this.start[b] <= i  and  i < $this.start[b + 1])
+ *   ($this.hashes[i] = [computed result of $this.keys[i].hashCode()]  and
+ *    STRATEGY.index($this.hashes[i], |$this.start| - 1) = b)  and
+ * [the entries of $this.keys are distinct and not null, and the entries of
+ *  $this.values are not null]
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (K, V)
+ *         where (there exists i: integer
+ *                  (0 <= i  and  i < |$this.keys|  and
+ *                   k = $this.keys[i]  and  v = $this.values[i]))}
+ * </pre>
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public class Map4Frozen<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Strategy picking the bucket of a hash code.
+     */
+    private static final HashStrategy STRATEGY = HashStrategies.FIBONACCI;
+
+    /**
+     * Where each bucket's entries begin in the entry arrays; the extra last
+     * slot holds the number of entries.
+     */
+    private final int[] start;
+
+    /**
+     * Hash codes of the keys, grouped by bucket.
+     */
+    private final int[] hashes;
+
+    /**
+     * Keys, grouped by bucket.
+     */
+    private final Object[] keys;
+
+    /**
+     * Values, parallel to {@code keys}.
+     */
+    private final Object[] values;
+
+    /**
+     * Returns the position of {@code key} in the entry arrays, or -1 if
+     * {@code key} is not in {@code DOMAIN(this)}.
+     *
+     * @param key
+     *            the key to be located
+     * @return the position of {@code key}, or -1
+     * @ensures <pre>
+     * if key is in DOMAIN(this) then $this.keys[indexOf] = key
+     *  else indexOf = -1
+     * </pre>
+     */
+    private int indexOf(K key) {
+        int hash = key.hashCode();
+        int bucket = STRATEGY.index(hash, this.start.length - 1);
+        int end = this.start[bucket + 1];
+        int i = this.start[bucket];
+        while (i < end
+                && (this.hashes[i] != hash || !key.equals(this.keys[i]))) {
+            i++;
+        }
+        if (i == end) {
+            i = -1;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the exception thrown by every method that would change
+     * {@code this}.
+     *
+     * @param operation
+     *            the name of the method
+     * @return the exception to throw
+     */
+    private static UnsupportedOperationException readOnly(String operation) {
+        return new UnsupportedOperationException(
+                operation + " operation not supported by a frozen map");
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map4Frozen() {
+
+        this(new Map4<K, V>());
+
+    }
+
+    /**
+     * Constructor resulting in a frozen copy of {@code source}, which is left
+     * unchanged.
+     *
+     * @param source
+     *            the map to copy
+     * @requires source is not null
+     * @ensures this = source
+     */
+    public Map4Frozen(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+
+        int n = source.size();
+        int buckets = STRATEGY.tableSize(Math.max(n, 1));
+        this.start = new int[buckets + 1];
+        this.hashes = new int[n];
+        this.keys = new Object[n];
+        this.values = new Object[n];
+
+        /*
+         * Count the entries of each bucket, turn the counts into starting
+         * positions, then drop every entry into the next free slot of its
+         * bucket.
+         */
+        int[] bucketOf = new int[n];
+        int[] hashOf = new int[n];
+        int i = 0;
+        for (Pair<K, V> pair : source) {
+            hashOf[i] = pair.key().hashCode();
+            bucketOf[i] = STRATEGY.index(hashOf[i], buckets);
+            this.start[bucketOf[i] + 1]++;
+            i++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            this.start[b + 1] += this.start[b];
+        }
+        int[] next = new int[buckets];
+        i = 0;
+        for (Pair<K, V> pair : source) {
+            int b = bucketOf[i];
+            int slot = this.start[b] + next[b];
+            next[b]++;
+            this.hashes[slot] = hashOf[i];
+            this.keys[slot] = pair.key();
+            this.values[slot] = pair.value();
+            i++;
+        }
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        throw readOnly("clear");
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        throw readOnly("transferFrom");
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        throw readOnly("add");
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        throw readOnly("remove");
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        throw readOnly("removeAny");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        int i = this.indexOf(key);
+        assert i >= 0 : "Violation of: key is in DOMAIN(this)";
+
+        return (V) this.values[i];
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map4FrozenIterator();
+    }
+
+    /*
+     * Secondary methods that would change this -------------------------------
+     */
+
+    @Override
+    public final V replaceValue(K key, V value) {
+        throw readOnly("replaceValue");
+    }
+
+    @Override
+    public final void combineWith(Map<K, V> m) {
+        throw readOnly("combineWith");
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map4Frozen}.
+     */
+    private final class Map4FrozenIterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Position of the next entry.
+         */
+        private int next;
+
+        /**
+         * No-argument constructor.
+         */
+        Map4FrozenIterator() {
+            this.next = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < Map4Frozen.this.keys.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int i = this.next;
+            this.next++;
+            return new SimplePair<K, V>((K) Map4Frozen.this.keys[i],
+                    (V) Map4Frozen.this.values[i]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,546 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * Read-only {@code Map<String, Integer>} that works directly on the bytes of a
+ * binary image file, memory-mapped rather than read in, so that opening even a
+ * large map costs one {@code mmap} and a check of its header and bucket
+ * starting positions.
+ *
+ * <p>
+ * {@code write} saves any {@code Map<String, Integer>} as an image. The image
+ * uses the bucket layout of {@code Map4Frozen}: entries grouped by bucket,
+ * buckets picked by {@code HashStrategies.FIBONACCI} from
+ * {@code String.hashCode} (which the Java specification fixes, so an image
+ * stays valid across runs and machines), and an array of bucket starting
+ * positions. All numbers are big-endian {@code int}s:
+ *
+ * <pre>
+ * header:   MAGIC, VERSION, bucket count b, entry count n, total length
+ * starts:   b + 1 entry positions; bucket i holds entries starts[i] up to
+ *           but not including starts[i + 1]
+ * entries:  n records of (key hash code, key offset, value)
+ * keys:     at each key offset, the UTF-8 byte length of the key followed by
+ *           its UTF-8 bytes
+ * </pre>
+ *
+ * <p>
+ * {@code hasKey} and {@code value} read only the starts slot of one bucket,
+ * its entry records, and the bytes of the keys whose hash codes match. Every
+ * method that would change {@code this} throws
+ * {@code UnsupportedOperationException}. Images are limited to 2 GB, the
+ * largest region a single mapping can cover.
+ *
+ * @convention <pre>
+ * [$this.image holds a well-formed image]  and
+ * $this.bucketCount, $this.entryCount = [the bucket and entry counts in
+ *  its header]  and
+ * $this.entriesStart = [the byte position of its first entry record]
+ * </pre>
+ * @correspondence <pre>
+ * this = [(key, value) pairs of the entry records of $this.image]
+ * </pre>
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public class Map4Image extends MapSecondary<String, Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * First word of every image: "MAP4" in ASCII.
+     */
+    private static final int MAGIC = 0x4D415034;
+
+    /**
+     * Version of the image layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Number of {@code int}s in the header.
+     */
+    private static final int HEADER_INTS = 5;
+
+    /**
+     * Number of {@code int}s in an entry record.
+     */
+    private static final int ENTRY_INTS = 3;
+
+    /**
+     * Bytes per {@code int}.
+     */
+    private static final int INT_BYTES = 4;
+
+    /**
+     * Strategy picking the bucket of a hash code.
+     */
+    private static final HashStrategy STRATEGY = HashStrategies.FIBONACCI;
+
+    /**
+     * The image.
+     */
+    private final ByteBuffer image;
+
+    /**
+     * Number of buckets, from the header.
+     */
+    private final int bucketCount;
+
+    /**
+     * Number of entries, from the header.
+     */
+    private final int entryCount;
+
+    /**
+     * Byte position of the first entry record.
+     */
+    private final int entriesStart;
+
+    /**
+     * Returns the byte position of the bucket starts slot {@code i}, as a
+     * {@code long} so that it cannot overflow for a bad bucket count.
+     *
+     * @param i
+     *            the slot
+     * @return the byte position of slot {@code i}
+     */
+    private static long startPosition(long i) {
+        return (HEADER_INTS + i) * INT_BYTES;
+    }
+
+    /**
+     * Reports whether the bucket starting positions in {@code image} never
+     * decrease and lie between 0 and {@code n}.
+     *
+     * @param image
+     *            the image
+     * @param buckets
+     *            the bucket count from its header
+     * @param n
+     *            the entry count from its header
+     * @return true iff the starts of {@code image} are in order and in range
+     * @requires [the starts slots of image lie within image]
+     */
+    private static boolean startsValid(ByteBuffer image, int buckets, int n) {
+        int previous = 0;
+        boolean valid = true;
+        int i = 0;
+        while (valid && i <= buckets) {
+            int start = image.getInt((int) startPosition(i));
+            valid = previous <= start && start <= n;
+            previous = start;
+            i++;
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the byte position of the record of entry {@code i}.
+     *
+     * @param i
+     *            the entry
+     * @return the byte position of the record of entry {@code i}
+     */
+    private int entryPosition(int i) {
+        return this.entriesStart + i * ENTRY_INTS * INT_BYTES;
+    }
+
+    /**
+     * Returns the key of entry {@code i}.
+     *
+     * @param i
+     *            the entry
+     * @return the key of entry {@code i}
+     * @requires 0 <= i < $this.entryCount
+     */
+    private String keyAt(int i) {
+        int offset = this.image.getInt(this.entryPosition(i) + INT_BYTES);
+        int length = this.image.getInt(offset);
+        byte[] bytes = new byte[length];
+        for (int j = 0; j < length; j++) {
+            bytes[j] = this.image.get(offset + INT_BYTES + j);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the value of entry {@code i}.
+     *
+     * @param i
+     *            the entry
+     * @return the value of entry {@code i}
+     * @requires 0 <= i < $this.entryCount
+     */
+    private int valueAt(int i) {
+        return this.image.getInt(this.entryPosition(i) + 2 * INT_BYTES);
+    }
+
+    /**
+     * Reports whether the key stored at byte position {@code offset} consists
+     * of {@code bytes}.
+     *
+     * @param offset
+     *            the byte position of the stored key
+     * @param bytes
+     *            the UTF-8 bytes of the key looked up
+     * @return true iff the stored key equals the key looked up
+     */
+    private boolean keyMatches(int offset, byte[] bytes) {
+        boolean matches = this.image.getInt(offset) == bytes.length;
+        int j = 0;
+        while (matches && j < bytes.length) {
+            matches = this.image.get(offset + INT_BYTES + j) == bytes[j];
+            j++;
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the number of the entry whose key is {@code key}, or -1 if
+     * {@code key} is not in {@code DOMAIN(this)}.
+     *
+     * @param key
+     *            the key to be located
+     * @return the entry holding {@code key}, or -1
+     */
+    private int indexOf(String key) {
+        int hash = key.hashCode();
+        int bucket = STRATEGY.index(hash, this.bucketCount);
+        int i = this.image.getInt((int) startPosition(bucket));
+        int end = this.image.getInt((int) startPosition(bucket + 1));
+        byte[] bytes = null;
+        int found = -1;
+        while (found < 0 && i < end) {
+            int record = this.entryPosition(i);
+            if (this.image.getInt(record) == hash) {
+                if (bytes == null) {
+                    bytes = key.getBytes(StandardCharsets.UTF_8);
+                }
+                if (this.keyMatches(this.image.getInt(record + INT_BYTES),
+                        bytes)) {
+                    found = i;
+                }
+            }
+            i++;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the exception thrown by every method that would change
+     * {@code this}.
+     *
+     * @param operation
+     *            the name of the method
+     * @return the exception to throw
+     */
+    private static UnsupportedOperationException readOnly(String operation) {
+        return new UnsupportedOperationException(
+                operation + " operation not supported by a map image");
+    }
+
+    /**
+     * Returns the image of {@code map}.
+     *
+     * @param map
+     *            the map
+     * @return the image of {@code map}
+     * @throws IOException
+     *             if {@code map} is too large for an image
+     */
+    private static byte[] toImage(Map<String, Integer> map)
+            throws IOException {
+        int n = map.size();
+        int buckets = STRATEGY.tableSize(Math.max(n, 1));
+        int[] starts = new int[buckets + 1];
+        int[] hashOf = new int[n];
+        int[] bucketOf = new int[n];
+        byte[][] keyBytes = new byte[n][];
+        int[] valueOf = new int[n];
+
+        long keysStart = startPosition(buckets + 1L)
+                + (long) n * ENTRY_INTS * INT_BYTES;
+        long length = keysStart;
+        int i = 0;
+        for (Pair<String, Integer> pair : map) {
+            hashOf[i] = pair.key().hashCode();
+            bucketOf[i] = STRATEGY.index(hashOf[i], buckets);
+            keyBytes[i] = pair.key().getBytes(StandardCharsets.UTF_8);
+            valueOf[i] = pair.value();
+            starts[bucketOf[i] + 1]++;
+            length += INT_BYTES + keyBytes[i].length;
+            i++;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Map too large for an image: " + length
+                    + " bytes");
+        }
+        for (int b = 0; b < buckets; b++) {
+            starts[b + 1] += starts[b];
+        }
+
+        ByteBuffer image = ByteBuffer.allocate((int) length);
+        image.putInt(MAGIC).putInt(VERSION).putInt(buckets).putInt(n)
+                .putInt((int) length);
+        for (int start : starts) {
+            image.putInt(start);
+        }
+        int entriesStart = image.position();
+        int[] next = new int[buckets];
+        int keyOffset = (int) keysStart;
+        for (i = 0; i < n; i++) {
+            int b = bucketOf[i];
+            int slot = starts[b] + next[b];
+            next[b]++;
+            image.position(entriesStart + slot * ENTRY_INTS * INT_BYTES);
+            image.putInt(hashOf[i]).putInt(keyOffset).putInt(valueOf[i]);
+            image.position(keyOffset);
+            image.putInt(keyBytes[i].length).put(keyBytes[i]);
+            keyOffset = image.position();
+        }
+        return image.array();
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor, resulting in an empty map held in memory.
+     */
+    public Map4Image() {
+        ByteBuffer empty;
+        try {
+            empty = ByteBuffer.wrap(toImage(new Map4<String, Integer>()));
+        } catch (IOException e) {
+            throw new AssertionError("An empty map always fits an image");
+        }
+        this.image = empty;
+        this.bucketCount = empty.getInt(2 * INT_BYTES);
+        this.entryCount = 0;
+        this.entriesStart = (int) startPosition(this.bucketCount + 1L);
+    }
+
+    /**
+     * Constructor resulting in a read-only view of the image file
+     * {@code fileName}, memory-mapped rather than read in.
+     *
+     * @param fileName
+     *            the name of the image file
+     * @throws IOException
+     *             if the file cannot be read, or its header or bucket starting
+     *             positions are not those of an image
+     * @requires fileName is not null
+     * @ensures this = [the map whose image is in fileName]
+     */
+    public Map4Image(String fileName) throws IOException {
+        assert fileName != null : "Violation of: fileName is not null";
+
+        ByteBuffer mapped;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+                FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            if (size < startPosition(0) || size > Integer.MAX_VALUE) {
+                throw new IOException(fileName + " is not a Map4 image");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int buckets = mapped.getInt(2 * INT_BYTES);
+        int n = mapped.getInt(3 * INT_BYTES);
+        /*
+         * The sizes are checked against the file length before the bucket
+         * count is given to STRATEGY, which requires a realistic table size
+         */
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(INT_BYTES) != VERSION
+                || mapped.getInt(4 * INT_BYTES) != mapped.capacity()
+                || buckets <= 0 || n < 0
+                || startPosition(buckets + 1L)
+                        + (long) n * ENTRY_INTS * INT_BYTES > mapped
+                                .capacity()
+                || STRATEGY.tableSize(buckets) != buckets
+                || !startsValid(mapped, buckets, n)) {
+            throw new IOException(fileName + " is not a Map4 image");
+        }
+        this.image = mapped;
+        this.bucketCount = buckets;
+        this.entryCount = n;
+        this.entriesStart = (int) startPosition(buckets + 1L);
+    }
+
+    /*
+     * Image file methods -----------------------------------------------------
+     */
+
+    /**
+     * Writes the image of {@code map} to the file {@code fileName}, replacing
+     * any previous contents; {@code map} is left unchanged.
+     *
+     * @param map
+     *            the map to save
+     * @param fileName
+     *            the name of the image file
+     * @throws IOException
+     *             if the file cannot be written or {@code map} is too large
+     * @requires map is not null and fileName is not null
+     * @ensures [fileName holds the image of map]
+     */
+    public static void write(Map<String, Integer> map, String fileName)
+            throws IOException {
+        assert map != null : "Violation of: map is not null";
+        assert fileName != null : "Violation of: fileName is not null";
+
+        byte[] image = toImage(map);
+        try (FileOutputStream out = new FileOutputStream(fileName)) {
+            out.write(image);
+        }
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Map<String, Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        throw readOnly("clear");
+    }
+
+    @Override
+    public final void transferFrom(Map<String, Integer> source) {
+        throw readOnly("transferFrom");
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, Integer value) {
+        throw readOnly("add");
+    }
+
+    @Override
+    public final Pair<String, Integer> remove(String key) {
+        throw readOnly("remove");
+    }
+
+    @Override
+    public final Pair<String, Integer> removeAny() {
+        throw readOnly("removeAny");
+    }
+
+    @Override
+    public final Integer value(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        int i = this.indexOf(key);
+        assert i >= 0 : "Violation of: key is in DOMAIN(this)";
+
+        return this.valueAt(i);
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.entryCount;
+    }
+
+    @Override
+    public final Iterator<Pair<String, Integer>> iterator() {
+        return new Map4ImageIterator();
+    }
+
+    /*
+     * Secondary methods that would change this -------------------------------
+     */
+
+    @Override
+    public final Integer replaceValue(String key, Integer value) {
+        throw readOnly("replaceValue");
+    }
+
+    @Override
+    public final void combineWith(Map<String, Integer> m) {
+        throw readOnly("combineWith");
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map4Image},
+     * decoding one entry record at a time.
+     */
+    private final class Map4ImageIterator
+            implements Iterator<Pair<String, Integer>> {
+
+        /**
+         * Number of the next entry.
+         */
+        private int next;
+
+        /**
+         * No-argument constructor.
+         */
+        Map4ImageIterator() {
+            this.next = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next < Map4Image.this.entryCount;
+        }
+
+        @Override
+        public Pair<String, Integer> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int i = this.next;
+            this.next++;
+            return new SimplePair<String, Integer>(Map4Image.this.keyAt(i),
+                    Map4Image.this.valueAt(i));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+import components.map.Map;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times full scans of a large {@code Map4}, once through its iterator and once
+ * through {@code forEach}.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class Map4ScanBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Map4ScanBenchmark() {
+    }
+
+    /**
+     * Number of timed scans of each kind.
+     */
+    private static final int ROUNDS = 10;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Accumulates the values passed to it, for {@code forEach}.
+     */
+    private static final class Summer {
+
+        /**
+         * Sum of the values seen.
+         */
+        private long sum;
+
+        /**
+         * Adds {@code value} to the sum.
+         *
+         * @param key
+         *            the key, ignored
+         * @param value
+         *            the value
+         */
+        void accept(Integer key, Integer value) {
+            this.sum += value;
+        }
+
+    }
+
+    /**
+     * Sums the values of {@code map} through its iterator.
+     *
+     * @param map
+     *            the map
+     * @return the sum of the values of {@code map}
+     */
+    private static long iteratorScan(Map4<Integer, Integer> map) {
+        long sum = 0;
+        for (Map.Pair<Integer, Integer> pair : map) {
+            sum += pair.value();
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the values of {@code map} through {@code forEach}.
+     *
+     * @param map
+     *            the map
+     * @return the sum of the values of {@code map}
+     */
+    private static long forEachScan(Map4<Integer, Integer> map) {
+        Summer summer = new Summer();
+        map.forEach(summer::accept);
+        return summer.sum;
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} scans of {@code map}, made
+     * through the iterator if {@code useIterator}, through {@code forEach}
+     * otherwise; one untimed scan warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param map
+     *            the map to scan
+     * @param useIterator
+     *            whether to scan through the iterator
+     * @updates out.content
+     * @requires out.is_open
+     */
+    private static void report(SimpleWriter out, Map4<Integer, Integer> map,
+            boolean useIterator) {
+        long checksum = 0;
+        long elapsed = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            if (useIterator) {
+                checksum += iteratorScan(map);
+            } else {
+                checksum += forEachScan(map);
+            }
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        String label = "forEach";
+        if (useIterator) {
+            label = "iterator";
+        }
+        out.println(label + "\t" + String.format("%.1f",
+                elapsed / NANOS_PER_MILLI / ROUNDS) + " ms\t(" + checksum
+                + ")");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Number of entries (e.g., 1000000): ");
+        int entries = in.nextInteger();
+
+        Map4<Integer, Integer> map = Map4.withExpectedSize(entries);
+        for (int i = 0; i < entries; i++) {
+            map.add(i, i);
+        }
+
+        out.println("Average of " + ROUNDS + " full scans of " + entries
+                + " entries in " + map.capacity() + " buckets:");
+        report(out, map, true);
+        report(out, map, false);
+        in.close();
+        out.close();
+    }
+
+}
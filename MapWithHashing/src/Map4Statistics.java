@@ -0,0 +1,210 @@
+/**
+ * Snapshot of the bucket occupancy of a {@code Map4}, and of the key
+ * comparisons made by its {@code hasKey} and {@code value} lookups.
+ *
+ * <p>
+ * The buckets described are those lookups can reach: every bucket of the
+ * current hash table and, while a rehash is in progress, every bucket of the
+ * old hash table that has not been migrated yet.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class Map4Statistics {
+
+    /**
+     * Number of buckets of each length: {@code lengthCounts[len]} buckets
+     * hold {@code len} entries.
+     */
+    private final int[] lengthCounts;
+
+    /**
+     * Total number of buckets.
+     */
+    private final int bucketCount;
+
+    /**
+     * Total number of entries.
+     */
+    private final int entryCount;
+
+    /**
+     * Number of {@code hasKey} and {@code value} lookups counted.
+     */
+    private final long lookups;
+
+    /**
+     * Number of key comparisons made by those lookups.
+     */
+    private final long probes;
+
+    /**
+     * Constructor.
+     *
+     * @param lengthCounts
+     *            number of buckets of each length; not kept, so the caller may
+     *            reuse it
+     * @param lookups
+     *            number of lookups counted
+     * @param probes
+     *            number of key comparisons made by those lookups
+     * @requires <pre>
+     * |lengthCounts| > 0  and  [every entry of lengthCounts is >= 0]  and
+     * [some entry of lengthCounts is > 0]  and  0 <= lookups  and  0 <= probes
+     * </pre>
+     */
+    Map4Statistics(int[] lengthCounts, long lookups, long probes) {
+        assert lengthCounts != null : "Violation of: lengthCounts is not null";
+        assert lookups >= 0 : "Violation of: 0 <= lookups";
+        assert probes >= 0 : "Violation of: 0 <= probes";
+
+        this.lengthCounts = lengthCounts.clone();
+        int buckets = 0;
+        int entries = 0;
+        for (int len = 0; len < lengthCounts.length; len++) {
+            buckets += lengthCounts[len];
+            entries += len * lengthCounts[len];
+        }
+        assert buckets > 0 : "Violation of: [some entry of lengthCounts > 0]";
+        this.bucketCount = buckets;
+        this.entryCount = entries;
+        this.lookups = lookups;
+        this.probes = probes;
+    }
+
+    /**
+     * Reports the number of buckets.
+     *
+     * @return the number of buckets
+     */
+    public int bucketCount() {
+        return this.bucketCount;
+    }
+
+    /**
+     * Reports the number of entries in all buckets.
+     *
+     * @return the number of entries
+     */
+    public int entryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Reports how many buckets hold exactly {@code length} entries.
+     *
+     * @param length
+     *            the bucket length
+     * @return the number of buckets of length {@code length}
+     * @requires length >= 0
+     */
+    public int bucketsOfLength(int length) {
+        assert length >= 0 : "Violation of: length >= 0";
+
+        int count = 0;
+        if (length < this.lengthCounts.length) {
+            count = this.lengthCounts[length];
+        }
+        return count;
+    }
+
+    /**
+     * Reports the number of entries in the longest bucket.
+     *
+     * @return the maximum bucket length
+     */
+    public int maxBucketLength() {
+        int max = this.lengthCounts.length - 1;
+        while (max > 0 && this.lengthCounts[max] == 0) {
+            max--;
+        }
+        return max;
+    }
+
+    /**
+     * Reports the average number of entries per bucket, i.e., the load of the
+     * hash table.
+     *
+     * @return the mean bucket length
+     */
+    public double meanBucketLength() {
+        return (double) this.entryCount / this.bucketCount;
+    }
+
+    /**
+     * Reports the smallest length that at least {@code percent} percent of
+     * the buckets do not exceed; e.g., {@code bucketLengthPercentile(99)} is
+     * the p99 bucket length.
+     *
+     * @param percent
+     *            the percentile
+     * @return the {@code percent}th percentile of bucket lengths
+     * @requires 0 < percent <= 100
+     */
+    public int bucketLengthPercentile(double percent) {
+        assert 0 < percent && percent <= 100 : ""
+                + "Violation of: 0 < percent <= 100";
+
+        double wanted = percent / 100 * this.bucketCount;
+        int len = 0;
+        long seen = this.lengthCounts[0];
+        while (seen < wanted && len < this.lengthCounts.length - 1) {
+            len++;
+            seen += this.lengthCounts[len];
+        }
+        return len;
+    }
+
+    /**
+     * Reports the fraction of buckets that hold no entries.
+     *
+     * @return the empty-bucket ratio, between 0 and 1
+     */
+    public double emptyBucketRatio() {
+        return (double) this.lengthCounts[0] / this.bucketCount;
+    }
+
+    /**
+     * Reports the number of {@code hasKey} and {@code value} lookups counted.
+     *
+     * @return the number of lookups
+     */
+    public long lookups() {
+        return this.lookups;
+    }
+
+    /**
+     * Reports the number of key comparisons made by the lookups counted.
+     *
+     * @return the number of probes
+     */
+    public long probes() {
+        return this.probes;
+    }
+
+    /**
+     * Reports the average number of key comparisons per lookup, or 0 if no
+     * lookup has been counted.
+     *
+     * @return the mean probe count
+     */
+    public double meanProbes() {
+        double mean = 0;
+        if (this.lookups > 0) {
+            mean = (double) this.probes / this.lookups;
+        }
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return "buckets=" + this.bucketCount + ", entries=" + this.entryCount
+                + ", max=" + this.maxBucketLength() + ", mean="
+                + String.format("%.2f", this.meanBucketLength()) + ", p99="
+                + this.bucketLengthPercentile(99) + ", empty="
+                + String.format("%.3f", this.emptyBucketRatio())
+                + ", lookups=" + this.lookups + ", probes=" + this.probes;
+    }
+
+}
@@ -0,0 +1,111 @@
+import components.map.Map;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Loads the distinct lines of a text file (whose name is supplied by the user)
+ * into a {@code Map4} of a given size and {@code HashStrategy}, looks each of
+ * them up once, and outputs the resulting {@code Map4Statistics}, including a
+ * histogram of bucket lengths.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class Map4StatisticsReporter {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Map4StatisticsReporter() {
+    }
+
+    /**
+     * Outputs {@code stats}: a summary, followed by the number of buckets of
+     * each length with a bar of stars.
+     *
+     * @param out
+     *            the output stream
+     * @param stats
+     *            the statistics to report
+     * @updates out.content
+     * @requires out.is_open
+     */
+    public static void report(SimpleWriter out, Map4Statistics stats) {
+        assert out != null : "Violation of: out is not null";
+        assert stats != null : "Violation of: stats is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+
+        out.println("Buckets:\t" + stats.bucketCount());
+        out.println("Entries:\t" + stats.entryCount());
+        out.println("Empty ratio:\t"
+                + String.format("%.3f", stats.emptyBucketRatio()));
+        out.println("Max length:\t" + stats.maxBucketLength());
+        out.println("Mean length:\t"
+                + String.format("%.2f", stats.meanBucketLength()));
+        out.println("p99 length:\t" + stats.bucketLengthPercentile(99));
+        out.println("Lookups:\t" + stats.lookups());
+        out.println("Probes:\t" + stats.probes());
+        out.println("Mean probes:\t"
+                + String.format("%.2f", stats.meanProbes()));
+        out.println();
+        out.println("Length\tBuckets\tBar");
+        out.println("------\t-------\t---");
+        for (int len = 0; len <= stats.maxBucketLength(); len++) {
+            int buckets = stats.bucketsOfLength(len);
+            out.print(len + "\t" + buckets + "\t");
+            for (int j = 0; j < buckets; j++) {
+                out.print("*");
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        /*
+         * Get hash table size, strategy, and file name.
+         */
+        out.print("Hash table size: ");
+        int hashTableSize = in.nextInteger();
+        out.print("Hash strategy (IDENTITY, MURMUR, FIBONACCI): ");
+        HashStrategies strategy = HashStrategies
+                .valueOf(in.nextLine().trim().toUpperCase());
+        out.print("Text file name: ");
+        String textFileName = in.nextLine();
+        /*
+         * Load the distinct lines, then look each of them up once.
+         */
+        Map4<String, Integer> map = new Map4<String, Integer>(hashTableSize,
+                strategy);
+        SimpleReader textFile = new SimpleReader1L(textFileName);
+        while (!textFile.atEOS()) {
+            String line = textFile.nextLine();
+            if (!map.hasKey(line)) {
+                map.add(line, map.size());
+            }
+        }
+        textFile.close();
+        map.setLookupCounting(true);
+        for (Map.Pair<String, Integer> pair : map) {
+            map.value(pair.key());
+        }
+        /*
+         * Report results.
+         */
+        out.println();
+        report(out, map.statistics());
+        in.close();
+        out.close();
+    }
+
+}
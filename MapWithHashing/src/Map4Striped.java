@@ -0,0 +1,543 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.Map2;
+import components.map.MapSecondary;
+
+/**
+ * Thread-safe {@code Map} represented as a fixed-size hash table using
+ * {@code Map}s for the buckets, with implementations of primary methods.
+ *
+ * <p>
+ * The buckets are guarded by lock stripes: bucket {@code i} is guarded by
+ * stripe {@code i mod |$this.locks|}, so {@code add}, {@code remove},
+ * {@code replaceValue}, {@code hasKey}, and {@code value} on keys in different
+ * stripes proceed in parallel, and each of them is atomic. Each stripe keeps
+ * the number of entries in its buckets, changed only while holding its lock,
+ * so that {@code size} takes no lock: it adds up the stripe counts one at a
+ * time, so while other threads are changing {@code this} its result is only
+ * an approximation, exact only when no change is running.
+ *
+ * <p>
+ * {@code removeAny} is atomic, but its precondition must hold in the face of
+ * concurrent removals. The standard methods ({@code newInstance},
+ * {@code clear}, {@code transferFrom}), iteration, and the secondary methods
+ * that iterate ({@code equals}, {@code key}, {@code hasValue}, ...) are not
+ * thread-safe: no other thread may change {@code this} while they run.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @convention <pre>
+ * |$this.hashTable| > 0  and
+ * 0 < |$this.locks| <= |$this.hashTable|  and
+ * for all i: integer, pf: PARTIAL_FUNCTION, x: K
+ *     where (0 <= i  and  i < |$this.hashTable|  and
+ *            <pf> = $this.hashTable[i, i+1)  and
+ *            x is in DOMAIN(pf))
+ *   ($this.strategy.index([computed result of x.hashCode()],
+ *                         |$this.hashTable|) = i))  and
+ * |$this.hashTable| = $this.strategy.tableSize(|$this.hashTable|)  and
+ * for all s: integer
+ *     where (0 <= s  and  s < |$this.locks|)
+ *   ($this.locks[s].size = sum i: integer, pf: PARTIAL_FUNCTION
+ *        where (0 <= i  and  i < |$this.hashTable|  and
+ *               i mod |$this.locks| = s  and
+ *               <pf> = $this.hashTable[i, i+1))
+ *      (|pf|))
+ * [a null bucket stands for the empty bucket {}, and bucket i is only
+ *  read or changed while holding $this.locks[i mod |$this.locks|]]
+ * </pre>
+ * @correspondence <pre>
+ * this = union i: integer, pf: PARTIAL_FUNCTION
+ *            where (0 <= i  and  i < |$this.hashTable|  and
+ *                   <pf> = $this.hashTable[i, i+1))
+ *          (pf)
+ * </pre>
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public class Map4Striped<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default size of hash table.
+     */
+    private static final int DEFAULT_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Default number of lock stripes.
+     */
+    private static final int DEFAULT_STRIPES = 16;
+
+    /**
+     * Lock stripe, with the number of entries in the buckets it guards,
+     * padded so that no other stripe shares its cache line.
+     */
+    private static final class Stripe {
+
+        /**
+         * Number of entries in the buckets guarded by this stripe; changed
+         * only while holding this stripe.
+         */
+        private volatile int size;
+
+        /**
+         * Padding to fill the rest of a 64-byte cache line.
+         */
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+    }
+
+    /**
+     * Buckets for hashing; null entries are empty buckets not yet created.
+     */
+    private Map<K, V>[] hashTable;
+
+    /**
+     * Lock stripes; bucket i is guarded by locks[i mod |locks|].
+     */
+    private Stripe[] locks;
+
+    /**
+     * Maps hash codes to bucket indexes and picks the hash table size.
+     */
+    private HashStrategy strategy;
+
+    /**
+     * Hash table size that {@code clear} and {@code transferFrom} start
+     * {@code this} over with.
+     */
+    private final int initialHashTableSize;
+
+    /**
+     * Number of lock stripes that {@code clear} and {@code transferFrom}
+     * start {@code this} over with.
+     */
+    private final int initialStripes;
+
+    /**
+     * Creates a hash table of empty buckets, none of which is created yet.
+     *
+     * @param <K>
+     *            type of {@code Map} domain (key) entries
+     * @param <V>
+     *            type of {@code Map} range (associated value) entries
+     * @param hashTableSize
+     *            the size of the hash table
+     * @return the new hash table
+     * @requires hashTableSize > 0
+     * @ensures <pre>
+     * |newHashTable| = hashTableSize  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |newHashTable|)
+     *   (newHashTable[i, i+1) = <{}>)
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newHashTable(int hashTableSize) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+
+        /*
+         * With "new Map<K, V>[...]" in place of "new Map[...]" it does not
+         * compile; as shown, it results in a warning about an unchecked
+         * conversion, though it cannot fail.
+         */
+        return new Map[hashTableSize];
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param hashTableSize
+     *            the minimum size of the hash table
+     * @param stripes
+     *            the number of lock stripes
+     * @requires hashTableSize > 0 and stripes > 0
+     * @ensures <pre>
+     * |$this.hashTable| = $this.strategy.tableSize(hashTableSize)  and
+     * for all i: integer
+     *     where (0 <= i  and  i < |$this.hashTable|)
+     *   ($this.hashTable[i, i+1) = <{}>)  and
+     * |$this.locks| = min(stripes, |$this.hashTable|)  and
+     * for all s: integer
+     *     where (0 <= s  and  s < |$this.locks|)
+     *   ($this.locks[s].size = 0)
+     * </pre>
+     */
+    private void createNewRep(int hashTableSize, int stripes) {
+        this.hashTable = newHashTable(this.strategy.tableSize(hashTableSize));
+        this.locks = new Stripe[Math.min(stripes, this.hashTable.length)];
+        for (int s = 0; s < this.locks.length; s++) {
+            this.locks[s] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the index of the bucket in which {@code key} is, or would be,
+     * stored.
+     *
+     * @param key
+     *            the key to be located
+     * @return the bucket index for {@code key}
+     * @ensures <pre>
+     * index = $this.strategy.index([computed result of key.hashCode()],
+     *                              |$this.hashTable|)
+     * </pre>
+     */
+    private int index(K key) {
+        return this.strategy.index(key.hashCode(), this.hashTable.length);
+    }
+
+    /**
+     * Returns the lock stripe guarding bucket {@code index}.
+     *
+     * @param index
+     *            the bucket index
+     * @return the stripe number for {@code index}
+     * @requires 0 <= index < |$this.hashTable|
+     * @ensures stripe = index mod |$this.locks|
+     */
+    private int stripe(int index) {
+        return index % this.locks.length;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map4Striped() {
+
+        this(DEFAULT_HASH_TABLE_SIZE, DEFAULT_STRIPES, HashStrategies.IDENTITY);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize}.
+     *
+     * @param hashTableSize
+     *            size of hash table
+     * @requires hashTableSize > 0
+     * @ensures this = {}
+     */
+    public Map4Striped(int hashTableSize) {
+
+        this(hashTableSize, DEFAULT_STRIPES, HashStrategies.IDENTITY);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize}
+     * guarded by {@code stripes} lock stripes (fewer if the hash table is
+     * smaller than that).
+     *
+     * @param hashTableSize
+     *            size of hash table
+     * @param stripes
+     *            number of lock stripes
+     * @requires hashTableSize > 0 and stripes > 0
+     * @ensures this = {}
+     */
+    public Map4Striped(int hashTableSize, int stripes) {
+
+        this(hashTableSize, stripes, HashStrategies.IDENTITY);
+
+    }
+
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize},
+     * guarded by {@code stripes} lock stripes, whose buckets are picked by
+     * {@code strategy}.
+     *
+     * @param hashTableSize
+     *            size of hash table, rounded up to a size {@code strategy}
+     *            supports
+     * @param stripes
+     *            number of lock stripes
+     * @param strategy
+     *            maps hash codes to bucket indexes
+     * @requires hashTableSize > 0 and stripes > 0
+     * @ensures this = {}
+     */
+    public Map4Striped(int hashTableSize, int stripes, HashStrategy strategy) {
+        assert hashTableSize > 0 : "Violation of: hashTableSize > 0";
+        assert stripes > 0 : "Violation of: stripes > 0";
+        assert strategy != null : "Violation of: strategy is not null";
+
+        this.strategy = strategy;
+        this.initialHashTableSize = hashTableSize;
+        this.initialStripes = stripes;
+        this.createNewRep(hashTableSize, stripes);
+
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.initialHashTableSize, this.initialStripes);
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map4Striped<?, ?> : ""
+                + "Violation of: source is of dynamic type Map4Striped<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * Map4Striped<?,?>, and the ?,? must be K,V or the call would not have
+         * compiled.
+         */
+        Map4Striped<K, V> localSource = (Map4Striped<K, V>) source;
+        this.hashTable = localSource.hashTable;
+        this.locks = localSource.locks;
+        this.strategy = localSource.strategy;
+        localSource.createNewRep(localSource.initialHashTableSize,
+                localSource.initialStripes);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+
+        int index = this.index(key);
+        int stripe = this.stripe(index);
+        synchronized (this.locks[stripe]) {
+            assert this.hashTable[index] == null
+                    || !this.hashTable[index].hasKey(key) : ""
+                            + "Violation of: key is not in DOMAIN(this)";
+            if (this.hashTable[index] == null) {
+                this.hashTable[index] = new Map2<K, V>();
+            }
+            this.hashTable[index].add(key, value);
+            this.locks[stripe].size++;
+        }
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        int index = this.index(key);
+        int stripe = this.stripe(index);
+        synchronized (this.locks[stripe]) {
+            assert this.hashTable[index] != null
+                    && this.hashTable[index].hasKey(key) : ""
+                            + "Violation of: key is in DOMAIN(this)";
+            Pair<K, V> pair = this.hashTable[index].remove(key);
+            this.locks[stripe].size--;
+            return pair;
+        }
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        Pair<K, V> pair = null;
+        int index = 0;
+        while (pair == null && index < this.hashTable.length) {
+            int stripe = this.stripe(index);
+            if (this.locks[stripe].size > 0) {
+                synchronized (this.locks[stripe]) {
+                    Map<K, V> bucket = this.hashTable[index];
+                    if (bucket != null && bucket.size() > 0) {
+                        pair = bucket.removeAny();
+                        this.locks[stripe].size--;
+                    }
+                }
+            }
+            index++;
+        }
+        assert pair != null : "Violation of: this /= empty_set";
+
+        return pair;
+    }
+
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        int index = this.index(key);
+        synchronized (this.locks[this.stripe(index)]) {
+            assert this.hashTable[index] != null
+                    && this.hashTable[index].hasKey(key) : ""
+                            + "Violation of: key is in DOMAIN(this)";
+            return this.hashTable[index].value(key);
+        }
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        int index = this.index(key);
+        synchronized (this.locks[this.stripe(index)]) {
+            Map<K, V> bucket = this.hashTable[index];
+            return bucket != null && bucket.hasKey(key);
+        }
+    }
+
+    @Override
+    public final int size() {
+        /*
+         * The counts are read one at a time, without the stripe locks, so
+         * while other threads are changing this the sum is only approximate
+         */
+        int size = 0;
+        for (int s = 0; s < this.locks.length; s++) {
+            size += this.locks[s].size;
+        }
+        return size;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map4StripedIterator();
+    }
+
+    /*
+     * Secondary methods made atomic ------------------------------------------
+     */
+
+    @Override
+    public final V replaceValue(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+
+        int index = this.index(key);
+        synchronized (this.locks[this.stripe(index)]) {
+            assert this.hashTable[index] != null
+                    && this.hashTable[index].hasKey(key) : ""
+                            + "Violation of: key is in DOMAIN(this)";
+            return this.hashTable[index].replaceValue(key, value);
+        }
+    }
+
+    /*
+     * Hash table inspection methods ------------------------------------------
+     */
+
+    /**
+     * Reports the number of buckets in the hash table.
+     *
+     * @return the capacity of the hash table
+     * @ensures capacity = |$this.hashTable|
+     */
+    public final int capacity() {
+        return this.hashTable.length;
+    }
+
+    /**
+     * Reports the number of lock stripes guarding the buckets.
+     *
+     * @return the number of lock stripes
+     * @ensures stripeCount = |$this.locks|
+     */
+    public final int stripeCount() {
+        return this.locks.length;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map4Striped}.
+     */
+    private final class Map4StripedIterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Number of elements to be seen in all.
+         */
+        private final int total;
+
+        /**
+         * Bucket from which current bucket iterator comes.
+         */
+        private int currentBucket;
+
+        /**
+         * Bucket iterator from which next element will come.
+         */
+        private Iterator<Pair<K, V>> bucketIterator;
+
+        /**
+         * No-argument constructor.
+         */
+        Map4StripedIterator() {
+            this.numberSeen = 0;
+            this.total = Map4Striped.this.size();
+            this.currentBucket = -1;
+            this.bucketIterator = new Map2<K, V>().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < this.total;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            while (!this.bucketIterator.hasNext()) {
+                this.currentBucket++;
+                Map<K, V> bucket = Map4Striped.this.hashTable[
+                        this.currentBucket];
+                if (bucket != null) {
+                    this.bucketIterator = bucket.iterator();
+                }
+            }
+            return this.bucketIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
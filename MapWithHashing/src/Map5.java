@@ -0,0 +1,465 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.map.Map;
+import components.map.MapSecondary;
+
+/**
+ * {@code Map} represented as an open-addressing hash table, with keys and
+ * values kept in parallel arrays and collisions resolved by linear probing,
+ * with implementations of primary methods.
+ *
+ * <p>
+ * Unlike {@code Map4}, no bucket objects are allocated: each entry occupies
+ * one slot of {@code keys} and the matching slot of {@code values}. A removed
+ * entry leaves a tombstone in its key slot so that probe sequences running
+ * through it stay intact; tombstones are reused by {@code add} and purged when
+ * the table is rebuilt.
+ *
+ * @param <K>
+ *            type of {@code Map} domain (key) entries
+ * @param <V>
+ *            type of {@code Map} range (associated value) entries
+ * @mathdefinitions <pre>
+ * HOME(
+ *   x: K,
+ *   n: integer
+ *  ): integer is
+ *  [slot at which the probe sequence for x starts in a table of n slots]
+ *
+ * LIVE(
+ *   keys: string of K,
+ *   i: integer
+ *  ): boolean is
+ *  [keys[i, i+1) is neither null nor TOMBSTONE]
+ * </pre>
+ * @convention <pre>
+ * |$this.keys| = |$this.values|  and
+ * [|$this.keys| is a power of 2]  and  |$this.keys| >= DEFAULT_CAPACITY  and
+ * $this.size = [number of i such that LIVE($this.keys, i)]  and
+ * $this.tombstones = [number of i such that $this.keys[i, i+1) = TOMBSTONE]
+ *  and
+ * $this.size + $this.tombstones < |$this.keys|  and
+ * for all i: integer where (LIVE($this.keys, i))
+ *   ([$this.values[i, i+1) is not null]  and
+ *    [no slot strictly between HOME($this.keys[i, i+1), |$this.keys|) and i,
+ *     wrapping around the end of the table, is null])  and
+ * for all i: integer where (not LIVE($this.keys, i))
+ *   ([$this.values[i, i+1) is null])  and
+ * [no two live slots hold equal keys]  and
+ * 0 <= $this.firstLive  and
+ * for all i: integer where (0 <= i  and  i < $this.firstLive)
+ *   (not LIVE($this.keys, i))
+ * </pre>
+ * @correspondence <pre>
+ * this = {(k, v): (K, V)
+ *          where (there exists i: integer
+ *                   (LIVE($this.keys, i)  and
+ *                    <k> = $this.keys[i, i+1)  and
+ *                    <v> = $this.values[i, i+1)))}
+ * </pre>
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public class Map5<K, V> extends MapSecondary<K, V> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default (and minimum) number of slots in the table.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The table is rebuilt once live entries plus tombstones would fill more
+     * than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR of its slots.
+     */
+    private static final int MAX_LOAD_NUMERATOR = 3;
+
+    /**
+     * See {@code MAX_LOAD_NUMERATOR}.
+     */
+    private static final int MAX_LOAD_DENOMINATOR = 4;
+
+    /**
+     * Marker left in the key slot of a removed entry.
+     */
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Key slots: null (never used), {@code TOMBSTONE}, or a key of type K.
+     */
+    private Object[] keys;
+
+    /**
+     * Value slots, parallel to {@code keys}.
+     */
+    private Object[] values;
+
+    /**
+     * Number of live entries, i.e., |this|.
+     */
+    private int size;
+
+    /**
+     * Number of key slots holding {@code TOMBSTONE}.
+     */
+    private int tombstones;
+
+    /**
+     * No live entry is stored below this slot; lets repeated
+     * {@code removeAny} calls resume scanning where the last one stopped.
+     */
+    private int firstLive;
+
+    /**
+     * Returns the slot at which the probe sequence for a key with the given
+     * hash code starts.
+     *
+     * @param hashCode
+     *            the hash code of the key
+     * @param capacity
+     *            the number of slots in the table
+     * @return the home slot
+     * @requires [capacity is a power of 2]
+     * @ensures 0 <= home < capacity
+     */
+    private static int home(int hashCode, int capacity) {
+        /*
+         * Fold the high bits into the low ones before masking, since only the
+         * low bits select the slot in a power-of-2 table.
+         */
+        int spread = hashCode ^ (hashCode >>> (Integer.SIZE / 2));
+        return spread & (capacity - 1);
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or -1 if {@code key} is not in
+     * {@code this}.
+     *
+     * @param key
+     *            the key to be searched for
+     * @return the slot holding {@code key}, or -1
+     * @ensures <pre>
+     * if key is in DOMAIN(this)
+     *  then <key> = $this.keys[find, find+1)
+     *  else find = -1
+     * </pre>
+     */
+    private int find(K key) {
+        int mask = this.keys.length - 1;
+        int index = home(key.hashCode(), this.keys.length);
+        int found = -1;
+
+        while (found < 0 && this.keys[index] != null) {
+            Object slot = this.keys[index];
+            if (slot != TOMBSTONE && slot.equals(key)) {
+                found = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return found;
+    }
+
+    /**
+     * Rebuilds the table with {@code capacity} slots, dropping all tombstones.
+     *
+     * @param capacity
+     *            the number of slots in the new table
+     * @requires <pre>
+     * [capacity is a power of 2]  and  capacity >= DEFAULT_CAPACITY  and
+     * $this.size < capacity
+     * </pre>
+     * @ensures this = #this  and  $this.tombstones = 0
+     */
+    private void rehash(int capacity) {
+        Object[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.tombstones = 0;
+        this.firstLive = 0;
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object slot = oldKeys[i];
+            if (slot != null && slot != TOMBSTONE) {
+                int index = home(slot.hashCode(), capacity);
+                while (this.keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                this.keys[index] = slot;
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Makes room for one more entry, rebuilding the table if live entries plus
+     * tombstones would otherwise exceed the maximum load.
+     *
+     * @ensures this = #this
+     */
+    private void ensureRoomForOneMore() {
+        int capacity = this.keys.length;
+        int used = this.size + this.tombstones + 1;
+        if (used * MAX_LOAD_DENOMINATOR > capacity * MAX_LOAD_NUMERATOR) {
+            /*
+             * Double only when live entries alone need it; otherwise just
+             * sweep the tombstones out at the same capacity.
+             */
+            if ((this.size + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+            this.rehash(capacity);
+        }
+    }
+
+    /**
+     * Removes the entry in slot {@code index} and returns it.
+     *
+     * @param index
+     *            the slot of the entry to remove
+     * @return the removed entry
+     * @requires LIVE($this.keys, index)
+     * @ensures <pre>
+     * removeAt = [entry in slot index of #$this]  and
+     * this = #this \ {removeAt}
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private Pair<K, V> removeAt(int index) {
+        K key = (K) this.keys[index];
+        V value = (V) this.values[index];
+        int mask = this.keys.length - 1;
+
+        this.values[index] = null;
+        if (this.keys[(index + 1) & mask] == null) {
+            /*
+             * No probe sequence runs past this slot, so it (and any tombstones
+             * just before it) can go straight back to never-used.
+             */
+            this.keys[index] = null;
+            int previous = (index - 1) & mask;
+            while (this.keys[previous] == TOMBSTONE) {
+                this.keys[previous] = null;
+                this.tombstones--;
+                previous = (previous - 1) & mask;
+            }
+        } else {
+            this.keys[index] = TOMBSTONE;
+            this.tombstones++;
+        }
+        this.size--;
+
+        return new SimplePair<K, V>(key, value);
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.keys = new Object[DEFAULT_CAPACITY];
+        this.values = new Object[DEFAULT_CAPACITY];
+        this.size = 0;
+        this.tombstones = 0;
+        this.firstLive = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Map5() {
+
+        this.createNewRep();
+
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Map<K, V> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<K, V> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Map5<?, ?> : ""
+                + "Violation of: source is of dynamic type Map5<?,?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Map5<?,?>, and
+         * the ?,? must be K,V or the call would not have compiled.
+         */
+        Map5<K, V> localSource = (Map5<K, V>) source;
+        this.keys = localSource.keys;
+        this.values = localSource.values;
+        this.size = localSource.size;
+        this.tombstones = localSource.tombstones;
+        this.firstLive = localSource.firstLive;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        this.ensureRoomForOneMore();
+
+        // key is absent, so the first reusable slot on its probe sequence
+        // is where it goes.
+        int mask = this.keys.length - 1;
+        int index = home(key.hashCode(), this.keys.length);
+        while (this.keys[index] != null && this.keys[index] != TOMBSTONE) {
+            index = (index + 1) & mask;
+        }
+        if (this.keys[index] == TOMBSTONE) {
+            this.tombstones--;
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+        this.size++;
+
+        if (index < this.firstLive) {
+            this.firstLive = index;
+        }
+    }
+
+    @Override
+    public final Pair<K, V> remove(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.removeAt(this.find(key));
+    }
+
+    @Override
+    public final Pair<K, V> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        while (this.keys[this.firstLive] == null
+                || this.keys[this.firstLive] == TOMBSTONE) {
+            this.firstLive++;
+        }
+
+        return this.removeAt(this.firstLive);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final V value(K key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return (V) this.values[this.find(key)];
+    }
+
+    @Override
+    public final boolean hasKey(K key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.find(key) >= 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Pair<K, V>> iterator() {
+        return new Map5Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Map5}.
+     */
+    private final class Map5Iterator implements Iterator<Pair<K, V>> {
+
+        /**
+         * Number of elements seen already (i.e., |~this.seen|).
+         */
+        private int numberSeen;
+
+        /**
+         * Slot at which the search for the next element starts.
+         */
+        private int nextSlot;
+
+        /**
+         * No-argument constructor.
+         */
+        Map5Iterator() {
+            this.numberSeen = 0;
+            this.nextSlot = Map5.this.firstLive;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.numberSeen < Map5.this.size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Pair<K, V> next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.numberSeen++;
+            Object[] keys = Map5.this.keys;
+            while (keys[this.nextSlot] == null
+                    || keys[this.nextSlot] == TOMBSTONE) {
+                this.nextSlot++;
+            }
+            int index = this.nextSlot;
+            this.nextSlot++;
+            return new SimplePair<K, V>((K) keys[index],
+                    (V) Map5.this.values[index]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for the standard {@code HashStrategy}s.
+ */
+public final class HashStrategiesTest {
+
+    /**
+     * Number of hash codes tried per table size.
+     */
+    private static final int HASH_CODES = 10000;
+
+    /**
+     * Checks that every hash code in a spread of values, including negative
+     * ones, is mapped into range for a table of size {@code tableSize}.
+     *
+     * @param strategy
+     *            the strategy under test
+     * @param tableSize
+     *            the table size
+     */
+    private static void assertIndexesInRange(HashStrategy strategy,
+            int tableSize) {
+        for (int i = -HASH_CODES / 2; i < HASH_CODES / 2; i++) {
+            int hashCode = i * Integer.MAX_VALUE / HASH_CODES + i;
+            int index = strategy.index(hashCode, tableSize);
+            assertTrue(0 <= index && index < tableSize);
+        }
+    }
+
+    @Test
+    public void testIdentityTableSizeOdd() {
+        assertEquals(101, HashStrategies.IDENTITY.tableSize(101));
+    }
+
+    @Test
+    public void testIdentityTableSizeEven() {
+        assertEquals(202, HashStrategies.IDENTITY.tableSize(202));
+    }
+
+    @Test
+    public void testIdentityGrownTableSizeOdd() {
+        assertEquals(203, HashStrategies.IDENTITY.grownTableSize(101));
+    }
+
+    @Test
+    public void testIdentityIndexIsMod() {
+        assertEquals(3, HashStrategies.IDENTITY.index(-4, 7));
+    }
+
+    @Test
+    public void testIdentityIndexInRange() {
+        assertIndexesInRange(HashStrategies.IDENTITY, 101);
+    }
+
+    @Test
+    public void testMurmurTableSize() {
+        assertEquals(1, HashStrategies.MURMUR.tableSize(1));
+    }
+
+    @Test
+    public void testMurmurSpreadsConsecutiveMultiples() {
+        /*
+         * Multiples of the table size all land in bucket 0 under IDENTITY.
+         */
+        int tableSize = 101;
+        boolean[] hit = new boolean[tableSize];
+        int distinct = 0;
+        for (int i = 0; i < tableSize; i++) {
+            int index = HashStrategies.MURMUR.index(i * tableSize, tableSize);
+            if (!hit[index]) {
+                hit[index] = true;
+                distinct++;
+            }
+        }
+        assertTrue(distinct > tableSize / 2);
+    }
+
+    @Test
+    public void testMurmurIndexInRange() {
+        assertIndexesInRange(HashStrategies.MURMUR, 101);
+    }
+
+    @Test
+    public void testFibonacciTableSizePowerOf2() {
+        assertEquals(128, HashStrategies.FIBONACCI.tableSize(101));
+    }
+
+    @Test
+    public void testFibonacciTableSizeExact() {
+        assertEquals(64, HashStrategies.FIBONACCI.tableSize(64));
+    }
+
+    @Test
+    public void testFibonacciTableSizeLargest() {
+        assertEquals(1 << 30, HashStrategies.FIBONACCI.tableSize(1 << 30));
+    }
+
+    @Test
+    public void testFibonacciTableSizeRoundsUpToLargest() {
+        assertEquals(1 << 30,
+                HashStrategies.FIBONACCI.tableSize((1 << 29) + 1));
+    }
+
+    @Test
+    public void testFibonacciGrownTableSizeDoubles() {
+        assertEquals(128, HashStrategies.FIBONACCI.grownTableSize(64));
+    }
+
+    @Test
+    public void testFibonacciTableSize1() {
+        assertEquals(0, HashStrategies.FIBONACCI.index(12345, 1));
+    }
+
+    @Test
+    public void testFibonacciIndexInRange() {
+        assertIndexesInRange(HashStrategies.FIBONACCI, 128);
+    }
+
+}
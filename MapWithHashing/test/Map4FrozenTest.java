@@ -0,0 +1,273 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * JUnit test fixture for {@code Map4Frozen}, the read-only copy made by
+ * {@code Map4.freeze}.
+ */
+public class Map4FrozenTest {
+
+    /**
+     * Number of entries in the larger test maps.
+     */
+    private static final int TEST_ENTRIES = 1000;
+
+    /**
+     * Number of threads reading at once in the concurrent test.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Returns a {@code Map4} with entries "0" through "n - 1", each mapped to
+     * "v" followed by the key.
+     *
+     * @param n
+     *            the number of entries
+     * @return the new map
+     * @requires n >= 0
+     */
+    private static Map4<String, String> createMap(int n) {
+        Map4<String, String> m = new Map4<String, String>();
+        for (int i = 0; i < n; i++) {
+            m.add(Integer.toString(i), "v" + i);
+        }
+        return m;
+    }
+
+    /**
+     * Reader thread checking every entry of a frozen map.
+     */
+    private static final class Reader extends Thread {
+
+        /**
+         * The frozen map.
+         */
+        private final Map<String, String> map;
+
+        /**
+         * Number of lookups that saw an unexpected result.
+         */
+        private int mismatches;
+
+        /**
+         * Constructor.
+         *
+         * @param map
+         *            the frozen map
+         */
+        Reader(Map<String, String> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < TEST_ENTRIES; i++) {
+                String key = Integer.toString(i);
+                if (!this.map.hasKey(key)
+                        || !this.map.value(key).equals("v" + i)) {
+                    this.mismatches++;
+                }
+            }
+            if (this.map.hasKey("missing")) {
+                this.mismatches++;
+            }
+        }
+
+    }
+
+    /*
+     * Test freezing an empty map
+     */
+    @Test
+    public final void testFreeze_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = createMap(0);
+
+        /*
+         * Call method under test
+         */
+        Map<String, String> frozen = m.freeze();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, frozen.size());
+        assertFalse(frozen.hasKey("0"));
+    }
+
+    /*
+     * Test that a frozen copy has the same entries and leaves the source
+     * unchanged
+     */
+    @Test
+    public final void testFreeze_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = createMap(TEST_ENTRIES);
+        Map<String, String> mExpected = new Map1L<String, String>();
+        for (Map.Pair<String, String> pair : m) {
+            mExpected.add(pair.key(), pair.value());
+        }
+
+        /*
+         * Call method under test
+         */
+        Map<String, String> frozen = m.freeze();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, frozen);
+        assertEquals(mExpected, m);
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            assertEquals("v" + i, frozen.value(Integer.toString(i)));
+        }
+        assertFalse(frozen.hasKey(Integer.toString(TEST_ENTRIES)));
+    }
+
+    /*
+     * Test that a frozen copy does not follow later changes to its source
+     */
+    @Test
+    public final void testFreeze_3() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = createMap(2);
+        Map<String, String> frozen = m.freeze();
+
+        /*
+         * Call method under test
+         */
+        m.add("2", "v2");
+        m.remove("0");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(2, frozen.size());
+        assertTrue(frozen.hasKey("0"));
+        assertFalse(frozen.hasKey("2"));
+    }
+
+    /*
+     * Test that add fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testAdd_1() {
+        Map<String, String> frozen = createMap(2).freeze();
+        frozen.add("2", "v2");
+    }
+
+    /*
+     * Test that remove fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testRemove_1() {
+        Map<String, String> frozen = createMap(2).freeze();
+        frozen.remove("0");
+    }
+
+    /*
+     * Test that removeAny fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testRemoveAny_1() {
+        Map<String, String> frozen = createMap(2).freeze();
+        frozen.removeAny();
+    }
+
+    /*
+     * Test that clear fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testClear_1() {
+        Map<String, String> frozen = createMap(2).freeze();
+        frozen.clear();
+    }
+
+    /*
+     * Test that replaceValue fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testReplaceValue_1() {
+        Map<String, String> frozen = createMap(2).freeze();
+        frozen.replaceValue("0", "w0");
+    }
+
+    /*
+     * Test that combineWith fails without taking entries from its argument
+     */
+    @Test
+    public final void testCombineWith_1() {
+        /*
+         * Set up variables
+         */
+        Map<String, String> frozen = createMap(2).freeze();
+        Map<String, String> other = createMap(0);
+        other.add("x", "vx");
+        boolean failed = false;
+
+        /*
+         * Call method under test
+         */
+        try {
+            frozen.combineWith(other);
+        } catch (UnsupportedOperationException e) {
+            failed = true;
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(failed);
+        assertEquals(1, other.size());
+        assertEquals(2, frozen.size());
+    }
+
+    /*
+     * Test many threads reading one frozen map at once
+     */
+    @Test
+    public final void testConcurrentReads_1() {
+        /*
+         * Set up variables
+         */
+        Map<String, String> frozen = createMap(TEST_ENTRIES).freeze();
+        Reader[] readers = new Reader[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            readers[t] = new Reader(frozen);
+        }
+
+        /*
+         * Call method under test
+         */
+        for (Reader reader : readers) {
+            reader.start();
+        }
+        for (Reader reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted waiting for " + reader);
+            }
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        for (Reader reader : readers) {
+            assertEquals(0, reader.mismatches);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * JUnit test fixture for {@code Map4Image}, the memory-mapped view of a map
+ * image file.
+ */
+public class Map4ImageTest {
+
+    /**
+     * Number of entries in the larger test maps.
+     */
+    private static final int TEST_ENTRIES = 1000;
+
+    /**
+     * Returns a new temporary file, deleted when the JVM exits.
+     *
+     * @return the name of the new file
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    private static String tempFile() throws IOException {
+        File file = File.createTempFile("map4", ".img");
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    /**
+     * Writes {@code map} to a temporary image file and opens it.
+     *
+     * @param map
+     *            the map to save
+     * @return the view of the image
+     * @throws IOException
+     *             if the image cannot be written or read
+     */
+    private static Map4Image roundTrip(Map<String, Integer> map)
+            throws IOException {
+        String fileName = tempFile();
+        Map4Image.write(map, fileName);
+        return new Map4Image(fileName);
+    }
+
+    /*
+     * Test an image of an empty map
+     */
+    @Test
+    public final void testImage_1() throws IOException {
+        /*
+         * Set up variables
+         */
+        Map<String, Integer> m = new Map4<String, Integer>();
+
+        /*
+         * Call method under test
+         */
+        Map4Image image = roundTrip(m);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, image.size());
+        assertFalse(image.hasKey(""));
+    }
+
+    /*
+     * Test that an image has the entries of its map, which is left unchanged
+     */
+    @Test
+    public final void testImage_2() throws IOException {
+        /*
+         * Set up variables
+         */
+        Map<String, Integer> m = new Map4<String, Integer>();
+        Map<String, Integer> mExpected = new Map1L<String, Integer>();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            m.add("word" + i, i);
+            mExpected.add("word" + i, i);
+        }
+
+        /*
+         * Call method under test
+         */
+        Map4Image image = roundTrip(m);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(mExpected, image);
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            assertTrue(image.hasKey("word" + i));
+            assertEquals(Integer.valueOf(i), image.value("word" + i));
+        }
+        assertFalse(image.hasKey("word" + TEST_ENTRIES));
+    }
+
+    /*
+     * Test keys that are empty, non-ASCII, or share a hash code
+     */
+    @Test
+    public final void testImage_3() throws IOException {
+        /*
+         * Set up variables; "Aa" and "BB" have the same hash code
+         */
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("", 0);
+        m.add("caf\u00E9", 1);
+        m.add("\u65E5\u672C", 2);
+        m.add("Aa", 3);
+        m.add("BB", 4);
+
+        /*
+         * Call method under test
+         */
+        Map4Image image = roundTrip(m);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(m, image);
+        assertEquals(Integer.valueOf(0), image.value(""));
+        assertEquals(Integer.valueOf(1), image.value("caf\u00E9"));
+        assertEquals(Integer.valueOf(2), image.value("\u65E5\u672C"));
+        assertEquals(Integer.valueOf(3), image.value("Aa"));
+        assertEquals(Integer.valueOf(4), image.value("BB"));
+        assertFalse(image.hasKey("cafe"));
+    }
+
+    /*
+     * Test that a file that is not an image is rejected
+     */
+    @Test(expected = IOException.class)
+    public final void testOpen_1() throws IOException {
+        String fileName = tempFile();
+        try (FileOutputStream out = new FileOutputStream(fileName)) {
+            out.write("not a map image at all".getBytes("UTF-8"));
+        }
+        new Map4Image(fileName);
+    }
+
+    /*
+     * Test that a truncated image is rejected
+     */
+    @Test(expected = IOException.class)
+    public final void testOpen_2() throws IOException {
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("a", 1);
+        String fileName = tempFile();
+        Map4Image.write(m, fileName);
+        File file = new File(fileName);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        new Map4Image(fileName);
+    }
+
+    /*
+     * Test that an image whose bucket count puts the bucket starts past 2 GB
+     * is rejected rather than wrapping around to a small position
+     */
+    @Test(expected = IOException.class)
+    public final void testOpen_3() throws IOException {
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("a", 1);
+        String fileName = tempFile();
+        Map4Image.write(m, fileName);
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "rw")) {
+            raf.seek(2 * Integer.BYTES);
+            raf.writeInt(1 << 30);
+        }
+        new Map4Image(fileName);
+    }
+
+    /*
+     * Test that an image whose bucket starts run past the entry count is
+     * rejected
+     */
+    @Test(expected = IOException.class)
+    public final void testOpen_4() throws IOException {
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("a", 1);
+        String fileName = tempFile();
+        Map4Image.write(m, fileName);
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "rw")) {
+            raf.seek(6 * Integer.BYTES);
+            raf.writeInt(TEST_ENTRIES);
+        }
+        new Map4Image(fileName);
+    }
+
+    /*
+     * Test that add fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testAdd_1() throws IOException {
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("a", 1);
+        roundTrip(m).add("b", 2);
+    }
+
+    /*
+     * Test that removeAny fails
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void testRemoveAny_1() throws IOException {
+        Map<String, Integer> m = new Map1L<String, Integer>();
+        m.add("a", 1);
+        roundTrip(m).removeAny();
+    }
+
+    /*
+     * Test the no-argument constructor
+     */
+    @Test
+    public final void testConstructor_1() {
+        /*
+         * Call method under test
+         */
+        Map4Image image = new Map4Image();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, image.size());
+        assertFalse(image.hasKey("a"));
+    }
+
+}
@@ -0,0 +1,253 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4Striped}, with stress tests
+ * running several threads against one map.
+ */
+public class Map4StripedTest extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Number of lock stripes to be used in tests.
+     */
+    private static final int TEST_STRIPES = 8;
+
+    /**
+     * Number of threads run by the stress tests.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of keys each thread works on in the stress tests.
+     */
+    private static final int KEYS_PER_THREAD = 5000;
+
+    /**
+     * Number of keys shared by all threads in the stress tests.
+     */
+    private static final int SHARED_KEYS = 100;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4Striped<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_STRIPES);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Runs on {@code m} the same sequence of operations for keys
+     * {@code "<id>:0"} through {@code "<id>:<KEYS_PER_THREAD - 1>"}: add them
+     * all, replace the values of the even ones, remove every third one, and
+     * check every remaining one as well as the shared keys
+     * {@code "shared:<i>"} along the way.
+     *
+     * @param m
+     *            the map to work on
+     * @param id
+     *            the thread number
+     * @return the number of lookups that saw an unexpected result
+     * @updates m
+     * @requires <pre>
+     * m holds the shared keys, each with value "s<i>", and none of the
+     *  keys of thread id
+     * </pre>
+     */
+    private static int work(Map<String, String> m, int id) {
+        int mismatches = 0;
+        for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            m.add(id + ":" + i, "v" + i);
+            String shared = "shared:" + (i % SHARED_KEYS);
+            if (!m.hasKey(shared)
+                    || !m.value(shared).equals("s" + (i % SHARED_KEYS))) {
+                mismatches++;
+            }
+        }
+        for (int i = 0; i < KEYS_PER_THREAD; i += 2) {
+            String old = m.replaceValue(id + ":" + i, "w" + i);
+            if (!old.equals("v" + i)) {
+                mismatches++;
+            }
+        }
+        for (int i = 0; i < KEYS_PER_THREAD; i += 3) {
+            m.remove(id + ":" + i);
+        }
+        for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            String key = id + ":" + i;
+            String expected;
+            if (i % 3 == 0) {
+                expected = null;
+            } else if (i % 2 == 0) {
+                expected = "w" + i;
+            } else {
+                expected = "v" + i;
+            }
+            if (m.hasKey(key) != (expected != null)
+                    || (expected != null && !m.value(key).equals(expected))) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Worker thread running {@code work} on a shared map.
+     */
+    private static final class Worker extends Thread {
+
+        /**
+         * The shared map.
+         */
+        private final Map<String, String> map;
+
+        /**
+         * The thread number.
+         */
+        private final int id;
+
+        /**
+         * The number of mismatches seen by {@code work}.
+         */
+        private int mismatches;
+
+        /**
+         * Constructor.
+         *
+         * @param map
+         *            the shared map
+         * @param id
+         *            the thread number
+         */
+        Worker(Map<String, String> map, int id) {
+            this.map = map;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            this.mismatches = work(this.map, this.id);
+        }
+
+    }
+
+    /**
+     * Adds the shared keys to {@code m}.
+     *
+     * @param m
+     *            the map
+     * @updates m
+     */
+    private static void addSharedKeys(Map<String, String> m) {
+        for (int i = 0; i < SHARED_KEYS; i++) {
+            m.add("shared:" + i, "s" + i);
+        }
+    }
+
+    /**
+     * Runs {@code THREADS} workers concurrently on {@code m} and the same work
+     * sequentially on a reference map, and checks that both end up the same.
+     *
+     * @param m
+     *            the map under test
+     * @updates m
+     * @requires m = {}
+     */
+    private void stress(Map<String, String> m) {
+        /*
+         * Set up variables
+         */
+        Map<String, String> mExpected = this.constructorRef();
+        addSharedKeys(m);
+        addSharedKeys(mExpected);
+        for (int id = 0; id < THREADS; id++) {
+            assertEquals(0, work(mExpected, id));
+        }
+        Worker[] workers = new Worker[THREADS];
+        for (int id = 0; id < THREADS; id++) {
+            workers[id] = new Worker(m, id);
+        }
+
+        /*
+         * Call method under test
+         */
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted waiting for " + worker);
+            }
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        for (Worker worker : workers) {
+            assertEquals(0, worker.mismatches);
+        }
+        assertEquals(mExpected.size(), m.size());
+        assertEquals(mExpected, m);
+    }
+
+    /*
+     * Stress test with many stripes
+     */
+    @Test
+    public final void testConcurrent_1() {
+        this.stress(new Map4Striped<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_STRIPES));
+    }
+
+    /*
+     * Stress test with a single stripe, i.e., one global lock
+     */
+    @Test
+    public final void testConcurrent_2() {
+        this.stress(new Map4Striped<String, String>(TEST_HASH_TABLE_SIZE, 1));
+    }
+
+    /*
+     * Stress test with a tiny hash table, so all threads hit the same buckets
+     */
+    @Test
+    public final void testConcurrent_3() {
+        this.stress(new Map4Striped<String, String>(1, TEST_STRIPES));
+    }
+
+    /*
+     * Test that stripes never outnumber buckets
+     */
+    @Test
+    public final void testStripeCount_1() {
+        /*
+         * Set up variables
+         */
+        Map4Striped<String, String> m = new Map4Striped<String, String>(3,
+                TEST_STRIPES, HashStrategies.IDENTITY);
+
+        /*
+         * Call method under test
+         */
+        int stripes = m.stripeCount();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(m.capacity(), stripes);
+    }
+
+}
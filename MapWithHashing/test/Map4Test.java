@@ -1,3 +1,8 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
 import components.map.Map;
 import components.map.Map1L;
 
@@ -6,6 +11,11 @@ import components.map.Map1L;
  */
 public class Map4Test extends MapTest {
 
+    /**
+     * Number of rounds of the clear-heavy workload.
+     */
+    private static final int CLEAR_ROUNDS = 10000;
+
     @Override
     protected final Map<String, String> constructorTest() {
         return new Map4<String, String>();
@@ -16,4 +26,205 @@ public class Map4Test extends MapTest {
         return new Map1L<String, String>();
     }
 
+    /*
+     * Test that a new map creates no buckets, even after lookups
+     */
+    @Test
+    public final void testCreatedBuckets_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+
+        /*
+         * Call method under test
+         */
+        boolean hasKey = m.hasKey("a");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertFalse(hasKey);
+        assertEquals(0, m.createdBucketCount());
+    }
+
+    /*
+     * Test that buckets are created only for slots that receive entries
+     */
+    @Test
+    public final void testCreatedBuckets_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+
+        /*
+         * Call method under test
+         */
+        m.add("a", "1");
+        m.add("b", "2");
+        m.add("c", "3");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(3, m.createdBucketCount());
+        assertEquals("2", m.value("b"));
+    }
+
+    /*
+     * Test a clear- and transferFrom-heavy workload: none of the emptied maps
+     * holds a bucket, where previously each held 101
+     */
+    @Test
+    public final void testCreatedBuckets_3() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        Map4<String, String> other = new Map4<String, String>();
+        int created = 0;
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < CLEAR_ROUNDS; i++) {
+            m.add("key", "value");
+            other.transferFrom(m);
+            created += m.createdBucketCount();
+            other.clear();
+            created += other.createdBucketCount();
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, created);
+        assertEquals(0, m.size());
+        assertEquals(0, other.size());
+    }
+
+    /*
+     * Test statistics of a new map
+     */
+    @Test
+    public final void testStatistics_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+
+        /*
+         * Call method under test
+         */
+        Map4Statistics stats = m.statistics();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(m.capacity(), stats.bucketCount());
+        assertEquals(0, stats.entryCount());
+        assertEquals(0, stats.maxBucketLength());
+        assertEquals(0, stats.bucketLengthPercentile(99));
+        assertEquals(1.0, stats.emptyBucketRatio(), 0.0);
+        assertEquals(0, stats.lookups());
+        assertEquals(0.0, stats.meanProbes(), 0.0);
+    }
+
+    /*
+     * Test bucket lengths and lookup counts after some adds and lookups
+     */
+    @Test
+    public final void testStatistics_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        m.add("a", "1");
+        m.add("b", "2");
+        m.add("c", "3");
+        m.setLookupCounting(true);
+
+        /*
+         * Call method under test
+         */
+        m.hasKey("a");
+        m.value("b");
+        m.hasKey("z");
+        Map4Statistics stats = m.statistics();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        int buckets = m.capacity();
+        assertEquals(buckets, stats.bucketCount());
+        assertEquals(3, stats.entryCount());
+        assertEquals(buckets - 3, stats.bucketsOfLength(0));
+        assertEquals(3, stats.bucketsOfLength(1));
+        assertEquals(1, stats.maxBucketLength());
+        assertEquals(1, stats.bucketLengthPercentile(99));
+        assertEquals(0, stats.bucketLengthPercentile(50));
+        assertEquals(3.0 / buckets, stats.meanBucketLength(), 1e-9);
+        assertEquals((buckets - 3.0) / buckets, stats.emptyBucketRatio(),
+                1e-9);
+        assertEquals(3, stats.lookups());
+        assertEquals(2, stats.probes());
+    }
+
+    /*
+     * Test that resetLookupCounts clears only the lookup counts
+     */
+    @Test
+    public final void testStatistics_3() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        m.add("a", "1");
+        m.setLookupCounting(true);
+        m.hasKey("a");
+
+        /*
+         * Call method under test
+         */
+        m.resetLookupCounts();
+        Map4Statistics stats = m.statistics();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, stats.lookups());
+        assertEquals(0, stats.probes());
+        assertEquals(1, stats.entryCount());
+    }
+
+    /*
+     * Test that lookups are not counted unless counting is turned on, and
+     * not after it is turned off again
+     */
+    @Test
+    public final void testStatistics_4() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        m.add("a", "1");
+
+        /*
+         * Call method under test
+         */
+        m.hasKey("a");
+        m.setLookupCounting(true);
+        m.value("a");
+        m.setLookupCounting(false);
+        m.hasKey("z");
+        Map4Statistics stats = m.statistics();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(1, stats.lookups());
+        assertEquals(1, stats.probes());
+    }
+
 }
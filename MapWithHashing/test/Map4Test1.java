@@ -0,0 +1,424 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using non-default constructor
+ * and hash table size 1, so that every key collides and buckets are
+ * treeified.
+ */
+public class Map4Test1 extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 1;
+
+    /**
+     * Size of hash table for the colliding-key tests.
+     */
+    private static final int COLLISION_HASH_TABLE_SIZE = 101;
+
+    /**
+     * Letters permuted to make colliding keys.
+     */
+    private static final String LETTERS = "abcdefg";
+
+    /**
+     * Number of colliding keys used in tests.
+     */
+    private static final int COLLIDING_KEYS = 1000;
+
+    /**
+     * Bound on the probe length of a lookup among {@code COLLIDING_KEYS}
+     * colliding keys: the height bound 1.44 log2(n + 2) of an AVL tree.
+     */
+    private static final int MAX_PROBE_LENGTH = 15;
+
+    /**
+     * Number of distinct whole-number keys in the {@code BigDecimal} tests,
+     * more than a bucket holds before it is treeified.
+     */
+    private static final int DECIMAL_KEYS = 20;
+
+    /**
+     * Number of entries in a bucket that is just large enough to be checked
+     * for treeifying, one more than {@code Map4}'s threshold.
+     */
+    private static final int CROWDED_BUCKET_SIZE = 9;
+
+    /**
+     * Key that collides with every other and compares equal to every other,
+     * so a bucket of them is never treeifiable; it counts the comparisons
+     * made between such keys.
+     */
+    private static final class TiedKey implements Comparable<TiedKey> {
+
+        /**
+         * Number of calls to {@code compareTo} so far.
+         */
+        private static int comparisons = 0;
+
+        /**
+         * The key number.
+         */
+        private final int number;
+
+        /**
+         * Constructor.
+         *
+         * @param number
+         *            the key number
+         */
+        TiedKey(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TiedKey
+                    && ((TiedKey) obj).number == this.number;
+        }
+
+        @Override
+        public int compareTo(TiedKey other) {
+            comparisons++;
+            return 0;
+        }
+
+    }
+
+    /**
+     * Key whose hash code is the sum of its characters, like
+     * {@code HashingExploration.hashCode}, so that anagrams collide.
+     */
+    private static final class SumKey implements Comparable<SumKey> {
+
+        /**
+         * The key text.
+         */
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param text
+         *            the key text
+         */
+        SumKey(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode() {
+            int sum = 0;
+            for (int i = 0; i < this.text.length(); i++) {
+                sum = sum + this.text.charAt(i);
+            }
+            return sum;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SumKey
+                    && ((SumKey) obj).text.equals(this.text);
+        }
+
+        @Override
+        public int compareTo(SumKey other) {
+            return this.text.compareTo(other.text);
+        }
+
+    }
+
+    /**
+     * Adds the first {@code n} permutations of {@code LETTERS}, in
+     * lexicographic order, to {@code m} and {@code mExpected}.
+     *
+     * @param m
+     *            the map under test
+     * @param mExpected
+     *            the reference map
+     * @param prefix
+     *            letters chosen so far
+     * @param rest
+     *            letters still to be placed
+     * @param n
+     *            the number of keys still to add
+     * @return the number of keys still to add afterwards
+     * @updates m, mExpected
+     */
+    private static int addPermutations(Map<SumKey, String> m,
+            Map<SumKey, String> mExpected, String prefix, String rest,
+            int n) {
+        int remaining = n;
+        if (rest.length() == 0) {
+            if (remaining > 0) {
+                m.add(new SumKey(prefix), prefix);
+                mExpected.add(new SumKey(prefix), prefix);
+                remaining--;
+            }
+        } else {
+            for (int i = 0; i < rest.length() && remaining > 0; i++) {
+                remaining = addPermutations(m, mExpected,
+                        prefix + rest.charAt(i),
+                        rest.substring(0, i) + rest.substring(i + 1),
+                        remaining);
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /*
+     * Test that lookups among colliding keys stay logarithmic
+     */
+    @Test
+    public final void testCollidingKeys_1() {
+        /*
+         * Set up variables
+         */
+        Map4<SumKey, String> m = new Map4<SumKey, String>(
+                COLLISION_HASH_TABLE_SIZE);
+        Map<SumKey, String> mExpected = new Map1L<SumKey, String>();
+
+        /*
+         * Call method under test
+         */
+        addPermutations(m, mExpected, "", LETTERS, COLLIDING_KEYS);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        for (Map.Pair<SumKey, String> pair : mExpected) {
+            assertEquals(pair.value(), m.value(pair.key()));
+            assertTrue(m.probeLength(pair.key()) <= MAX_PROBE_LENGTH);
+        }
+    }
+
+    /*
+     * Test that counted lookups in tree buckets count the nodes on the
+     * search path, as probeLength reports
+     */
+    @Test
+    public final void testCollidingKeysStatistics() {
+        /*
+         * Set up variables
+         */
+        Map4<SumKey, String> m = new Map4<SumKey, String>(
+                COLLISION_HASH_TABLE_SIZE);
+        Map<SumKey, String> mExpected = new Map1L<SumKey, String>();
+        addPermutations(m, mExpected, "", LETTERS, COLLIDING_KEYS);
+        long expectedProbes = 0;
+        for (Map.Pair<SumKey, String> pair : mExpected) {
+            expectedProbes += m.probeLength(pair.key());
+        }
+
+        /*
+         * Call method under test
+         */
+        m.setLookupCounting(true);
+        for (Map.Pair<SumKey, String> pair : mExpected) {
+            assertEquals(pair.value(), m.value(pair.key()));
+        }
+        Map4Statistics stats = m.statistics();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(COLLIDING_KEYS, stats.lookups());
+        assertEquals(expectedProbes, stats.probes());
+    }
+
+    /*
+     * Test that a treeified bucket shrinks back and stays consistent
+     */
+    @Test
+    public final void testCollidingKeys_2() {
+        /*
+         * Set up variables
+         */
+        Map4<SumKey, String> m = new Map4<SumKey, String>(
+                COLLISION_HASH_TABLE_SIZE);
+        Map<SumKey, String> mExpected = new Map1L<SumKey, String>();
+        addPermutations(m, mExpected, "", LETTERS, COLLIDING_KEYS);
+
+        /*
+         * Call method under test
+         */
+        while (m.size() > 2) {
+            Map.Pair<SumKey, String> pair = m.removeAny();
+            assertEquals(pair.value(), mExpected.remove(pair.key()).value());
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        for (Map.Pair<SumKey, String> pair : mExpected) {
+            assertEquals(2, m.probeLength(pair.key()));
+        }
+    }
+
+    /*
+     * Test that forEach and the iterator visit the entries of tree buckets
+     */
+    @Test
+    public final void testForEach_1() {
+        /*
+         * Set up variables
+         */
+        Map4<SumKey, String> m = new Map4<SumKey, String>(
+                COLLISION_HASH_TABLE_SIZE);
+        Map<SumKey, String> mExpected = new Map1L<SumKey, String>();
+        addPermutations(m, mExpected, "", LETTERS, COLLIDING_KEYS);
+        Map<SumKey, String> seen = new Map1L<SumKey, String>();
+        Map<SumKey, String> iterated = new Map1L<SumKey, String>();
+
+        /*
+         * Call method under test
+         */
+        m.forEach((key, value) -> seen.add(key, value));
+        for (Map.Pair<SumKey, String> pair : m) {
+            iterated.add(pair.key(), pair.value());
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(mExpected, seen);
+        assertEquals(mExpected, iterated);
+    }
+
+    /*
+     * Test keys whose ordering is inconsistent with equals: BigDecimal 1.0
+     * and 1.00 compare equal but are different keys, in a crowded bucket
+     */
+    @Test
+    public final void testInconsistentOrdering_1() {
+        /*
+         * Set up variables
+         */
+        Map4<BigDecimal, String> m = new Map4<BigDecimal, String>(
+                TEST_HASH_TABLE_SIZE);
+        Map<BigDecimal, String> mExpected = new Map1L<BigDecimal, String>();
+        for (int i = 0; i < DECIMAL_KEYS; i++) {
+            m.add(new BigDecimal(i), "v" + i);
+            mExpected.add(new BigDecimal(i), "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        boolean hadKey = m.hasKey(new BigDecimal("1.0"));
+        m.add(new BigDecimal("1.0"), "one point zero");
+        mExpected.add(new BigDecimal("1.0"), "one point zero");
+        m.add(new BigDecimal("1.00"), "one point zero zero");
+        mExpected.add(new BigDecimal("1.00"), "one point zero zero");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertFalse(hadKey);
+        assertEquals(mExpected, m);
+        assertEquals("v1", m.value(new BigDecimal(1)));
+        assertEquals("one point zero", m.value(new BigDecimal("1.0")));
+        assertEquals("one point zero zero", m.value(new BigDecimal("1.00")));
+        assertFalse(m.hasKey(new BigDecimal("1.000")));
+    }
+
+    /*
+     * Test that a crowded bucket holding keys that compare equal without
+     * being equal stays consistent as it grows and shrinks
+     */
+    @Test
+    public final void testInconsistentOrdering_2() {
+        /*
+         * Set up variables
+         */
+        Map4<BigDecimal, String> m = new Map4<BigDecimal, String>(
+                TEST_HASH_TABLE_SIZE);
+        Map<BigDecimal, String> mExpected = new Map1L<BigDecimal, String>();
+        m.add(new BigDecimal("2.0"), "two point zero");
+        mExpected.add(new BigDecimal("2.0"), "two point zero");
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < DECIMAL_KEYS; i++) {
+            m.add(new BigDecimal(i), "v" + i);
+            mExpected.add(new BigDecimal(i), "v" + i);
+        }
+        Map.Pair<BigDecimal, String> removed = m.remove(new BigDecimal(2));
+        mExpected.remove(new BigDecimal(2));
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("v2", removed.value());
+        assertEquals(mExpected, m);
+        assertEquals("two point zero", m.value(new BigDecimal("2.0")));
+        assertFalse(m.hasKey(new BigDecimal(2)));
+        while (m.size() > 0) {
+            Map.Pair<BigDecimal, String> pair = m.removeAny();
+            assertEquals(pair.value(), mExpected.remove(pair.key()).value());
+        }
+        assertEquals(mExpected, m);
+    }
+
+    /*
+     * Test that a crowded bucket found not to be treeifiable is not checked
+     * again on every add: the keys are compared only by the first check
+     */
+    @Test
+    public final void testUntreeifiableBucketNotRechecked() {
+        /*
+         * Set up variables
+         */
+        Map4<TiedKey, String> m = new Map4<TiedKey, String>(
+                COLLISION_HASH_TABLE_SIZE);
+        for (int i = 0; i < CROWDED_BUCKET_SIZE; i++) {
+            m.add(new TiedKey(i), "v" + i);
+        }
+        int comparisonsAfterFirstCheck = TiedKey.comparisons;
+
+        /*
+         * Call method under test
+         */
+        for (int i = CROWDED_BUCKET_SIZE; i < COLLIDING_KEYS; i++) {
+            m.add(new TiedKey(i), "v" + i);
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(comparisonsAfterFirstCheck > 0);
+        assertEquals(comparisonsAfterFirstCheck, TiedKey.comparisons);
+        assertEquals(COLLIDING_KEYS, m.size());
+        assertEquals("v0", m.value(new TiedKey(0)));
+    }
+
+}
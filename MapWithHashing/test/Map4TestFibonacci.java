@@ -0,0 +1,99 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using Fibonacci hashing with
+ * a resizable, shrinkable hash table.
+ */
+public class Map4TestFibonacci extends MapTest {
+
+    /**
+     * Initial size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 4;
+
+    /**
+     * Load factor to be used in tests.
+     */
+    private static final double TEST_LOAD_FACTOR = 0.75;
+
+    /**
+     * Number of entries added by the resizing test.
+     */
+    private static final int TEST_ENTRIES = 1000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR,
+                true, HashStrategies.FIBONACCI);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /*
+     * Test that the table stays a power of 2 as it grows
+     */
+    @Test
+    public final void testGrow_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true, HashStrategies.FIBONACCI);
+        Map<String, String> mExpected = this.constructorRef();
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            m.add(Integer.toString(i), "v" + i);
+            mExpected.add(Integer.toString(i), "v" + i);
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(1, Integer.bitCount(m.capacity()));
+    }
+
+    /*
+     * Test that transferFrom between maps with different strategies keeps
+     * the entries reachable
+     */
+    @Test
+    public final void testTransferFrom_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        Map4<String, String> source = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, HashStrategies.FIBONACCI);
+        Map<String, String> mExpected = this.constructorRef();
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            source.add(Integer.toString(i), "v" + i);
+            mExpected.add(Integer.toString(i), "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        m.transferFrom(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(HashStrategies.FIBONACCI, m.hashStrategy());
+        assertEquals(HashStrategies.FIBONACCI, source.hashStrategy());
+        assertEquals(0, source.size());
+    }
+
+}
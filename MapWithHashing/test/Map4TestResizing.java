@@ -0,0 +1,424 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using a resizable, shrinkable
+ * hash table that starts with a single bucket.
+ */
+public class Map4TestResizing extends MapTest {
+
+    /**
+     * Initial size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 1;
+
+    /**
+     * Load factor to be used in tests.
+     */
+    private static final double TEST_LOAD_FACTOR = 0.75;
+
+    /**
+     * Number of entries added by the resizing tests.
+     */
+    private static final int TEST_ENTRIES = 1000;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR,
+                true);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+    /**
+     * Adds entries "0" through "n - 1" to both maps.
+     *
+     * @param m
+     *            the map under test
+     * @param mExpected
+     *            the reference map
+     * @param n
+     *            the number of entries to add
+     * @updates m, mExpected
+     */
+    private static void addEntries(Map<String, String> m,
+            Map<String, String> mExpected, int n) {
+        for (int i = 0; i < n; i++) {
+            m.add(Integer.toString(i), "v" + i);
+            mExpected.add(Integer.toString(i), "v" + i);
+        }
+    }
+
+    /*
+     * Test that the hash table grows past its load factor
+     */
+    @Test
+    public final void testGrow_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+
+        /*
+         * Call method under test
+         */
+        addEntries(m, mExpected, TEST_ENTRIES);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(TEST_LOAD_FACTOR, m.loadFactor(), 0.0);
+        assertTrue(m.size() <= 2 * TEST_LOAD_FACTOR * m.capacity());
+    }
+
+    /*
+     * Test that hasKey and value see entries not yet migrated
+     */
+    @Test
+    public final void testGrow_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+        int n = 0;
+
+        /*
+         * Call method under test
+         */
+        while (!m.isRehashing()) {
+            m.add(Integer.toString(n), "v" + n);
+            mExpected.add(Integer.toString(n), "v" + n);
+            n++;
+        }
+        while (m.isRehashing()) {
+            m.add(Integer.toString(n), "v" + n);
+            mExpected.add(Integer.toString(n), "v" + n);
+            for (int i = 0; i <= n; i++) {
+                String key = Integer.toString(i);
+                assertTrue(m.hasKey(key));
+                assertEquals("v" + i, m.value(key));
+            }
+            n++;
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertFalse(m.hasKey(Integer.toString(n)));
+    }
+
+    /*
+     * Test that a shrinkable hash table shrinks as it empties
+     */
+    @Test
+    public final void testShrink_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+        addEntries(m, mExpected, TEST_ENTRIES);
+        int grownCapacity = m.capacity();
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < TEST_ENTRIES; i++) {
+            String key = Integer.toString(i);
+            assertEquals(mExpected.remove(key), m.remove(key));
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertTrue(m.capacity() < grownCapacity);
+    }
+
+    /*
+     * Test that a non-shrinkable hash table keeps its capacity
+     */
+    @Test
+    public final void testShrink_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, false);
+        Map<String, String> mExpected = this.constructorRef();
+        addEntries(m, mExpected, TEST_ENTRIES);
+        while (m.isRehashing()) {
+            m.replaceValue("0", "v0");
+        }
+        int grownCapacity = m.capacity();
+
+        /*
+         * Call method under test
+         */
+        while (m.size() > 0) {
+            mExpected.remove(m.removeAny().key());
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(grownCapacity, m.capacity());
+    }
+
+    /*
+     * Test that transferFrom carries an in-progress rehash along
+     */
+    @Test
+    public final void testTransferFrom_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> source = new Map4<String, String>(
+                TEST_HASH_TABLE_SIZE, TEST_LOAD_FACTOR, true);
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+        int n = 0;
+        while (!source.isRehashing()) {
+            source.add(Integer.toString(n), "v" + n);
+            mExpected.add(Integer.toString(n), "v" + n);
+            n++;
+        }
+
+        /*
+         * Call method under test
+         */
+        m.transferFrom(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertTrue(m.isRehashing());
+        assertFalse(source.isRehashing());
+        assertEquals(0, source.size());
+        assertEquals(TEST_HASH_TABLE_SIZE, source.capacity());
+    }
+
+    /*
+     * Test that a fixed-size hash table never resizes
+     */
+    @Test
+    public final void testFixedSize_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        Map<String, String> mExpected = this.constructorRef();
+        int capacity = m.capacity();
+
+        /*
+         * Call method under test
+         */
+        addEntries(m, mExpected, TEST_ENTRIES);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(capacity, m.capacity());
+        assertFalse(m.isRehashing());
+    }
+
+    /*
+     * Test that a hash table gets exactly the size given to the constructor,
+     * even when it is even, and grows from n to 2n + 1 buckets
+     */
+    @Test
+    public final void testFixedSize_2() {
+        /*
+         * Set up variables
+         */
+        final int size = 100;
+        Map4<String, String> fixed = new Map4<String, String>(size);
+        Map4<String, String> m = new Map4<String, String>(size,
+                TEST_LOAD_FACTOR, false);
+        Map<String, String> mExpected = this.constructorRef();
+
+        /*
+         * Call method under test
+         */
+        addEntries(m, mExpected, (int) (TEST_LOAD_FACTOR * size) + 1);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(size, fixed.capacity());
+        assertEquals(2, new Map4<String, String>(2).capacity());
+        assertEquals(mExpected, m);
+        assertEquals(2 * size + 1, m.capacity());
+    }
+
+    /*
+     * Test that a presized map holds its expected size without growing
+     */
+    @Test
+    public final void testWithExpectedSize_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = Map4.withExpectedSize(TEST_ENTRIES);
+        Map<String, String> mExpected = this.constructorRef();
+        int capacity = m.capacity();
+
+        /*
+         * Call method under test
+         */
+        addEntries(m, mExpected, TEST_ENTRIES);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(capacity, m.capacity());
+        assertFalse(m.isRehashing());
+    }
+
+    /*
+     * Test addAll into an empty map, resizing once
+     */
+    @Test
+    public final void testAddAll_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> source = this.constructorRef();
+        Map<String, String> sourceExpected = this.constructorRef();
+        addEntries(source, sourceExpected, TEST_ENTRIES);
+
+        /*
+         * Call method under test
+         */
+        m.addAll(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sourceExpected, m);
+        assertEquals(sourceExpected, source);
+        assertFalse(m.isRehashing());
+        assertTrue(m.size() <= TEST_LOAD_FACTOR * m.capacity());
+    }
+
+    /*
+     * Test addAll into a map in the middle of a rehash
+     */
+    @Test
+    public final void testAddAll_2() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+        int n = 0;
+        while (!m.isRehashing()) {
+            m.add(Integer.toString(n), "v" + n);
+            mExpected.add(Integer.toString(n), "v" + n);
+            n++;
+        }
+        Map<String, String> source = this.constructorRef();
+        for (int i = n; i < TEST_ENTRIES; i++) {
+            source.add(Integer.toString(i), "v" + i);
+            mExpected.add(Integer.toString(i), "v" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        m.addAll(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertFalse(m.isRehashing());
+        for (Map.Pair<String, String> pair : mExpected) {
+            assertEquals(pair.value(), m.value(pair.key()));
+        }
+    }
+
+    /*
+     * Test addAll into a fixed-size hash table, which never resizes
+     */
+    @Test
+    public final void testAddAll_3() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>();
+        Map<String, String> mExpected = this.constructorRef();
+        m.add("a", "1");
+        mExpected.add("a", "1");
+        Map<String, String> source = this.constructorRef();
+        addEntries(source, mExpected, TEST_ENTRIES);
+        int capacity = m.capacity();
+
+        /*
+         * Call method under test
+         */
+        m.addAll(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(capacity, m.capacity());
+    }
+
+    /*
+     * Test that forEach visits every entry once in the middle of a rehash
+     */
+    @Test
+    public final void testForEach_1() {
+        /*
+         * Set up variables
+         */
+        Map4<String, String> m = new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_LOAD_FACTOR, true);
+        Map<String, String> mExpected = this.constructorRef();
+        int n = 0;
+        while (!m.isRehashing()) {
+            m.add(Integer.toString(n), "v" + n);
+            mExpected.add(Integer.toString(n), "v" + n);
+            n++;
+        }
+        Map<String, String> seen = this.constructorRef();
+
+        /*
+         * Call method under test
+         */
+        m.forEach((key, value) -> seen.add(key, value));
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(mExpected, m);
+        assertEquals(mExpected, seen);
+    }
+
+}
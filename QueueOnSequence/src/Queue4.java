@@ -0,0 +1,261 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.queue.Queue;
+import components.queue.QueueSecondary;
+
+/**
+ * {@code Queue} represented as a circular array (a ring buffer) whose length
+ * is a power of two, with implementations of primary methods.
+ *
+ * <p>
+ * The entries occupy {@code $this.length} consecutive positions of the array
+ * starting at {@code $this.head}, wrapping around from the last position to
+ * the first; since the array length is a power of two, wrapping is a mask
+ * rather than a remainder. {@code enqueue} doubles the array when it is full,
+ * so it takes amortized constant time and allocates nothing otherwise, and
+ * {@code dequeue}, {@code front}, {@code replaceFront} and {@code length}
+ * take constant time.
+ *
+ * @param <T>
+ *            type of {@code Queue} entries
+ * @convention <pre>
+ * [|$this.entries| is a power of two]  and
+ * |$this.entries| >= INITIAL_CAPACITY  and
+ * 0 <= $this.head < |$this.entries|  and
+ * 0 <= $this.length <= |$this.entries|  and
+ * [the entries at the |$this.entries| - $this.length positions from
+ *  ($this.head + $this.length) mod |$this.entries| on, wrapping around, are
+ *  null]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the entries at the $this.length positions from $this.head on,
+ *  wrapping around, in that order]
+ * </pre>
+ */
+public class Queue4<T> extends QueueSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Length of the array of a new queue; a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The circular array of entries.
+     */
+    private Object[] entries;
+
+    /**
+     * Position of the front entry.
+     */
+    private int head;
+
+    /**
+     * Number of entries, i.e., length = |this|.
+     */
+    private int length;
+
+    /**
+     * Returns the position {@code offset} positions after {@code head},
+     * wrapping around.
+     *
+     * @param offset
+     *            the distance from the front
+     * @return the position
+     * @requires 0 <= offset <= |$this.entries|
+     * @ensures position = ($this.head + offset) mod |$this.entries|
+     */
+    private int position(int offset) {
+        return (this.head + offset) & (this.entries.length - 1);
+    }
+
+    /**
+     * Doubles the length of the array, moving the entries to the start of the
+     * new one.
+     *
+     * @updates $this
+     * @ensures this = #this  and  |$this.entries| = 2 * |#$this.entries|
+     */
+    private void grow() {
+        Object[] old = this.entries;
+        Object[] bigger = new Object[2 * old.length];
+        int firstPart = old.length - this.head;
+        if (firstPart > this.length) {
+            firstPart = this.length;
+        }
+        System.arraycopy(old, this.head, bigger, 0, firstPart);
+        System.arraycopy(old, 0, bigger, firstPart, this.length - firstPart);
+        this.entries = bigger;
+        this.head = 0;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.entries = new Object[INITIAL_CAPACITY];
+        this.head = 0;
+        this.length = 0;
+    }
+
+    /*
+     * Constructor ------------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Queue4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Queue<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Queue<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Queue4<?> : ""
+                + "Violation of: source is of dynamic type Queue4<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Queue4<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Queue4<T> localSource = (Queue4<T>) source;
+        this.entries = localSource.entries;
+        this.head = localSource.head;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void enqueue(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        if (this.length == this.entries.length) {
+            this.grow();
+        }
+        this.entries[this.position(this.length)] = x;
+        this.length++;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T dequeue() {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        T front = (T) this.entries[this.head];
+        // let the entry be garbage collected.
+        this.entries[this.head] = null;
+        this.head = this.position(1);
+        this.length--;
+        return front;
+    }
+
+    @Override
+    public final int length() {
+        return this.length;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Queue4Iterator();
+    }
+
+    /*
+     * Other methods (overridden for performance reasons) ---------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T front() {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        return (T) this.entries[this.head];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T replaceFront(T x) {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        T front = (T) this.entries[this.head];
+        this.entries[this.head] = x;
+        return front;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Queue4}.
+     */
+    private final class Queue4Iterator implements Iterator<T> {
+
+        /**
+         * Distance from the front of the next entry.
+         */
+        private int offset;
+
+        /**
+         * No-argument constructor.
+         */
+        Queue4Iterator() {
+            this.offset = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.offset < Queue4.this.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = (T) Queue4.this.entries[Queue4.this.position(this.offset)];
+            this.offset++;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
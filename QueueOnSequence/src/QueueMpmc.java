@@ -0,0 +1,587 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, blocking queue for handing entries between any number of producer
+ * threads and any number of consumer threads, e.g., for fanning work out
+ * across cores. Entries are kept in a circular array guarded by one lock,
+ * with one condition for producers waiting for room and one for consumers
+ * waiting for entries.
+ *
+ * <p>
+ * {@code enqueue} waits while the queue is full, which throttles producers
+ * that get ahead of the consumers, and {@code dequeue} waits while it is
+ * empty; each has a variant that gives up after a timeout, and
+ * {@code tryEnqueue} and {@code tryDequeue} do not wait at all. For an orderly
+ * shutdown, {@code close} stops further entries from being added and wakes
+ * every waiting thread: producers then fail to add, and consumers take the
+ * entries left and then get null, which serves every consumer as its poison
+ * pill. A thread interrupted while waiting stops waiting, fails as on a
+ * timeout, and keeps its interrupt status set.
+ *
+ * <p>
+ * The queue keeps counters of how often and for how long producers and
+ * consumers had to wait, and of the longest length it reached, so that one
+ * can see whether producers are throttled (the queue runs full) or consumers
+ * are starved (it runs empty).
+ *
+ * @param <T>
+ *            type of {@code QueueMpmc} entries
+ * @convention <pre>
+ * 0 <= $this.head < |$this.entries|  and
+ * 0 <= $this.length <= |$this.entries|  and
+ * $this.length <= $this.maxLength  and
+ * [the entries at the |$this.entries| - $this.length positions from
+ *  ($this.head + $this.length) mod |$this.entries| on, wrapping around, are
+ *  null]  and
+ * [all fields other than entries, which is final, are only read or changed
+ *  while holding $this.lock]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the entries at the $this.length positions from $this.head on,
+ *  wrapping around, in that order]
+ * </pre>
+ */
+public final class QueueMpmc<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The circular array of entries.
+     */
+    private final Object[] entries;
+
+    /**
+     * Position of the front entry.
+     */
+    private int head;
+
+    /**
+     * Number of entries, i.e., length = |this|.
+     */
+    private int length;
+
+    /**
+     * Whether {@code close} has been called.
+     */
+    private boolean closed;
+
+    /**
+     * Lock guarding all other fields.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Condition producers wait on for room.
+     */
+    private final Condition notFull = this.lock.newCondition();
+
+    /**
+     * Condition consumers wait on for entries.
+     */
+    private final Condition notEmpty = this.lock.newCondition();
+
+    /**
+     * Longest length reached since the counters were last reset.
+     */
+    private int maxLength;
+
+    /**
+     * Number of enqueues that had to wait for room.
+     */
+    private long producerWaits;
+
+    /**
+     * Total time producers spent waiting for room, in nanoseconds.
+     */
+    private long producerWaitNanos;
+
+    /**
+     * Number of dequeues that had to wait for an entry.
+     */
+    private long consumerWaits;
+
+    /**
+     * Total time consumers spent waiting for entries, in nanoseconds.
+     */
+    private long consumerWaitNanos;
+
+    /**
+     * Adds {@code x} at the end of {@code this}.
+     *
+     * @param x
+     *            the entry to be added
+     * @updates this
+     * @requires <pre>
+     * [the current thread holds $this.lock]  and  |this| < capacity
+     * </pre>
+     * @ensures this = #this * <x>
+     */
+    private void insert(T x) {
+        this.entries[(this.head + this.length) % this.entries.length] = x;
+        this.length++;
+        if (this.length > this.maxLength) {
+            this.maxLength = this.length;
+        }
+        this.notEmpty.signal();
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this}.
+     *
+     * @return the front entry
+     * @updates this
+     * @requires [the current thread holds $this.lock]  and  this /= <>
+     * @ensures #this = <extract> * this
+     */
+    @SuppressWarnings("unchecked")
+    private T extract() {
+        T front = (T) this.entries[this.head];
+        // let the entry be garbage collected.
+        this.entries[this.head] = null;
+        this.head = (this.head + 1) % this.entries.length;
+        this.length--;
+        this.notFull.signal();
+        return front;
+    }
+
+    /**
+     * Waits on {@code condition} while {@code isBlocked(producer)} reports
+     * that the caller cannot go on, for at most {@code nanos} nanoseconds, or
+     * without limit if {@code nanos} is negative; adds the wait to the
+     * counters of the caller's side. With {@code nanos} = 0 it does not wait,
+     * so nothing is counted, as for a caller that can go on at once.
+     *
+     * @param condition
+     *            the condition to wait on
+     * @param producer
+     *            whether the caller is a producer
+     * @param nanos
+     *            the longest time to wait, or a negative number for no limit
+     * @updates this
+     * @requires [the current thread holds $this.lock]
+     * @ensures <pre>
+     * this = #this  and
+     * [the caller's side's counters include this wait, if nanos /= 0 and
+     *  the caller could not go on at once]  and
+     * [returns once the caller can go on, $this.closed holds, the time is up,
+     *  or the thread was interrupted, in which case its interrupt status is
+     *  set]
+     * </pre>
+     */
+    private void await(Condition condition, boolean producer, long nanos) {
+        boolean mustWait = nanos != 0 && this.isBlocked(producer);
+        if (mustWait) {
+            long start = System.nanoTime();
+            long remaining = nanos;
+            try {
+                while (this.isBlocked(producer)
+                        && (nanos < 0 || remaining > 0)) {
+                    if (nanos < 0) {
+                        condition.await();
+                    } else {
+                        remaining = condition.awaitNanos(remaining);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long waited = System.nanoTime() - start;
+            if (producer) {
+                this.producerWaits++;
+                this.producerWaitNanos += waited;
+            } else {
+                this.consumerWaits++;
+                this.consumerWaitNanos += waited;
+            }
+        }
+    }
+
+    /**
+     * Reports whether a producer (or consumer) has to wait: {@code this} is
+     * open and full (or empty).
+     *
+     * @param producer
+     *            whether to report for a producer
+     * @return true iff the caller has to wait
+     * @requires [the current thread holds $this.lock]
+     * @ensures <pre>
+     * isBlocked = not $this.closed  and
+     *  (if producer then |this| = capacity else |this| = 0)
+     * </pre>
+     */
+    private boolean isBlocked(boolean producer) {
+        boolean blocked;
+        if (producer) {
+            blocked = this.length == this.entries.length;
+        } else {
+            blocked = this.length == 0;
+        }
+        return !this.closed && blocked;
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this}, waiting for room for at most
+     * {@code nanos} nanoseconds, or without limit if {@code nanos} is
+     * negative, and reports whether it did.
+     *
+     * @param x
+     *            the entry to be added
+     * @param nanos
+     *            the longest time to wait, or a negative number for no limit
+     * @return true iff {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     */
+    private boolean put(T x, long nanos) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean added = false;
+        this.lock.lock();
+        try {
+            this.await(this.notFull, true, nanos);
+            if (!this.closed && this.length < this.entries.length) {
+                this.insert(x);
+                added = true;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, waiting for
+     * an entry for at most {@code nanos} nanoseconds, or without limit if
+     * {@code nanos} is negative; returns null if there is none.
+     *
+     * @param nanos
+     *            the longest time to wait, or a negative number for no limit
+     * @return the front entry, or null
+     * @updates this
+     */
+    private T take(long nanos) {
+        T front = null;
+        this.lock.lock();
+        try {
+            this.await(this.notEmpty, false, nanos);
+            if (this.length > 0) {
+                front = this.extract();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return front;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from the capacity.
+     *
+     * @param capacity
+     *            the number of entries the queue can hold
+     * @requires capacity > 0
+     * @ensures this = <>  and  [this.capacity() = capacity]
+     */
+    public QueueMpmc(int capacity) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+
+        this.entries = new Object[capacity];
+        this.head = 0;
+        this.length = 0;
+        this.closed = false;
+    }
+
+    /*
+     * Producer methods -------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} at the end of {@code this}, waiting while {@code this} is
+     * full, and reports whether it did; it does not if {@code this} is or
+     * becomes closed, or the thread is interrupted while waiting.
+     *
+     * @param x
+     *            the entry to be added
+     * @return true iff {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures <pre>
+     * if enqueue then this = [#this, once there was room] * <x>
+     * </pre>
+     */
+    public boolean enqueue(T x) {
+        return this.put(x, -1);
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this}, waiting at most
+     * {@code timeout} while {@code this} is full, and reports whether it did;
+     * it does not if the time is up, {@code this} is or becomes closed, or the
+     * thread is interrupted while waiting.
+     *
+     * @param x
+     *            the entry to be added
+     * @param timeout
+     *            the longest time to wait
+     * @param unit
+     *            the unit of {@code timeout}
+     * @return true iff {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @requires timeout >= 0
+     * @ensures <pre>
+     * if enqueue then this = [#this, once there was room] * <x>
+     * </pre>
+     */
+    public boolean enqueue(T x, long timeout, TimeUnit unit) {
+        assert timeout >= 0 : "Violation of: timeout >= 0";
+        assert unit != null : "Violation of: unit is not null";
+
+        return this.put(x, unit.toNanos(timeout));
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this} if there is room and
+     * {@code this} is open, without waiting, and reports whether it did.
+     *
+     * @param x
+     *            the entry to be added
+     * @return true iff {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @ensures <pre>
+     * if |#this| < capacity  and  [this is open]
+     *  then (this = #this * <x>  and  tryEnqueue = true)
+     *  else (this = #this  and  tryEnqueue = false)
+     * </pre>
+     */
+    public boolean tryEnqueue(T x) {
+        return this.put(x, 0);
+    }
+
+    /**
+     * Closes {@code this}: no more entries can be added, and every waiting
+     * producer and consumer is woken. Consumers still get the entries left,
+     * and then null.
+     *
+     * @updates this
+     * @ensures this = #this  and  [this is closed]
+     */
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notFull.signalAll();
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /*
+     * Consumer methods -------------------------------------------------------
+     */
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, waiting
+     * while {@code this} is empty; returns null if {@code this} is empty and
+     * closed, or the thread is interrupted while waiting.
+     *
+     * @return the front entry, or null
+     * @updates this
+     * @ensures <pre>
+     * if dequeue /= null then
+     *  [#this, once it had an entry] = <dequeue> * this
+     * </pre>
+     */
+    public T dequeue() {
+        return this.take(-1);
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, waiting at
+     * most {@code timeout} while {@code this} is empty; returns null if the
+     * time is up, {@code this} is empty and closed, or the thread is
+     * interrupted while waiting.
+     *
+     * @param timeout
+     *            the longest time to wait
+     * @param unit
+     *            the unit of {@code timeout}
+     * @return the front entry, or null
+     * @updates this
+     * @requires timeout >= 0
+     * @ensures <pre>
+     * if dequeue /= null then
+     *  [#this, once it had an entry] = <dequeue> * this
+     * </pre>
+     */
+    public T dequeue(long timeout, TimeUnit unit) {
+        assert timeout >= 0 : "Violation of: timeout >= 0";
+        assert unit != null : "Violation of: unit is not null";
+
+        return this.take(unit.toNanos(timeout));
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, without
+     * waiting, or returns null if {@code this} is empty.
+     *
+     * @return the front entry, or null
+     * @updates this
+     * @ensures <pre>
+     * if #this = <>
+     *  then (this = <>  and  tryDequeue = null)
+     *  else #this = <tryDequeue> * this
+     * </pre>
+     */
+    public T tryDequeue() {
+        return this.take(0);
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the length of {@code this}, i.e., its depth.
+     *
+     * @return the length of {@code this}
+     * @ensures length = |this|
+     */
+    public int length() {
+        this.lock.lock();
+        try {
+            return this.length;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the number of entries {@code this} can hold.
+     *
+     * @return the capacity of {@code this}
+     * @ensures capacity = |$this.entries|
+     */
+    public int capacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * Reports whether {@code this} has been closed.
+     *
+     * @return true iff {@code close} has been called
+     */
+    public boolean isClosed() {
+        this.lock.lock();
+        try {
+            return this.closed;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the longest length {@code this} reached since it was created or
+     * its counters were last reset.
+     *
+     * @return the longest length reached
+     */
+    public int maxLength() {
+        this.lock.lock();
+        try {
+            return this.maxLength;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports how many enqueues had to wait for room since {@code this} was
+     * created or its counters were last reset.
+     *
+     * @return the number of enqueues that waited
+     */
+    public long producerWaits() {
+        this.lock.lock();
+        try {
+            return this.producerWaits;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the total time enqueues spent waiting for room since
+     * {@code this} was created or its counters were last reset.
+     *
+     * @return the total wait, in nanoseconds
+     */
+    public long producerWaitNanos() {
+        this.lock.lock();
+        try {
+            return this.producerWaitNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports how many dequeues had to wait for an entry since {@code this}
+     * was created or its counters were last reset.
+     *
+     * @return the number of dequeues that waited
+     */
+    public long consumerWaits() {
+        this.lock.lock();
+        try {
+            return this.consumerWaits;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the total time dequeues spent waiting for entries since
+     * {@code this} was created or its counters were last reset.
+     *
+     * @return the total wait, in nanoseconds
+     */
+    public long consumerWaitNanos() {
+        this.lock.lock();
+        try {
+            return this.consumerWaitNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Resets the wait counters to zero and the longest length to the current
+     * length.
+     *
+     * @updates this
+     * @ensures this = #this
+     */
+    public void resetCounters() {
+        this.lock.lock();
+        try {
+            this.maxLength = this.length;
+            this.producerWaits = 0;
+            this.producerWaitNanos = 0;
+            this.consumerWaits = 0;
+            this.consumerWaitNanos = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+}
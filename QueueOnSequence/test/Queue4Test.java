@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+
+/**
+ * Customized JUnit test fixture for {@code Queue4}.
+ */
+public class Queue4Test extends QueueTest {
+
+    /**
+     * Number of entries in the larger tests, enough to make the array grow
+     * several times.
+     */
+    private static final int LARGE_SIZE = 1000;
+
+    @Override
+    protected final Queue<String> constructorTest() {
+        return new Queue4<String>();
+    }
+
+    @Override
+    protected final Queue<String> constructorRef() {
+        return new Queue1L<String>();
+    }
+
+    /*
+     * Test that the queue keeps its order while it wraps around the end of
+     * the array and while the array grows with the front in the middle
+     */
+    @Test
+    public final void testWrapAroundAndGrow() {
+        /*
+         * Set up variables
+         */
+        Queue<String> q = this.constructorTest();
+        Queue<String> qExpected = this.constructorRef();
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            q.enqueue("e" + i);
+            qExpected.enqueue("e" + i);
+            if (i % 3 == 0) {
+                assertEquals(qExpected.dequeue(), q.dequeue());
+            }
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(qExpected, q);
+        assertEquals(qExpected.length(), q.length());
+    }
+
+    /*
+     * Test replaceFront after the front has moved away from the start of the
+     * array
+     */
+    @Test
+    public final void testReplaceFrontWrapped() {
+        /*
+         * Set up variables
+         */
+        Queue<String> q = this.constructorTest();
+        Queue<String> qExpected = this.constructorRef();
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            q.enqueue("e" + i);
+            qExpected.enqueue("e" + i);
+            assertEquals(qExpected.dequeue(), q.dequeue());
+        }
+        q.enqueue("red");
+        q.enqueue("green");
+        qExpected.enqueue("red");
+        qExpected.enqueue("green");
+
+        /*
+         * Call method under test
+         */
+        String x = q.replaceFront("blue");
+        String xExpected = qExpected.replaceFront("blue");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(qExpected, q);
+        assertEquals(xExpected, x);
+        assertEquals("blue", q.front());
+    }
+
+}
@@ -0,0 +1,300 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code QueueMpmc}.
+ */
+public class QueueMpmcTest {
+
+    /**
+     * Number of producer threads, and of consumer threads, in the stress test.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Number of entries each producer adds in the stress test.
+     */
+    private static final int ENTRIES_PER_PRODUCER = 50_000;
+
+    /**
+     * Short timeout, in milliseconds, for waits that are meant to run out.
+     */
+    private static final long SHORT_WAIT = 20;
+
+    /**
+     * Waits until {@code t} is waiting on the queue.
+     *
+     * @param t
+     *            the thread
+     * @throws InterruptedException
+     *             if the current thread is interrupted
+     */
+    private static void waitUntilWaiting(Thread t)
+            throws InterruptedException {
+        while (t.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    /*
+     * Test that tryEnqueue fails only when the queue is full, that the
+     * entries come out in order across the end of the array, and that failed
+     * tries, which do not wait, are not counted as waits
+     */
+    @Test
+    public final void testTryEnqueueFullWrapAround() {
+        /*
+         * Set up variables
+         */
+        QueueMpmc<String> q = new QueueMpmc<String>(3);
+
+        /*
+         * Call method under test
+         */
+        boolean added = q.tryEnqueue("a") && q.tryEnqueue("b")
+                && q.tryEnqueue("c");
+        boolean addedWhenFull = q.tryEnqueue("full");
+        String first = q.tryDequeue();
+        boolean addedAfterDequeue = q.tryEnqueue("d");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(added);
+        assertFalse(addedWhenFull);
+        assertTrue(addedAfterDequeue);
+        assertEquals("a", first);
+        assertEquals("b", q.dequeue());
+        assertEquals("c", q.dequeue());
+        assertEquals("d", q.dequeue());
+        assertNull(q.tryDequeue());
+        assertNull(q.dequeue(0, TimeUnit.MILLISECONDS));
+        assertEquals(3, q.capacity());
+        assertEquals(3, q.maxLength());
+        assertEquals(0, q.length());
+        assertEquals(0, q.producerWaits());
+        assertEquals(0, q.consumerWaits());
+        assertEquals(0, q.producerWaitNanos());
+        assertEquals(0, q.consumerWaitNanos());
+    }
+
+    /*
+     * Test that the timed enqueue and dequeue give up when the queue stays
+     * full or empty, and that the waits are counted
+     */
+    @Test
+    public final void testTimeouts() {
+        /*
+         * Set up variables
+         */
+        QueueMpmc<String> q = new QueueMpmc<String>(1);
+
+        /*
+         * Call method under test
+         */
+        String fromEmpty = q.dequeue(SHORT_WAIT, TimeUnit.MILLISECONDS);
+        boolean added = q.enqueue("red", SHORT_WAIT, TimeUnit.MILLISECONDS);
+        boolean addedWhenFull = q.enqueue("blue", SHORT_WAIT,
+                TimeUnit.MILLISECONDS);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertNull(fromEmpty);
+        assertTrue(added);
+        assertFalse(addedWhenFull);
+        assertEquals(1, q.consumerWaits());
+        assertEquals(1, q.producerWaits());
+        assertTrue(q.consumerWaitNanos() >= TimeUnit.MILLISECONDS
+                .toNanos(SHORT_WAIT));
+        assertTrue(q.producerWaitNanos() >= TimeUnit.MILLISECONDS
+                .toNanos(SHORT_WAIT));
+        assertEquals("red", q.dequeue());
+    }
+
+    /*
+     * Test that a producer waits while the queue is full, goes on once a
+     * consumer makes room, and is counted as throttled
+     */
+    @Test
+    public final void testEnqueueWaitsForRoom() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        final QueueMpmc<String> q = new QueueMpmc<String>(1);
+        q.enqueue("red");
+        Thread producer = new Thread(() -> q.enqueue("blue"));
+
+        /*
+         * Call method under test
+         */
+        producer.start();
+        waitUntilWaiting(producer);
+        String first = q.dequeue();
+        producer.join();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("red", first);
+        assertEquals("blue", q.dequeue());
+        assertEquals(1, q.producerWaits());
+        assertEquals(0, q.consumerWaits());
+    }
+
+    /*
+     * Test that close wakes a waiting consumer, that enqueue fails after
+     * close, and that consumers get the entries left and then null
+     */
+    @Test
+    public final void testClose() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        final QueueMpmc<String> q = new QueueMpmc<String>(4);
+        final String[] taken = new String[1];
+        Thread consumer = new Thread(() -> taken[0] = q.dequeue());
+        consumer.start();
+        waitUntilWaiting(consumer);
+
+        /*
+         * Call method under test
+         */
+        q.close();
+        consumer.join();
+        boolean added = q.enqueue("red");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertNull(taken[0]);
+        assertFalse(added);
+        assertTrue(q.isClosed());
+        assertEquals(0, q.length());
+    }
+
+    /*
+     * Test that entries added before close are still handed out after it
+     */
+    @Test
+    public final void testDequeueAfterClose() {
+        /*
+         * Set up variables
+         */
+        QueueMpmc<String> q = new QueueMpmc<String>(4);
+        q.enqueue("red");
+        q.enqueue("blue");
+
+        /*
+         * Call method under test
+         */
+        q.close();
+        String first = q.dequeue();
+        String second = q.dequeue(SHORT_WAIT, TimeUnit.MILLISECONDS);
+        String third = q.dequeue();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("red", first);
+        assertEquals("blue", second);
+        assertNull(third);
+    }
+
+    /*
+     * Test that resetCounters clears the wait counters and sets the longest
+     * length to the current one
+     */
+    @Test
+    public final void testResetCounters() {
+        /*
+         * Set up variables
+         */
+        QueueMpmc<String> q = new QueueMpmc<String>(4);
+        q.enqueue("red");
+        q.enqueue("blue");
+        q.dequeue();
+        q.dequeue(SHORT_WAIT, TimeUnit.MILLISECONDS);
+        q.enqueue("green");
+
+        /*
+         * Call method under test
+         */
+        q.resetCounters();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(1, q.maxLength());
+        assertEquals(0, q.consumerWaits());
+        assertEquals(0, q.consumerWaitNanos());
+        assertEquals(0, q.producerWaits());
+        assertEquals(0, q.producerWaitNanos());
+    }
+
+    /*
+     * Test several producers and consumers through a small queue: every
+     * entry is taken exactly once, and close stops every consumer
+     */
+    @Test
+    public final void testProducersConsumers() throws InterruptedException {
+        /*
+         * Set up variables
+         */
+        final QueueMpmc<Integer> q = new QueueMpmc<Integer>(8);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        Thread[] producers = new Thread[THREADS];
+        Thread[] consumers = new Thread[THREADS];
+        for (int p = 0; p < THREADS; p++) {
+            final int base = p * ENTRIES_PER_PRODUCER;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < ENTRIES_PER_PRODUCER; i++) {
+                    q.enqueue(base + i);
+                }
+            });
+        }
+        for (int c = 0; c < THREADS; c++) {
+            consumers[c] = new Thread(() -> {
+                Integer x = q.dequeue();
+                while (x != null) {
+                    count.incrementAndGet();
+                    sum.addAndGet(x);
+                    x = q.dequeue();
+                }
+            });
+        }
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < THREADS; i++) {
+            consumers[i].start();
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        q.close();
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        long n = (long) THREADS * ENTRIES_PER_PRODUCER;
+        assertEquals(n, count.get());
+        assertEquals(n * (n - 1) / 2, sum.get());
+        assertEquals(0, q.length());
+        assertTrue(q.maxLength() <= q.capacity());
+    }
+
+}
@@ -1,13 +1,35 @@
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-import components.binarytree.BinaryTree;
-import components.binarytree.BinaryTree1;
+import components.queue.Queue;
+import components.queue.Queue1L;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of linked nodes, each
+ * holding an element, the size of its subtree and links to its children and
+ * its parent, with implementations of primary methods.
+ *
+ * <p>
+ * The tree is kept weight-balanced: the sizes of the two subtrees of every
+ * node are within a factor of {@code DELTA} of each other (counting one extra
+ * for each), rebalanced by rotations on the way back up from each insertion or
+ * removal. Its height is then O(log |this|) whatever order the elements are
+ * added in. {@code add}, {@code remove}, {@code removeAny} and
+ * {@code contains} walk down the tree, and back up along the parent links, in
+ * loops rather than by recursion, relinking nodes in place: they take
+ * O(log |this|) time, need no stack, and allocate nothing but the new node in
+ * {@code add}. The iterator visits the elements in increasing order by
+ * following the same links.
+ *
+ * <p>
+ * The subtree sizes give {@code kth} and {@code rank} in O(log |this|) time,
+ * and {@code range} in O(log |this| + k) time for k elements returned.
+ * {@code add(Set)}, {@code remove(Set)}, {@code unionWith},
+ * {@code intersectWith} and {@code differenceWith} merge two trees in order and
+ * rebuild a balanced one in O(|this| + |s|) time, and {@code split} and
+ * {@code join} cut and glue trees in O(log |this|) time.
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -18,9 +40,33 @@ import components.set.SetSecondary;
  *  [tree satisfies the binary search tree properties as described in the
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
+ *
+ * IS_WEIGHT_BALANCED(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every subtree of tree with left subtree l and right subtree r,
+ *   |l| + 1 <= DELTA * (|r| + 1)  and  |r| + 1 <= DELTA * (|l| + 1)]
+ *
+ * TREE(
+ *   n: Node
+ *  ): binary tree of T satisfies
+ *  [TREE(n) is the empty tree if n is null, and otherwise the tree with root
+ *   label n.data, left subtree TREE(n.left) and right subtree TREE(n.right)]
+ *
+ * IS_LINKED(
+ *   n: Node
+ *  ): boolean satisfies
+ *  [for every node m reachable from n through left and right links,
+ *   m.size = |TREE(m)|  and
+ *   (m.left is null  or  m.left.parent = m)  and
+ *   (m.right is null  or  m.right.parent = m)]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @convention <pre>
+ * IS_BST(TREE($this.root))  and  IS_WEIGHT_BALANCED(TREE($this.root))  and
+ * IS_LINKED($this.root)  and
+ * ($this.root is null  or  $this.root.parent is null)
+ * </pre>
+ * @correspondence this = labels(TREE($this.root))
  *
  * @author Zhao Liu
  * @author Zishu Ling
@@ -33,216 +79,740 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
 
     /**
-     * Elements included in {@code this}.
+     * Weight ratio above which two sibling subtrees are out of balance.
+     */
+    private static final int DELTA = 3;
+
+    /**
+     * Weight ratio below which a single rotation, rather than a double one,
+     * restores balance.
      */
-    private BinaryTree<T> tree;
+    private static final int GAMMA = 2;
 
     /**
-     * Returns whether {@code x} is in {@code t}.
+     * Node class for the tree.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
-     * @param x
-     *            the label to be searched for
-     * @return true if t contains x, false otherwise
-     * @requires IS_BST(t)
-     * @ensures isInTree = (x is in labels(t))
-     */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
-        assert x != null : "Violation of: x is not null";
+     *            type of the element in the node
+     */
+    private static final class Node<T> {
 
-        boolean exist = false;
+        /**
+         * Element in node.
+         */
+        private T data;
 
-        if (t.size() > 0) {
-            BinaryTree<T> leftNode = t.newInstance();
-            BinaryTree<T> rightNode = t.newInstance();
-            T node = t.disassemble(leftNode, rightNode);
+        /**
+         * Root of left subtree, or null.
+         */
+        private Node<T> left;
 
-            // checking for left nodes or right nodes.
-            if (x.compareTo(node) < 0) {
-                exist = isInTree(leftNode, x);
-            } else if (x.compareTo(node) > 0) {
-                exist = isInTree(rightNode, x);
-            } else {
-                exist = true;
-            }
+        /**
+         * Root of right subtree, or null.
+         */
+        private Node<T> right;
 
-            // restore the original node.
-            t.assemble(node, leftNode, rightNode);
-        }
+        /**
+         * Node whose subtree this is the root of, or null.
+         */
+        private Node<T> parent;
+
+        /**
+         * Number of nodes in the subtree rooted here.
+         */
+        private int size;
 
-        return exist;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Parts of a tree split at an element.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
+     *            type of the elements
+     */
+    private static final class Split<T> {
+
+        /**
+         * Root of the tree of elements less than the one split at, or null.
+         */
+        private Node<T> less;
+
+        /**
+         * Root of the tree of elements greater than the one split at, or null.
+         */
+        private Node<T> greater;
+
+        /**
+         * Node of the element split at, or null if it was not in the tree.
+         */
+        private Node<T> found;
+
+    }
+
+    /**
+     * Root of the tree, or null if {@code this} is empty.
+     */
+    private Node<T> root;
+
+    /**
+     * Returns a new node with no links holding {@code x}.
+     *
+     * @param <T>
+     *            type of the element
      * @param x
-     *            the label to be inserted
+     *            the element
+     * @return the new node
      * @aliases reference {@code x}
-     * @updates t
-     * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     * @ensures <pre>
+     * newNode.data = x  and  newNode.size = 1  and
+     * [newNode.left, newNode.right and newNode.parent are null]
+     * </pre>
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
-        assert x != null : "Violation of: x is not null";
+    private static <T> Node<T> newNode(T x) {
+        Node<T> n = new Node<T>();
+        n.data = x;
+        n.size = 1;
+        return n;
+    }
 
-        T nodeValue;
-        BinaryTree<T> leftNode = t.newInstance();
-        BinaryTree<T> rightNode = t.newInstance();
+    /**
+     * Returns the size of the subtree rooted at {@code n}.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the root, or null
+     * @return the size of the subtree
+     * @ensures sizeOf = |TREE(n)|
+     */
+    private static <T> int sizeOf(Node<T> n) {
+        int size = 0;
+        if (n != null) {
+            size = n.size;
+        }
+        return size;
+    }
 
-        if (t.size() != 0) {
-            // recursive to find the correct position for insertion element.
-            nodeValue = t.disassemble(leftNode, rightNode);
+    /**
+     * Sets the size of {@code n} from the sizes of its children.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the node
+     * @updates n.size
+     * @ensures n.size = 1 + sizeOf(n.left) + sizeOf(n.right)
+     */
+    private static <T> void updateSize(Node<T> n) {
+        n.size = 1 + sizeOf(n.left) + sizeOf(n.right);
+    }
 
-            if (x.compareTo(nodeValue) <= 0) {
-                // recursive loop the left node.
-                insertInTree(leftNode, x);
-            } else {
-                // recursive loop the right node.
-                insertInTree(rightNode, x);
-            }
+    /**
+     * Returns the node of the smallest element in the subtree rooted at
+     * {@code n}.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the root
+     * @return the left-most node below {@code n}
+     * @requires n is not null
+     * @ensures [first is the left-most node of TREE(n)]
+     */
+    private static <T> Node<T> first(Node<T> n) {
+        Node<T> p = n;
+        while (p.left != null) {
+            p = p.left;
+        }
+        return p;
+    }
 
-            // keeps the binary search tree balanced
-            t.inOrderAssemble(nodeValue, leftNode, rightNode);
+    /**
+     * Returns the node of the next larger element after that of {@code n}, or
+     * null if there is none.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the node
+     * @return the in-order successor of {@code n}, or null
+     * @requires n is not null
+     * @ensures [successor is the node after n in the in-order traversal of
+     *          the whole tree containing n, or null if n is the last]
+     */
+    private static <T> Node<T> successor(Node<T> n) {
+        Node<T> next;
+        if (n.right != null) {
+            next = first(n.right);
         } else {
-            // insertion is the smallest or largest value to insert.
-            t.assemble(x, leftNode, rightNode);
+            Node<T> child = n;
+            next = n.parent;
+            while (next != null && next.right == child) {
+                child = next;
+                next = next.parent;
+            }
         }
+        return next;
+    }
+
+    /**
+     * Reports whether a subtree of size {@code lightSize} is heavy enough to be
+     * the sibling of a subtree of size {@code heavySize}.
+     *
+     * @param lightSize
+     *            size of the lighter subtree
+     * @param heavySize
+     *            size of the heavier subtree
+     * @return true iff the two subtrees are in balance
+     * @ensures isBalanced = (heavySize + 1 <= DELTA * (lightSize + 1))
+     */
+    private static boolean isBalanced(int lightSize, int heavySize) {
+        return heavySize + 1 <= DELTA * (lightSize + 1);
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Rotates the subtree rooted at {@code n} left, so its right child takes
+     * its place, and returns the new root of the subtree. The parent's link to
+     * the subtree is left to the caller.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
+     *            type of the elements
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires n.right is not null
      * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * in_order(TREE(rotateLeft)) = in_order(TREE(#n))  and
+     * rotateLeft = #n.right  and  rotateLeft.parent = #n.parent
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
+    private static <T> Node<T> rotateLeft(Node<T> n) {
+        Node<T> r = n.right;
+        n.right = r.left;
+        if (r.left != null) {
+            r.left.parent = n;
+        }
+        r.left = n;
+        r.parent = n.parent;
+        n.parent = r;
+        updateSize(n);
+        updateSize(r);
+        return r;
+    }
 
-        T smallestKey = null;
-        if (t.size() > 0) {
-            BinaryTree<T> leftNode = t.newInstance();
-            BinaryTree<T> rightNode = t.newInstance();
+    /**
+     * Rotates the subtree rooted at {@code n} right, so its left child takes
+     * its place, and returns the new root of the subtree. The parent's link to
+     * the subtree is left to the caller.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires n.left is not null
+     * @ensures <pre>
+     * in_order(TREE(rotateRight)) = in_order(TREE(#n))  and
+     * rotateRight = #n.left  and  rotateRight.parent = #n.parent
+     * </pre>
+     */
+    private static <T> Node<T> rotateRight(Node<T> n) {
+        Node<T> l = n.left;
+        n.left = l.right;
+        if (l.right != null) {
+            l.right.parent = n;
+        }
+        l.right = n;
+        l.parent = n.parent;
+        n.parent = l;
+        updateSize(n);
+        updateSize(l);
+        return l;
+    }
 
-            int currentNodeSize = t.size();
+    /**
+     * Updates the size of {@code n} and, if its subtrees are out of balance,
+     * makes one single or double rotation; returns the new root of the
+     * subtree. One rotation is enough when the sizes of the subtrees are at
+     * most one away from a balanced pair, as they are after a single insertion
+     * or removal below. The parent's link to the subtree is left to the
+     * caller.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param n
+     *            the root of the subtree
+     * @return the new root of the subtree
+     * @updates n
+     * @requires <pre>
+     * IS_WEIGHT_BALANCED(TREE(n.left))  and
+     * IS_WEIGHT_BALANCED(TREE(n.right))  and
+     * [|TREE(n.left)| and |TREE(n.right)| are at most one insertion or removal
+     *  away from being in balance with each other]
+     * </pre>
+     * @ensures <pre>
+     * IS_WEIGHT_BALANCED(TREE(balance))  and
+     * in_order(TREE(balance)) = in_order(TREE(#n))  and
+     * balance.parent = #n.parent
+     * </pre>
+     */
+    private static <T> Node<T> balance(Node<T> n) {
+        Node<T> top = n;
+        updateSize(n);
+        if (!isBalanced(sizeOf(n.left), sizeOf(n.right))) {
+            // right is too heavy: rotate left, twice if needed.
+            Node<T> r = n.right;
+            if (sizeOf(r.left) + 1 >= GAMMA * (sizeOf(r.right) + 1)) {
+                n.right = rotateRight(r);
+            }
+            top = rotateLeft(n);
+        } else if (!isBalanced(sizeOf(n.right), sizeOf(n.left))) {
+            // left is too heavy: rotate right, twice if needed.
+            Node<T> l = n.left;
+            if (sizeOf(l.right) + 1 >= GAMMA * (sizeOf(l.left) + 1)) {
+                n.left = rotateLeft(l);
+            }
+            top = rotateRight(n);
+        }
+        return top;
+    }
 
-            T nodeValue = t.disassemble(leftNode, rightNode);
+    /**
+     * Makes {@code newChild} take the place of {@code oldChild} as a child of
+     * {@code parent}, or as the root if {@code parent} is null.
+     *
+     * @param parent
+     *            the parent, or null
+     * @param oldChild
+     *            the child to replace
+     * @param newChild
+     *            the replacement, or null
+     * @updates $this.root, parent, newChild.parent
+     * @requires parent is null or oldChild is a child of parent
+     */
+    private void replaceChild(Node<T> parent, Node<T> oldChild,
+            Node<T> newChild) {
+        if (newChild != null) {
+            newChild.parent = parent;
+        }
+        if (parent == null) {
+            this.root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
 
-            if (currentNodeSize == 1) {
-                // node is far left and does not have children nodes.
-                smallestKey = nodeValue;
-            } else if (leftNode.size() > 0) {
-                // there is still some left children nodes.
-                // continue to recursive into left nodes.
-                smallestKey = removeSmallest(leftNode);
+    /**
+     * Walks up from {@code n} to the root, updating sizes and rebalancing
+     * each subtree on the way.
+     *
+     * @param n
+     *            the lowest node whose subtree changed, or null
+     * @updates $this
+     * @requires <pre>
+     * [the tree satisfies the convention except for the sizes of n and its
+     *  ancestors, and the balance of their subtrees, which are at most one
+     *  insertion or removal away from it]
+     * </pre>
+     * @ensures this = #this
+     */
+    private void fixUp(Node<T> n) {
+        Node<T> p = n;
+        while (p != null) {
+            Node<T> parent = p.parent;
+            Node<T> top = balance(p);
+            this.replaceChild(parent, p, top);
+            p = parent;
+        }
+    }
 
-                t.assemble(nodeValue, leftNode, rightNode);
+    /**
+     * Returns the node of {@code x}, or null if {@code x} is not in
+     * {@code this}.
+     *
+     * @param x
+     *            the element to be searched for
+     * @return the node of {@code x}, or null
+     * @ensures <pre>
+     * if x is in this then find.data = x else find = null
+     * </pre>
+     */
+    private Node<T> find(T x) {
+        Node<T> p = this.root;
+        boolean found = false;
+        while (p != null && !found) {
+            int comparison = x.compareTo(p.data);
+            if (comparison < 0) {
+                p = p.left;
+            } else if (comparison > 0) {
+                p = p.right;
             } else {
-                // current node only has right node.
-                // make right node to replace the current node.
-                smallestKey = nodeValue;
-
-                // replacement operation.
-                BinaryTree<T> newLeftNode = rightNode.newInstance();
-                BinaryTree<T> newRightNode = rightNode.newInstance();
-                T newNodeValue = rightNode.disassemble(newLeftNode,
-                        newRightNode);
-                t.assemble(newNodeValue, newLeftNode, newRightNode);
+                found = true;
             }
         }
+        return p;
+    }
 
-        return smallestKey;
+    /**
+     * Inserts {@code x} in the tree.
+     *
+     * @param x
+     *            the element to be inserted
+     * @aliases reference {@code x}
+     * @updates this
+     * @requires x is not in this
+     * @ensures this = #this union {x}
+     */
+    private void insert(T x) {
+        Node<T> node = newNode(x);
+        Node<T> parent = null;
+        Node<T> p = this.root;
+        boolean goLeft = false;
+        while (p != null) {
+            parent = p;
+            goLeft = x.compareTo(p.data) < 0;
+            if (goLeft) {
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        }
+        node.parent = parent;
+        if (parent == null) {
+            this.root = node;
+        } else if (goLeft) {
+            parent.left = node;
+        } else {
+            parent.right = node;
+        }
+        this.fixUp(parent);
+    }
+
+    /**
+     * Removes the element of {@code z} from the tree. If {@code z} has two
+     * children, its element is replaced by that of its successor and the
+     * successor's node is the one unlinked.
+     *
+     * @param z
+     *            the node of the element to be removed
+     * @updates this
+     * @requires z is a node of the tree
+     * @ensures this = #this \ {#z.data}
+     */
+    private void delete(Node<T> z) {
+        Node<T> gone = z;
+        if (z.left != null && z.right != null) {
+            gone = first(z.right);
+            z.data = gone.data;
+        }
+        // gone has at most one child, which takes its place.
+        Node<T> child = gone.left;
+        if (child == null) {
+            child = gone.right;
+        }
+        Node<T> parent = gone.parent;
+        this.replaceChild(parent, gone, child);
+        this.fixUp(parent);
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Assembles the tree of {@code left}, {@code mid} and {@code right}, which
+     * may differ in size by any amount, and returns its root: descends the
+     * side of the heavier tree facing the lighter one to a subtree in balance
+     * with the lighter tree, joins them there under {@code mid} and rebalances
+     * on the way back up. Takes time proportional to the difference of the
+     * heights of {@code left} and {@code right}.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
+     *            type of the elements
+     * @param left
+     *            root of the elements before {@code mid}, or null
+     * @param mid
+     *            node of the element between {@code left} and {@code right}
+     * @param right
+     *            root of the elements after {@code mid}, or null
+     * @return the root of the assembled tree
+     * @updates left, mid, right
+     * @requires <pre>
+     * IS_WEIGHT_BALANCED(TREE(left))  and  IS_LINKED(left)  and
+     * IS_WEIGHT_BALANCED(TREE(right))  and  IS_LINKED(right)
+     * </pre>
+     * @ensures <pre>
+     * IS_WEIGHT_BALANCED(TREE(link))  and  IS_LINKED(link)  and
+     * in_order(TREE(link)) =
+     *  in_order(TREE(#left)) * <#mid.data> * in_order(TREE(#right))
+     * </pre>
+     */
+    private static <T> Node<T> link(Node<T> left, Node<T> mid,
+            Node<T> right) {
+        Node<T> top;
+        if (!isBalanced(sizeOf(left), sizeOf(right))) {
+            // right is much heavier: link left into its left side.
+            Node<T> sub = link(left, mid, right.left);
+            right.left = sub;
+            sub.parent = right;
+            top = balance(right);
+        } else if (!isBalanced(sizeOf(right), sizeOf(left))) {
+            // left is much heavier: link right into its right side.
+            Node<T> sub = link(left.right, mid, right);
+            left.right = sub;
+            sub.parent = left;
+            top = balance(left);
+        } else {
+            mid.left = left;
+            mid.right = right;
+            if (left != null) {
+                left.parent = mid;
+            }
+            if (right != null) {
+                right.parent = mid;
+            }
+            updateSize(mid);
+            top = mid;
+        }
+        return top;
+    }
+
+    /**
+     * Splits the tree rooted at {@code t} into the elements less than
+     * {@code x}, those greater than {@code x}, and the node of {@code x} if
+     * there is one, all left in {@code parts}. Takes O(log |TREE(t)|) time.
+     *
+     * @param <T>
+     *            type of the elements
      * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
+     *            the root of the tree to split, or null
      * @param x
-     *            the label to be removed
-     * @return the removed label
+     *            the element to split at
+     * @param parts
+     *            the parts
      * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @replaces parts
+     * @requires <pre>
+     * IS_BST(TREE(t))  and  IS_WEIGHT_BALANCED(TREE(t))  and  IS_LINKED(t)
+     * </pre>
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * [TREE(parts.less) and TREE(parts.greater) satisfy IS_BST,
+     *  IS_WEIGHT_BALANCED and IS_LINKED]  and
+     * labels(TREE(parts.less)) =
+     *  {y: T where (y is in labels(TREE(#t)) and y < x)}  and
+     * labels(TREE(parts.greater)) =
+     *  {y: T where (y is in labels(TREE(#t)) and y > x)}  and
+     * if x is in labels(TREE(#t))
+     *  then parts.found.data = x
+     *  else parts.found = null
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
-        assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
-
-        T removedValue = null;
-        BinaryTree<T> leftNode = t.newInstance();
-        BinaryTree<T> rightNode = t.newInstance();
-
-        if (t.size() != 0) {
-            // recursive to find the correct position for insertion element.
-            T nodeValue = t.disassemble(leftNode, rightNode);
-
-            if (x.compareTo(nodeValue) == 0) {
-                removedValue = nodeValue;
-
-                // when right node and left node do not exist.
-                // the removed value is located at the far end the tree.
-                // just disassemble it and do not assemble.
-
-                if (rightNode.size() != 0) {
-                    // when there exist right node.
-                    // replace the smallest node on the right to removed value.
-                    T smallestValue = removeSmallest(rightNode);
-
-                    t.assemble(smallestValue, leftNode, rightNode);
-                } else if (leftNode.size() != 0) {
-                    // when right node does not exist and left node exist
-                    // replace the next left node to removed value.
-                    BinaryTree<T> newLeftNode = rightNode.newInstance();
-                    BinaryTree<T> newRightNode = rightNode.newInstance();
-                    T newNodeValue = leftNode.disassemble(newLeftNode,
-                            newRightNode);
-
-                    t.assemble(newNodeValue, newLeftNode, newRightNode);
+    private static <T extends Comparable<T>> void splitTree(Node<T> t, T x,
+            Split<T> parts) {
+        if (t == null) {
+            parts.less = null;
+            parts.greater = null;
+            parts.found = null;
+        } else {
+            Node<T> l = t.left;
+            Node<T> r = t.right;
+            int comparison = x.compareTo(t.data);
+            if (comparison < 0) {
+                // t and its right subtree are all greater.
+                splitTree(l, x, parts);
+                parts.greater = link(parts.greater, t, r);
+                parts.greater.parent = null;
+            } else if (comparison > 0) {
+                // t and its left subtree are all less.
+                splitTree(r, x, parts);
+                parts.less = link(l, t, parts.less);
+                parts.less.parent = null;
+            } else {
+                parts.less = l;
+                parts.greater = r;
+                parts.found = t;
+                if (l != null) {
+                    l.parent = null;
                 }
-            } else if (x.compareTo(nodeValue) < 0) {
-                // recursive loop the left node.
-                removedValue = removeFromTree(leftNode, x);
+                if (r != null) {
+                    r.parent = null;
+                }
+            }
+        }
+    }
 
-                t.assemble(nodeValue, leftNode, rightNode);
+    /**
+     * Merges the increasing sequences produced by {@code a} and {@code b},
+     * enqueueing each element in order on {@code union} if it came from
+     * either, on {@code both} if it came from both, and on {@code onlyA} if it
+     * came from {@code a} only. Any of the three queues may be null, to skip
+     * it.
+     *
+     * @param <T>
+     *            type of elements
+     * @param a
+     *            the first sequence, in strictly increasing order
+     * @param b
+     *            the second sequence, in strictly increasing order
+     * @param union
+     *            the queue of elements from either sequence, or null
+     * @param both
+     *            the queue of elements from both sequences, or null
+     * @param onlyA
+     *            the queue of elements from {@code a} only, or null
+     * @updates a, b, union, both, onlyA
+     * @requires <pre>
+     * [a and b produce their elements in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * ~a.unseen = <>  and  ~b.unseen = <>  and
+     * union = #union * [elements of #~a.unseen or #~b.unseen, in order]  and
+     * both = #both * [elements of #~a.unseen and #~b.unseen, in order]  and
+     * onlyA = #onlyA * [elements of #~a.unseen but not #~b.unseen, in order]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> void merge(Iterator<T> a,
+            Iterator<T> b, Queue<T> union, Queue<T> both, Queue<T> onlyA) {
+        assert a != null : "Violation of: a is not null";
+        assert b != null : "Violation of: b is not null";
+
+        T x = null;
+        if (a.hasNext()) {
+            x = a.next();
+        }
+        T y = null;
+        if (b.hasNext()) {
+            y = b.next();
+        }
+        while (x != null || y != null) {
+            int comparison;
+            if (x == null) {
+                comparison = 1;
+            } else if (y == null) {
+                comparison = -1;
             } else {
-                // recursive loop the right node.
-                removedValue = removeFromTree(rightNode, x);
+                comparison = x.compareTo(y);
+            }
+            if (union != null) {
+                if (comparison <= 0) {
+                    union.enqueue(x);
+                } else {
+                    union.enqueue(y);
+                }
+            }
+            if (comparison == 0 && both != null) {
+                both.enqueue(x);
+            }
+            if (comparison < 0 && onlyA != null) {
+                onlyA.enqueue(x);
+            }
+            if (comparison <= 0) {
+                x = null;
+                if (a.hasNext()) {
+                    x = a.next();
+                }
+            }
+            if (comparison >= 0) {
+                y = null;
+                if (b.hasNext()) {
+                    y = b.next();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports whether the entries of {@code q} are in strictly increasing
+     * order.
+     *
+     * @param <T>
+     *            type of {@code Queue} entries
+     * @param q
+     *            the {@code Queue} to check
+     * @return true iff every entry of {@code q} is less than the next one
+     * @ensures <pre>
+     * isStrictlyIncreasing =
+     *  [every entry of q is less than the entry after it, if any]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> boolean isStrictlyIncreasing(
+            Queue<T> q) {
+        boolean increasing = true;
+        T previous = null;
+        for (T x : q) {
+            if (previous != null && previous.compareTo(x) >= 0) {
+                increasing = false;
+            }
+            previous = x;
+        }
+        return increasing;
+    }
+
+    /**
+     * Builds a perfectly balanced tree of the first {@code n} entries of
+     * {@code q}, which are rotated to the back of {@code q}, and returns its
+     * root: the middle entry becomes the root, and the entries before and
+     * after it are built the same way into the subtrees.
+     *
+     * @param <T>
+     *            type of the elements
+     * @param q
+     *            the entries, in increasing order
+     * @param n
+     *            the number of entries to take
+     * @return the root of the new tree, or null if {@code n = 0}
+     * @updates q
+     * @requires <pre>
+     * 0 <= n <= |q|  and
+     * [the entries of q are in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(TREE(buildFromSorted))  and
+     * IS_WEIGHT_BALANCED(TREE(buildFromSorted))  and
+     * IS_LINKED(buildFromSorted)  and
+     * in_order(TREE(buildFromSorted)) = #q[0, n)  and
+     * q = #q[n, |#q|) * #q[0, n)
+     * </pre>
+     */
+    private static <T> Node<T> buildFromSorted(Queue<T> q, int n) {
+        assert q != null : "Violation of: q is not null";
+        assert 0 <= n && n <= q.length() : "Violation of: 0 <= n <= |q|";
 
-                t.assemble(nodeValue, leftNode, rightNode);
+        Node<T> top = null;
+        if (n > 0) {
+            int leftSize = (n - 1) / 2;
+            Node<T> left = buildFromSorted(q, leftSize);
+            T x = q.dequeue();
+            q.enqueue(x);
+            Node<T> right = buildFromSorted(q, n - 1 - leftSize);
+            top = newNode(x);
+            top.left = left;
+            top.right = right;
+            if (left != null) {
+                left.parent = top;
+            }
+            if (right != null) {
+                right.parent = top;
             }
+            updateSize(top);
+        }
+        return top;
+    }
+
+    /**
+     * Replaces the tree by a balanced one of the entries of {@code sorted}.
+     *
+     * @param sorted
+     *            the elements, in strictly increasing order
+     * @replaces this
+     * @requires [the entries of sorted are in strictly increasing order]
+     * @ensures this = entries(sorted)
+     */
+    private void rebuild(Queue<T> sorted) {
+        this.root = buildFromSorted(sorted, sorted.length());
+        if (this.root != null) {
+            this.root.parent = null;
         }
-        return removedValue;
     }
 
     /**
@@ -250,7 +820,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
     private void createNewRep() {
 
-        this.tree = new BinaryTree1<>();
+        this.root = null;
 
     }
 
@@ -267,6 +837,31 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
 
     }
 
+    /**
+     * Returns a new {@code Set3a} of the entries of {@code sorted}, built in
+     * linear time by assembling a perfectly balanced tree directly, rather
+     * than by adding the entries one at a time.
+     *
+     * @param <T>
+     *            type of {@code Set} elements
+     * @param sorted
+     *            the elements, in strictly increasing order
+     * @return the new set
+     * @requires [the entries of sorted are in strictly increasing order]
+     * @ensures fromSorted = entries(sorted)
+     */
+    public static <T extends Comparable<T>> Set3a<T> fromSorted(
+            Queue<T> sorted) {
+        assert sorted != null : "Violation of: sorted is not null";
+        assert isStrictlyIncreasing(sorted) : ""
+                + "Violation of: the entries of sorted are in strictly"
+                + " increasing order";
+
+        Set3a<T> set = new Set3a<T>();
+        set.rebuild(sorted);
+        return set;
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -299,7 +894,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
         localSource.createNewRep();
     }
 
@@ -312,7 +907,7 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert !this.contains(x) : "Violation of: x is not in this";
 
-        insertInTree(this.tree, x);
+        this.insert(x);
     }
 
     @Override
@@ -320,7 +915,9 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert x != null : "Violation of: x is not null";
         assert this.contains(x) : "Violation of: x is in this";
 
-        T temp = removeFromTree(this.tree, x);
+        Node<T> node = this.find(x);
+        T temp = node.data;
+        this.delete(node);
         return temp;
     }
 
@@ -328,7 +925,10 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
-        T temp = removeSmallest(this.tree);
+        // the smallest node has no left child, so it is the one unlinked.
+        Node<T> node = first(this.root);
+        T temp = node.data;
+        this.delete(node);
         return temp;
     }
 
@@ -336,17 +936,322 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        return isInTree(this.tree, x);
+        return this.find(x) != null;
     }
 
     @Override
     public final int size() {
-        return this.tree.size();
+        return sizeOf(this.root);
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new Set3aIterator();
+    }
+
+    /*
+     * Bulk methods -----------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        if (s instanceof Set3a<?>) {
+            Set3a<T> localS = (Set3a<T>) s;
+            Queue<T> union = new Queue1L<T>();
+            Queue<T> both = new Queue1L<T>();
+            merge(this.iterator(), localS.iterator(), union, both, null);
+            this.rebuild(union);
+            localS.rebuild(both);
+        } else {
+            super.add(s);
+        }
+    }
+
+    @Override
+    public final Set<T> remove(Set<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Set<T> removed;
+        if (s instanceof Set3a<?>) {
+            Set3a<T> localS = (Set3a<T>) s;
+            Queue<T> both = new Queue1L<T>();
+            Queue<T> onlyThis = new Queue1L<T>();
+            merge(this.iterator(), localS.iterator(), null, both, onlyThis);
+            this.rebuild(onlyThis);
+            removed = fromSorted(both);
+        } else {
+            removed = super.remove(s);
+        }
+        return removed;
+    }
+
+    /**
+     * Adds to {@code this} all elements of {@code s}, merging the two trees in
+     * order and rebuilding a balanced tree in O(|this| + |s|) time.
+     *
+     * @param s
+     *            the set whose elements are to be added
+     * @updates this
+     * @ensures this = #this union s
+     */
+    public final void unionWith(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Queue<T> union = new Queue1L<T>();
+        merge(this.iterator(), s.iterator(), union, null, null);
+        this.rebuild(union);
+    }
+
+    /**
+     * Removes from {@code this} all elements not in {@code s}, merging the two
+     * trees in order and rebuilding a balanced tree in O(|this| + |s|) time.
+     *
+     * @param s
+     *            the set whose elements are to be kept
+     * @updates this
+     * @ensures this = #this intersection s
+     */
+    public final void intersectWith(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Queue<T> both = new Queue1L<T>();
+        merge(this.iterator(), s.iterator(), null, both, null);
+        this.rebuild(both);
+    }
+
+    /**
+     * Removes from {@code this} all elements of {@code s}, merging the two
+     * trees in order and rebuilding a balanced tree in O(|this| + |s|) time.
+     *
+     * @param s
+     *            the set whose elements are to be removed
+     * @updates this
+     * @ensures this = #this \ s
+     */
+    public final void differenceWith(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Queue<T> onlyThis = new Queue1L<T>();
+        merge(this.iterator(), s.iterator(), null, null, onlyThis);
+        this.rebuild(onlyThis);
+    }
+
+    /**
+     * Removes from {@code this} and returns all elements not less than
+     * {@code x}, in O(log |this|) time.
+     *
+     * @param x
+     *            the element to split at
+     * @return the elements of {@code #this} not less than {@code x}
+     * @updates this
+     * @ensures <pre>
+     * this = {y: T where (y is in #this and y < x)}  and
+     * split = {y: T where (y is in #this and y >= x)}
+     * </pre>
+     */
+    public final Set3a<T> split(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Split<T> parts = new Split<T>();
+        splitTree(this.root, x, parts);
+        Set3a<T> upper = new Set3a<T>();
+        upper.root = parts.greater;
+        if (parts.found != null) {
+            upper.root = link(null, parts.found, parts.greater);
+            upper.root.parent = null;
+        }
+        this.root = parts.less;
+        return upper;
+    }
+
+    /**
+     * Adds to {@code this} all elements of {@code s}, all of which are larger
+     * than those of {@code this}, in O(log |this| + log |s|) time.
+     *
+     * @param s
+     *            the set whose elements are to be added
+     * @updates this
+     * @clears s
+     * @requires <pre>
+     * for all y, z: T where (y is in this and z is in s) (y < z)
+     * </pre>
+     * @ensures this = #this union #s
+     */
+    public final void join(Set3a<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert this.size() == 0 || s.size() == 0
+                || this.kth(this.size() - 1).compareTo(s.kth(0)) < 0 : ""
+                        + "Violation of: every element of this is less than"
+                        + " every element of s";
+
+        if (s.root != null) {
+            // the smallest element of s goes between the two trees.
+            Node<T> mid = newNode(s.removeAny());
+            this.root = link(this.root, mid, s.root);
+            this.root.parent = null;
+            s.createNewRep();
+        }
+    }
+
+    /*
+     * Order-statistic methods ------------------------------------------------
+     */
+
+    /**
+     * Returns the element of {@code this} with exactly {@code k} smaller
+     * elements, so {@code kth(0)} is the smallest element. Takes O(log |this|)
+     * time.
+     *
+     * @param k
+     *            the number of smaller elements
+     * @return the element with {@code k} smaller elements
+     * @requires 0 <= k < |this|
+     * @ensures <pre>
+     * kth is in this  and
+     * |{y: T where (y is in this and y < kth)}| = k
+     * </pre>
+     */
+    public final T kth(int k) {
+        assert 0 <= k && k < this.size() : "Violation of: 0 <= k < |this|";
+
+        // the subtree sizes say which side the element is on.
+        Node<T> p = this.root;
+        int remaining = k;
+        int leftSize = sizeOf(p.left);
+        while (remaining != leftSize) {
+            if (remaining < leftSize) {
+                p = p.left;
+            } else {
+                remaining -= leftSize + 1;
+                p = p.right;
+            }
+            leftSize = sizeOf(p.left);
+        }
+        return p.data;
+    }
+
+    /**
+     * Returns the number of elements of {@code this} smaller than {@code x},
+     * whether or not {@code x} is in {@code this}. Takes O(log |this|) time.
+     *
+     * @param x
+     *            the element to compare with
+     * @return the number of smaller elements
+     * @ensures rank = |{y: T where (y is in this and y < x)}|
+     */
+    public final int rank(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int rank = 0;
+        Node<T> p = this.root;
+        while (p != null) {
+            if (x.compareTo(p.data) <= 0) {
+                p = p.left;
+            } else {
+                // the whole left subtree and the node are smaller.
+                rank += sizeOf(p.left) + 1;
+                p = p.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the elements of {@code this} in {@code [lo, hi)}, in increasing
+     * order. Takes O(log |this| + k) time, where k is the number of elements
+     * returned.
+     *
+     * @param lo
+     *            the smallest element wanted
+     * @param hi
+     *            the element above those wanted
+     * @return the elements in range, in increasing order
+     * @requires lo <= hi
+     * @ensures <pre>
+     * range = [the elements y of this with lo <= y < hi, in increasing order]
+     * </pre>
+     */
+    public final Queue<T> range(T lo, T hi) {
+        assert lo != null : "Violation of: lo is not null";
+        assert hi != null : "Violation of: hi is not null";
+        assert lo.compareTo(hi) <= 0 : "Violation of: lo <= hi";
+
+        // find the node of the smallest element not less than lo.
+        Node<T> start = null;
+        Node<T> p = this.root;
+        while (p != null) {
+            if (lo.compareTo(p.data) <= 0) {
+                start = p;
+                p = p.left;
+            } else {
+                p = p.right;
+            }
+        }
+        Queue<T> inRange = new Queue1L<T>();
+        p = start;
+        while (p != null && p.data.compareTo(hi) < 0) {
+            inRange.enqueue(p.data);
+            p = successor(p);
+        }
+        return inRange;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3a}, yielding
+     * the elements in increasing order.
+     */
+    private final class Set3aIterator implements Iterator<T> {
+
+        /**
+         * Node of the next element, or null.
+         */
+        private Node<T> next;
+
+        /**
+         * No-argument constructor.
+         */
+        Set3aIterator() {
+            this.next = null;
+            if (Set3a.this.root != null) {
+                this.next = first(Set3a.this.root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = this.next.data;
+            this.next = successor(this.next);
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
     }
 
 }
@@ -0,0 +1,211 @@
+import components.set.Set;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times union, intersection and difference of two large {@code Set3a}s, once
+ * element by element through the kernel methods and once through the merging
+ * bulk methods, and a split followed by a join against moving the same
+ * elements one at a time.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class Set3aAlgebraBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Set3aAlgebraBenchmark() {
+    }
+
+    /**
+     * Number of timed runs of each operation.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Returns a new {@code Set3a} of the multiples of {@code step} in
+     * {@code [0, bound)}.
+     *
+     * @param step
+     *            the distance between elements
+     * @param bound
+     *            the bound above the elements
+     * @return the new set
+     * @requires step > 0
+     */
+    private static Set3a<Integer> multiples(int step, int bound) {
+        Set3a<Integer> s = new Set3a<Integer>();
+        for (int i = 0; i < bound; i += step) {
+            s.add(i);
+        }
+        return s;
+    }
+
+    /**
+     * Applies one operation to {@code a} and {@code b}: 0 for union, 1 for
+     * intersection, 2 for difference, element by element if
+     * {@code elementwise} and through the bulk methods otherwise.
+     *
+     * @param a
+     *            the set to update
+     * @param b
+     *            the other set
+     * @param operation
+     *            which operation to apply
+     * @param elementwise
+     *            whether to go element by element
+     * @updates a
+     * @requires 0 <= operation <= 2
+     */
+    private static void apply(Set3a<Integer> a, Set3a<Integer> b,
+            int operation, boolean elementwise) {
+        if (elementwise) {
+            if (operation == 0) {
+                for (Integer x : b) {
+                    if (!a.contains(x)) {
+                        a.add(x);
+                    }
+                }
+            } else if (operation == 1) {
+                Set<Integer> drop = a.newInstance();
+                for (Integer x : a) {
+                    if (!b.contains(x)) {
+                        drop.add(x);
+                    }
+                }
+                for (Integer x : drop) {
+                    a.remove(x);
+                }
+            } else {
+                for (Integer x : b) {
+                    if (a.contains(x)) {
+                        a.remove(x);
+                    }
+                }
+            }
+        } else {
+            if (operation == 0) {
+                a.unionWith(b);
+            } else if (operation == 1) {
+                a.intersectWith(b);
+            } else {
+                a.differenceWith(b);
+            }
+        }
+    }
+
+    /**
+     * Moves the elements of {@code a} not less than {@code x} to a new set and
+     * back again, through {@code split} and {@code join} unless
+     * {@code elementwise}.
+     *
+     * @param a
+     *            the set
+     * @param x
+     *            the element to split at
+     * @param elementwise
+     *            whether to go element by element
+     * @restores a
+     */
+    private static void splitAndJoin(Set3a<Integer> a, int x,
+            boolean elementwise) {
+        if (elementwise) {
+            Set3a<Integer> upper = new Set3a<Integer>();
+            Set<Integer> moved = a.newInstance();
+            for (Integer y : a) {
+                if (y >= x) {
+                    moved.add(y);
+                }
+            }
+            for (Integer y : moved) {
+                upper.add(a.remove(y));
+            }
+            while (upper.size() > 0) {
+                a.add(upper.removeAny());
+            }
+        } else {
+            Set3a<Integer> upper = a.split(x);
+            a.join(upper);
+        }
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} runs of one operation, each
+     * on fresh copies of the multiples of 2 and of 3 below {@code bound}; one
+     * untimed run warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param bound
+     *            the bound above the elements
+     * @param operation
+     *            0 for union, 1 for intersection, 2 for difference, 3 for
+     *            split and join
+     * @param elementwise
+     *            whether to go element by element
+     * @updates out.content
+     * @requires out.is_open and 0 <= operation <= 3
+     */
+    private static void report(SimpleWriter out, int bound, int operation,
+            boolean elementwise) {
+        final String[] names = { "union", "intersection", "difference",
+            "split+join" };
+        long elapsed = 0;
+        int resultSize = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            Set3a<Integer> a = multiples(2, bound);
+            Set3a<Integer> b = multiples(3, bound);
+            long start = System.nanoTime();
+            if (operation < names.length - 1) {
+                apply(a, b, operation, elementwise);
+            } else {
+                splitAndJoin(a, bound / 2, elementwise);
+            }
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+            resultSize = a.size();
+        }
+        String how = "bulk";
+        if (elementwise) {
+            how = "per-element";
+        }
+        out.println(names[operation] + "\t" + how + "\t"
+                + String.format("%.1f", elapsed / NANOS_PER_MILLI / ROUNDS)
+                + " ms\t(" + resultSize + " elements)");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Bound on the elements (e.g., 300000): ");
+        int bound = in.nextInteger();
+
+        out.println("Multiples of 2 against multiples of 3 below " + bound
+                + ", average of " + ROUNDS + " runs:");
+        final int operations = 4;
+        for (int operation = 0; operation < operations; operation++) {
+            report(out, bound, operation, true);
+            report(out, bound, operation, false);
+        }
+        in.close();
+        out.close();
+    }
+
+}
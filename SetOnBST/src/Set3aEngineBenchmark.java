@@ -0,0 +1,249 @@
+import java.util.Random;
+
+import components.binarytree.BinaryTree;
+import components.binarytree.BinaryTree1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times inserting, looking up and removing the smallest of random elements in
+ * {@code Set3a}, whose linked nodes are searched and relinked in place by
+ * loops, against the same operations on a {@code BinaryTree} searched by
+ * recursion that disassembles and reassembles a node at every level.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class Set3aEngineBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Set3aEngineBenchmark() {
+    }
+
+    /**
+     * Number of timed runs of each operation.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Seed of the random elements, so every run uses the same ones.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Returns whether {@code x} is in {@code t}, disassembling and
+     * reassembling each node on the search path.
+     *
+     * @param <T>
+     *            type of {@code BinaryTree} labels
+     * @param t
+     *            the {@code BinaryTree} to be searched
+     * @param x
+     *            the label to be searched for
+     * @return true if t contains x, false otherwise
+     * @requires IS_BST(t)
+     * @ensures isInTree = (x is in labels(t))
+     */
+    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
+            T x) {
+        boolean exist = false;
+        if (t.size() > 0) {
+            BinaryTree<T> left = t.newInstance();
+            BinaryTree<T> right = t.newInstance();
+            T root = t.disassemble(left, right);
+            int comparison = x.compareTo(root);
+            if (comparison < 0) {
+                exist = isInTree(left, x);
+            } else if (comparison > 0) {
+                exist = isInTree(right, x);
+            } else {
+                exist = true;
+            }
+            t.assemble(root, left, right);
+        }
+        return exist;
+    }
+
+    /**
+     * Inserts {@code x} in {@code t}, disassembling and reassembling each node
+     * on the search path.
+     *
+     * @param <T>
+     *            type of {@code BinaryTree} labels
+     * @param t
+     *            the {@code BinaryTree} to insert into
+     * @param x
+     *            the label to be inserted
+     * @updates t
+     * @requires IS_BST(t) and x is not in labels(t)
+     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     */
+    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
+            T x) {
+        BinaryTree<T> left = t.newInstance();
+        BinaryTree<T> right = t.newInstance();
+        if (t.size() > 0) {
+            T root = t.disassemble(left, right);
+            if (x.compareTo(root) < 0) {
+                insertInTree(left, x);
+            } else {
+                insertInTree(right, x);
+            }
+            t.assemble(root, left, right);
+        } else {
+            t.assemble(x, left, right);
+        }
+    }
+
+    /**
+     * Removes and returns the smallest label in {@code t}, disassembling and
+     * reassembling each node on the left spine.
+     *
+     * @param <T>
+     *            type of {@code BinaryTree} labels
+     * @param t
+     *            the {@code BinaryTree} to remove from
+     * @return the smallest label in {@code t}
+     * @updates t
+     * @requires IS_BST(t) and |t| > 0
+     * @ensures <pre>
+     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
+     *  labels(t) = labels(#t) \ {removeSmallest}
+     * </pre>
+     */
+    private static <T> T removeSmallest(BinaryTree<T> t) {
+        BinaryTree<T> left = t.newInstance();
+        BinaryTree<T> right = t.newInstance();
+        T root = t.disassemble(left, right);
+        T smallest;
+        if (left.size() > 0) {
+            smallest = removeSmallest(left);
+            t.assemble(root, left, right);
+        } else {
+            smallest = root;
+            t.transferFrom(right);
+        }
+        return smallest;
+    }
+
+    /**
+     * Returns {@code n} distinct elements in random order.
+     *
+     * @param n
+     *            the number of elements
+     * @return the elements
+     * @requires n >= 0
+     */
+    private static Integer[] shuffled(int n) {
+        Integer[] elements = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            elements[i] = i;
+        }
+        Random random = new Random(SEED);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer temp = elements[i];
+            elements[i] = elements[j];
+            elements[j] = temp;
+        }
+        return elements;
+    }
+
+    /**
+     * Reports the average times of {@code ROUNDS} runs of adding all of
+     * {@code elements}, looking each one up, and removing the smallest until
+     * none is left, through {@code Set3a} if {@code linked} and through the
+     * recursive {@code BinaryTree} methods otherwise; one untimed run warms up
+     * first.
+     *
+     * @param out
+     *            the output stream
+     * @param elements
+     *            the elements, in the order to add them
+     * @param linked
+     *            whether to use {@code Set3a}
+     * @updates out.content
+     * @requires out.is_open and [the elements are distinct]
+     */
+    private static void report(SimpleWriter out, Integer[] elements,
+            boolean linked) {
+        final int phases = 3;
+        long[] elapsed = new long[phases];
+        for (int round = 0; round <= ROUNDS; round++) {
+            Set3a<Integer> set = new Set3a<Integer>();
+            BinaryTree<Integer> tree = new BinaryTree1<Integer>();
+            long[] times = new long[phases + 1];
+            int found = 0;
+            times[0] = System.nanoTime();
+            for (Integer x : elements) {
+                if (linked) {
+                    set.add(x);
+                } else {
+                    insertInTree(tree, x);
+                }
+            }
+            times[1] = System.nanoTime();
+            for (Integer x : elements) {
+                if ((linked && set.contains(x))
+                        || (!linked && isInTree(tree, x))) {
+                    found++;
+                }
+            }
+            times[2] = System.nanoTime();
+            for (int i = 0; i < elements.length; i++) {
+                if (linked) {
+                    set.removeAny();
+                } else {
+                    removeSmallest(tree);
+                }
+            }
+            times[phases] = System.nanoTime();
+            assert found == elements.length : "Violation of: all found";
+            if (round > 0) {
+                for (int p = 0; p < phases; p++) {
+                    elapsed[p] += times[p + 1] - times[p];
+                }
+            }
+        }
+        final String[] names = { "add", "contains", "removeAny" };
+        String how = "disassemble/assemble";
+        if (linked) {
+            how = "linked nodes";
+        }
+        for (int p = 0; p < phases; p++) {
+            out.println(names[p] + "\t" + how + "\t" + String.format("%.1f",
+                    elapsed[p] / NANOS_PER_MILLI / ROUNDS) + " ms");
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Number of elements (e.g., 200000): ");
+        int n = in.nextInteger();
+
+        Integer[] elements = shuffled(n);
+        out.println(n + " random elements, average of " + ROUNDS + " runs:");
+        report(out, elements, false);
+        report(out, elements, true);
+        in.close();
+        out.close();
+    }
+
+}
@@ -1,3 +1,11 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
 import components.set.Set;
 import components.set.Set1L;
 
@@ -6,6 +14,27 @@ import components.set.Set1L;
  */
 public class Set3aTest extends SetTest {
 
+    /**
+     * Number of elements in the large sorted-input test.
+     */
+    private static final int LARGE_SIZE = 1_000_000;
+
+    /**
+     * Returns a {@code Queue} of the given entries, in order.
+     *
+     * @param args
+     *            the entries
+     * @return the new queue
+     * @ensures queueOf = args
+     */
+    private static Queue<String> queueOf(String... args) {
+        Queue<String> q = new Queue1L<String>();
+        for (String x : args) {
+            q.enqueue(x);
+        }
+        return q;
+    }
+
     @Override
     protected final Set<String> constructorTest() {
         return new Set3a<String>();
@@ -16,4 +45,352 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /*
+     * Test adding a million elements in increasing order, which would build a
+     * tree a million levels deep without balancing, then removing half of
+     * them
+     */
+    @Test
+    public final void testAddAscending_1() {
+        /*
+         * Set up variables
+         */
+        Set<Integer> s = new Set3a<Integer>();
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            s.add(i);
+        }
+        for (int i = 0; i < LARGE_SIZE; i += 2) {
+            s.remove(i);
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(LARGE_SIZE / 2, s.size());
+        assertTrue(s.contains(1));
+        assertTrue(s.contains(LARGE_SIZE - 1));
+        assertFalse(s.contains(LARGE_SIZE / 2));
+        int expected = 1;
+        for (int x : s) {
+            assertEquals(expected, x);
+            expected += 2;
+        }
+        assertEquals(Integer.valueOf(1), s.removeAny());
+    }
+
+    /*
+     * Test building from an empty queue
+     */
+    @Test
+    public final void testFromSorted_1() {
+        /*
+         * Set up variables
+         */
+        Queue<String> q = new Queue1L<String>();
+
+        /*
+         * Call method under test
+         */
+        Set<String> s = Set3a.fromSorted(q);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, s.size());
+        assertEquals(0, q.length());
+    }
+
+    /*
+     * Test building from a sorted queue, which is left unchanged, and that
+     * the set works as usual afterwards
+     */
+    @Test
+    public final void testFromSorted_2() {
+        /*
+         * Set up variables
+         */
+        Queue<String> q = new Queue1L<String>();
+        Set<String> sExpected = this.constructorRef();
+        for (String x : new String[] { "a", "b", "c", "d", "e", "f" }) {
+            q.enqueue(x);
+            sExpected.add(x);
+        }
+        Queue<String> qExpected = new Queue1L<String>();
+        for (String x : q) {
+            qExpected.enqueue(x);
+        }
+
+        /*
+         * Call method under test
+         */
+        Set<String> s = Set3a.fromSorted(q);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(qExpected, q);
+        s.remove("a");
+        s.add("g");
+        sExpected.remove("a");
+        sExpected.add("g");
+        assertEquals(sExpected, s);
+    }
+
+    /*
+     * Test building a million elements at once, then adding to and removing
+     * from the result
+     */
+    @Test
+    public final void testFromSorted_3() {
+        /*
+         * Set up variables
+         */
+        Queue<Integer> q = new Queue1L<Integer>();
+        for (int i = 0; i < LARGE_SIZE; i += 2) {
+            q.enqueue(i);
+        }
+
+        /*
+         * Call method under test
+         */
+        Set<Integer> s = Set3a.fromSorted(q);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(LARGE_SIZE / 2, s.size());
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            assertEquals(i % 2 == 0, s.contains(i));
+        }
+        s.add(LARGE_SIZE - 1);
+        s.remove(0);
+        assertEquals(LARGE_SIZE / 2, s.size());
+        assertTrue(s.contains(LARGE_SIZE - 1));
+        assertFalse(s.contains(0));
+    }
+
+    /*
+     * Test kth and rank against each other on a set built one add at a time
+     */
+    @Test
+    public final void testKthRank_1() {
+        /*
+         * Set up variables: multiples of 3 in scrambled order
+         */
+        Set3a<Integer> s = new Set3a<Integer>();
+        final int n = 500;
+        final int step = 7;
+        for (int i = 0; i < n; i++) {
+            s.add(3 * ((i * step) % n));
+        }
+
+        /*
+         * Call method under test and assert that values of variables match
+         * expectations
+         */
+        for (int k = 0; k < n; k++) {
+            assertEquals(Integer.valueOf(3 * k), s.kth(k));
+            assertEquals(k, s.rank(3 * k));
+            assertEquals(k + 1, s.rank(3 * k + 1));
+        }
+        assertEquals(0, s.rank(-1));
+        assertEquals(n, s.size());
+    }
+
+    /*
+     * Test range with bounds that are and are not elements
+     */
+    @Test
+    public final void testRange_1() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = new Set3a<String>();
+        for (String x : new String[] { "d", "b", "f", "a", "c", "e", "g" }) {
+            s.add(x);
+        }
+
+        /*
+         * Call method under test
+         */
+        Queue<String> inner = s.range("b", "f");
+        Queue<String> between = s.range("bb", "ee");
+        Queue<String> empty = s.range("c", "c");
+        Queue<String> all = s.range("", "z");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(queueOf("b", "c", "d", "e"), inner);
+        assertEquals(queueOf("c", "d", "e"), between);
+        assertEquals(0, empty.length());
+        assertEquals(s.size(), all.length());
+        assertEquals(7, s.size());
+    }
+
+    /**
+     * Returns a {@code Set3a} of the given entries.
+     *
+     * @param args
+     *            the entries
+     * @return the new set
+     * @requires [every entry in args is unique]
+     * @ensures createSet3a = [entries in args]
+     */
+    private static Set3a<String> createSet3a(String... args) {
+        Set3a<String> s = new Set3a<String>();
+        for (String x : args) {
+            s.add(x);
+        }
+        return s;
+    }
+
+    /*
+     * Test add(Set): this gets the union and s keeps the intersection
+     */
+    @Test
+    public final void testAddSet_1() {
+        /*
+         * Set up variables
+         */
+        Set<String> s1 = createSet3a("a", "c", "e", "g");
+        Set<String> s2 = createSet3a("b", "c", "g", "h");
+
+        /*
+         * Call method under test
+         */
+        s1.add(s2);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createSet3a("a", "b", "c", "e", "g", "h"), s1);
+        assertEquals(createSet3a("c", "g"), s2);
+    }
+
+    /*
+     * Test remove(Set): this loses the elements of s, which are returned
+     */
+    @Test
+    public final void testRemoveSet_1() {
+        /*
+         * Set up variables
+         */
+        Set<String> s1 = createSet3a("a", "c", "e", "g");
+        Set<String> s2 = createSet3a("b", "c", "g", "h");
+
+        /*
+         * Call method under test
+         */
+        Set<String> removed = s1.remove(s2);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createSet3a("a", "e"), s1);
+        assertEquals(createSet3a("c", "g"), removed);
+        assertEquals(createSet3a("b", "c", "g", "h"), s2);
+    }
+
+    /*
+     * Test unionWith, intersectWith and differenceWith, including with an
+     * empty argument
+     */
+    @Test
+    public final void testAlgebra_1() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = createSet3a("b", "c", "g", "h");
+        Set3a<String> u = createSet3a("a", "c", "e", "g");
+        Set3a<String> n = createSet3a("a", "c", "e", "g");
+        Set3a<String> d = createSet3a("a", "c", "e", "g");
+        Set3a<String> e = createSet3a("a", "c");
+
+        /*
+         * Call method under test
+         */
+        u.unionWith(s);
+        n.intersectWith(s);
+        d.differenceWith(s);
+        e.intersectWith(new Set3a<String>());
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createSet3a("a", "b", "c", "e", "g", "h"), u);
+        assertEquals(createSet3a("c", "g"), n);
+        assertEquals(createSet3a("a", "e"), d);
+        assertEquals(0, e.size());
+        assertEquals(createSet3a("b", "c", "g", "h"), s);
+    }
+
+    /*
+     * Test split at an element and between elements, and join back
+     */
+    @Test
+    public final void testSplitJoin_1() {
+        /*
+         * Set up variables
+         */
+        Set3a<Integer> s = new Set3a<Integer>();
+        Set<Integer> sExpected = new Set1L<Integer>();
+        final int n = 1000;
+        for (int i = 0; i < n; i++) {
+            s.add(2 * i);
+            sExpected.add(2 * i);
+        }
+
+        /*
+         * Call method under test
+         */
+        Set3a<Integer> upper = s.split(n);
+        Set3a<Integer> top = upper.split(2 * n - 2);
+        int lowerSize = s.size();
+        int upperSize = upper.size();
+        int topSize = top.size();
+        s.join(upper);
+        s.join(top);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(n / 2, lowerSize);
+        assertEquals(n / 2 - 1, upperSize);
+        assertEquals(1, topSize);
+        assertEquals(0, upper.size());
+        assertEquals(0, top.size());
+        assertEquals(sExpected, s);
+        assertEquals(n / 2, s.rank(n));
+    }
+
+    /*
+     * Test that split leaves the smaller elements and returns the rest
+     */
+    @Test
+    public final void testSplit_1() {
+        /*
+         * Set up variables
+         */
+        Set3a<String> s = createSet3a("a", "c", "e", "g");
+
+        /*
+         * Call method under test
+         */
+        Set3a<String> atC = s.split("c");
+        Set3a<String> atZ = s.split("z");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createSet3a("a"), s);
+        assertEquals(createSet3a("c", "e", "g"), atC);
+        assertEquals(0, atZ.size());
+    }
+
 }
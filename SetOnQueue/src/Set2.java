@@ -3,16 +3,32 @@ import java.util.Iterator;
 import components.queue.Queue;
 import components.queue.Queue1L;
 import components.set.Set;
-import components.set.Set1L;
 import components.set.SetSecondary;
 
 /**
  * {@code Set} represented as a {@code Queue} of elements with implementations
  * of primary methods.
  *
+ * <p>
+ * {@code contains} scans the queue from the front and stops at the element it
+ * is looking for; a {@code Set2} constructed with a
+ * {@code SelfOrganizingPolicy} then rearranges the queue so that elements
+ * looked up often are found after fewer comparisons. The rearranging rotates
+ * the whole queue, but only when the element found has to move, so repeated
+ * lookups of an element already at the front cost a single comparison.
+ * {@code lookups} and {@code comparisons} count the work done by
+ * {@code contains}.
+ *
  * @param <T>
  *            type of {@code Set} elements
- * @convention |$this.elements| = |entries($this.elements)|
+ * @convention <pre>
+ * |$this.elements| = |entries($this.elements)|  and
+ * if $this.policy = FREQUENCY_COUNT then
+ *   |$this.lookupCounts| = |$this.elements|  and
+ *   [the counts in $this.lookupCounts are in non-increasing order]
+ * else
+ *   $this.lookupCounts = null
+ * </pre>
  * @correspondence this = entries($this.elements)
  */
 public class Set2<T> extends SetSecondary<T> {
@@ -27,37 +43,211 @@ public class Set2<T> extends SetSecondary<T> {
     private Queue<T> elements;
 
     /**
-     * Finds {@code x} in {@code q} and, if such exists, moves it to the front
-     * of {@code q}.
+     * With {@code FREQUENCY_COUNT}, the number of lookups of each element of
+     * {@code elements}, in the same order; otherwise null.
+     */
+    private Queue<Count> lookupCounts;
+
+    /**
+     * How {@code elements} is rearranged after a successful lookup.
+     */
+    private final SelfOrganizingPolicy policy;
+
+    /**
+     * Number of calls to {@code contains}.
+     */
+    private long lookups;
+
+    /**
+     * Number of elements compared by {@code contains}.
+     */
+    private long comparisons;
+
+    /**
+     * Mutable lookup count of one element.
+     */
+    private static final class Count {
+
+        /**
+         * The count.
+         */
+        private int value;
+
+    }
+
+    /**
+     * Moves the entry at position {@code from} of {@code q} to position
+     * {@code to}, leaving the other entries in order.
      *
-     * @param <T>
+     * @param <E>
      *            type of {@code Queue} entries
      * @param q
-     *            the {@code Queue} to be searched
-     * @param x
-     *            the entry to be searched for
+     *            the {@code Queue} to be rearranged
+     * @param from
+     *            the position of the entry to move
+     * @param to
+     *            the position to move it to
      * @updates q
+     * @requires 0 <= to <= from < |q|
      * @ensures <pre>
-     * perms(q, #q)  and
-     * if <x> is substring of q
-     *  then <x> is prefix of q
+     * q = #q[0, to) * #q[from, from+1) * #q[to, from) * #q[from+1, |#q|)
      * </pre>
      */
-    private static <T> void moveToFront(Queue<T> q, T x) {
+    private static <E> void moveForward(Queue<E> q, int from, int to) {
         assert q != null : "Violation of: q is not null";
+        assert 0 <= to && to <= from && from < q.length() : ""
+                + "Violation of: 0 <= to <= from < |q|";
+
+        int length = q.length();
+        E moved = null;
+        for (int i = 0; i < length; i++) {
+            E entry = q.dequeue();
+            if (i == from) {
+                moved = entry;
+            } else {
+                q.enqueue(entry);
+            }
+        }
+        for (int i = 0; i < length - 1; i++) {
+            if (i == to) {
+                q.enqueue(moved);
+            }
+            q.enqueue(q.dequeue());
+        }
+        if (to == length - 1) {
+            q.enqueue(moved);
+        }
+    }
 
-        Queue<T> tempQueue = q.newInstance();
-        for (T temp : q) {
-            if (tempQueue.length() > 0 && temp.equals(x)) {
-                T frontValue = tempQueue.front();
-                tempQueue.replaceFront(temp);
-                tempQueue.enqueue(frontValue);
+    /**
+     * Removes and returns the entry at position {@code pos} of {@code q},
+     * leaving the other entries in order.
+     *
+     * @param <E>
+     *            type of {@code Queue} entries
+     * @param q
+     *            the {@code Queue} to remove from
+     * @param pos
+     *            the position of the entry to remove
+     * @return the entry removed
+     * @updates q
+     * @requires 0 <= pos < |q|
+     * @ensures <pre>
+     * q = #q[0, pos) * #q[pos+1, |#q|)  and  <removeAt> = #q[pos, pos+1)
+     * </pre>
+     */
+    private static <E> E removeAt(Queue<E> q, int pos) {
+        assert q != null : "Violation of: q is not null";
+        assert 0 <= pos && pos < q.length() : ""
+                + "Violation of: 0 <= pos < |q|";
+
+        int length = q.length();
+        E removed = null;
+        for (int i = 0; i < length; i++) {
+            E entry = q.dequeue();
+            if (i == pos) {
+                removed = entry;
             } else {
-                tempQueue.enqueue(temp);
+                q.enqueue(entry);
             }
         }
+        return removed;
+    }
 
-        q.transferFrom(tempQueue);
+    /**
+     * Returns the position of {@code x} in {@code $this.elements}, or -1 if
+     * {@code x} is not there. Neither counts nor rearranges anything.
+     *
+     * @param x
+     *            the element to be searched for
+     * @return the position of {@code x}, or -1
+     * @ensures <pre>
+     * if x is in this
+     *  then $this.elements[indexOf, indexOf+1) = <x>
+     *  else indexOf = -1
+     * </pre>
+     */
+    private int indexOf(T x) {
+        int pos = 0;
+        Iterator<T> it = this.elements.iterator();
+        while (it.hasNext() && !it.next().equals(x)) {
+            pos++;
+        }
+        if (pos == this.elements.length()) {
+            pos = -1;
+        }
+        return pos;
+    }
+
+    /**
+     * Looks up {@code x} for {@code contains}: scans {@code $this.elements}
+     * until it finds {@code x}, updating the lookup and comparison counts, and
+     * then rearranges {@code $this.elements} as {@code $this.policy} says.
+     *
+     * @param x
+     *            the element to be searched for
+     * @return true iff {@code x} is in {@code this}
+     * @updates $this
+     * @ensures this = #this and lookUp = (x is in this)
+     */
+    private boolean lookUp(T x) {
+        this.lookups++;
+        Iterator<T> it = this.elements.iterator();
+        Iterator<Count> countIt = null;
+        if (this.lookupCounts != null) {
+            countIt = this.lookupCounts.iterator();
+        }
+        boolean found = false;
+        int pos = 0;
+        int runStart = 0;
+        int previousCount = -1;
+        Count count = null;
+        while (!found && it.hasNext()) {
+            T element = it.next();
+            if (countIt != null) {
+                count = countIt.next();
+                if (count.value != previousCount) {
+                    runStart = pos;
+                    previousCount = count.value;
+                }
+            }
+            this.comparisons++;
+            if (element.equals(x)) {
+                found = true;
+            } else {
+                pos++;
+            }
+        }
+        if (found) {
+            int target;
+            switch (this.policy) {
+                case MOVE_TO_FRONT:
+                    target = 0;
+                    break;
+                case TRANSPOSE:
+                    target = Math.max(pos - 1, 0);
+                    break;
+                case FREQUENCY_COUNT:
+                    /*
+                     * The elements before runStart were looked up more often
+                     * than x, and those from runStart on as often; x now
+                     * passes the latter
+                     */
+                    count.value++;
+                    target = runStart;
+                    break;
+                default:
+                    target = pos;
+                    break;
+            }
+            if (target < pos) {
+                moveForward(this.elements, pos, target);
+                if (this.lookupCounts != null) {
+                    moveForward(this.lookupCounts, pos, target);
+                }
+            }
+        }
+        return found;
     }
 
     /**
@@ -65,6 +255,11 @@ public class Set2<T> extends SetSecondary<T> {
      */
     private void createNewRep() {
         this.elements = new Queue1L<T>();
+        if (this.policy == SelfOrganizingPolicy.FREQUENCY_COUNT) {
+            this.lookupCounts = new Queue1L<Count>();
+        } else {
+            this.lookupCounts = null;
+        }
     }
 
     /*
@@ -75,6 +270,21 @@ public class Set2<T> extends SetSecondary<T> {
      * No-argument constructor.
      */
     public Set2() {
+        this(SelfOrganizingPolicy.NONE);
+    }
+
+    /**
+     * Constructor resulting in a {@code Set2} that rearranges its elements as
+     * {@code policy} says.
+     *
+     * @param policy
+     *            how to rearrange the elements after a successful lookup
+     * @ensures this = {}
+     */
+    public Set2(SelfOrganizingPolicy policy) {
+        assert policy != null : "Violation of: policy is not null";
+
+        this.policy = policy;
         this.createNewRep();
     }
 
@@ -111,6 +321,18 @@ public class Set2<T> extends SetSecondary<T> {
          */
         Set2<T> localSource = (Set2<T>) source;
         this.elements = localSource.elements;
+        this.lookupCounts = localSource.lookupCounts;
+        if (this.policy != SelfOrganizingPolicy.FREQUENCY_COUNT) {
+            this.lookupCounts = null;
+        } else if (this.lookupCounts == null) {
+            /*
+             * source did not count lookups, so start every count at zero
+             */
+            this.lookupCounts = new Queue1L<Count>();
+            for (int i = 0; i < this.elements.length(); i++) {
+                this.lookupCounts.enqueue(new Count());
+            }
+        }
         localSource.createNewRep();
     }
 
@@ -121,20 +343,25 @@ public class Set2<T> extends SetSecondary<T> {
     @Override
     public final void add(T x) {
         assert x != null : "Violation of: x is not null";
-        assert !this.contains(x) : "Violation of: x is not in this";
+        assert this.indexOf(x) < 0 : "Violation of: x is not in this";
 
         this.elements.enqueue(x);
-
+        if (this.lookupCounts != null) {
+            this.lookupCounts.enqueue(new Count());
+        }
     }
 
     @Override
     public final T remove(T x) {
         assert x != null : "Violation of: x is not null";
-        assert this.contains(x) : "Violation of: x is in this";
 
-        moveToFront(this.elements, x);
+        int pos = this.indexOf(x);
+        assert pos >= 0 : "Violation of: x is in this";
 
-        T temp = this.elements.dequeue();
+        T temp = removeAt(this.elements, pos);
+        if (this.lookupCounts != null) {
+            removeAt(this.lookupCounts, pos);
+        }
 
         return temp;
     }
@@ -144,6 +371,9 @@ public class Set2<T> extends SetSecondary<T> {
         assert this.size() > 0 : "Violation of: |this| > 0";
 
         T temp = this.elements.dequeue();
+        if (this.lookupCounts != null) {
+            this.lookupCounts.dequeue();
+        }
 
         return temp;
     }
@@ -152,12 +382,7 @@ public class Set2<T> extends SetSecondary<T> {
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        boolean exist = false;
-        for (T temp : this.elements) {
-            if (temp.equals(x)) {
-                exist = true;
-            }
-        }
+        boolean exist = this.lookUp(x);
 
         return exist;
     }
@@ -175,27 +400,64 @@ public class Set2<T> extends SetSecondary<T> {
         return this.elements.iterator();
     }
 
-    public static void main(String... args) {
-        Queue<String> q1 = new Queue1L<>();
-        //q1.enqueue("4");
-        //q1.enqueue("2");
-        //q1.enqueue("7");
-        //q1.enqueue("1");
+    /*
+     * Other methods ----------------------------------------------------------
+     */
 
-        System.out.println(q1);
+    /**
+     * Reports how {@code this} rearranges its elements after a lookup.
+     *
+     * @return the policy given to the constructor
+     */
+    public final SelfOrganizingPolicy policy() {
+        return this.policy;
+    }
 
-        moveToFront(q1, "9");
+    /**
+     * Reports the number of calls to {@code contains} since {@code this} was
+     * constructed or its counts were last reset.
+     *
+     * @return the number of lookups
+     */
+    public final long lookups() {
+        return this.lookups;
+    }
 
-        System.out.println(q1);
+    /**
+     * Reports the number of elements compared by {@code contains} since
+     * {@code this} was constructed or its counts were last reset.
+     *
+     * @return the number of comparisons
+     */
+    public final long comparisons() {
+        return this.comparisons;
+    }
 
-        System.out.println("=====================");
-        Set<String> s1 = new Set1L<>();
-        s1.add("4");
-        s1.add("2");
-        s1.add("7");
-        s1.add("1");
+    /**
+     * Reports the mean number of elements compared per call to
+     * {@code contains}, or 0 if there were no calls.
+     *
+     * @return comparisons / lookups
+     * @ensures <pre>
+     * meanScanLength = [if lookups = 0 then 0 else comparisons / lookups]
+     * </pre>
+     */
+    public final double meanScanLength() {
+        double mean = 0.0;
+        if (this.lookups > 0) {
+            mean = (double) this.comparisons / this.lookups;
+        }
+        return mean;
+    }
 
-        System.out.println(s1);
+    /**
+     * Resets the lookup and comparison counts to zero.
+     *
+     * @ensures lookups = 0 and comparisons = 0
+     */
+    public final void resetLookupCounts() {
+        this.lookups = 0;
+        this.comparisons = 0;
     }
 
 }
@@ -0,0 +1,403 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set<Integer>} of non-negative integers represented as a bitmap: bit
+ * {@code i % 64} of word {@code i / 64} of a growable {@code long[]} is set iff
+ * {@code i} is in the set. {@code add}, {@code remove} and {@code contains}
+ * take constant time (amortized, for {@code add}), and {@code size}, iteration
+ * and the bulk operations work on a whole word, i.e., 64 elements, at a time,
+ * so the set suits dense domains of small integers such as ids, byte codes
+ * and positions; its memory use is proportional to its largest element.
+ *
+ * @mathdefinitions <pre>
+ * BITS(
+ *   words: string of integer
+ *  ): finite set of integer satisfies
+ *  for all i: integer
+ *   (i is in BITS(words) iff
+ *    0 <= i < 64 * |words|  and
+ *    [bit i mod 64 of the word at position i / 64 of words is 1])
+ * </pre>
+ * @convention <pre>
+ * 0 <= $this.wordsInUse <= |$this.words|  and
+ * |$this.words| > 0  and
+ * [every word of $this.words at position wordsInUse or later is 0]  and
+ * ($this.wordsInUse = 0  or
+ *  [the word of $this.words at position wordsInUse - 1 is not 0])
+ * </pre>
+ * @correspondence this = BITS($this.words)
+ */
+public class Set4 extends SetSecondary<Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of bits in a word.
+     */
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    /**
+     * log2 of {@code BITS_PER_WORD}.
+     */
+    private static final int ADDRESS_BITS = 6;
+
+    /**
+     * The bitmap.
+     */
+    private long[] words;
+
+    /**
+     * Number of words up to and including the last non-zero one.
+     */
+    private int wordsInUse;
+
+    /**
+     * Returns the position in the bitmap of the word holding bit {@code i}.
+     *
+     * @param i
+     *            the bit
+     * @return i / 64
+     * @requires i >= 0
+     * @ensures wordIndex = i / 64
+     */
+    private static int wordIndex(int i) {
+        return i >>> ADDRESS_BITS;
+    }
+
+    /**
+     * Makes {@code $this.words} at least {@code wordsNeeded} long, at least
+     * doubling its length if it has to grow.
+     *
+     * @param wordsNeeded
+     *            the length needed
+     * @updates $this.words
+     * @ensures this = #this and |$this.words| >= wordsNeeded
+     */
+    private void ensureCapacity(int wordsNeeded) {
+        if (this.words.length < wordsNeeded) {
+            int newLength = Math.max(2 * this.words.length, wordsNeeded);
+            this.words = Arrays.copyOf(this.words, newLength);
+        }
+    }
+
+    /**
+     * Lowers {@code $this.wordsInUse} past trailing zero words, restoring the
+     * convention after bits were cleared.
+     *
+     * @updates $this.wordsInUse
+     * @ensures this = #this
+     */
+    private void trimWordsInUse() {
+        while (this.wordsInUse > 0 && this.words[this.wordsInUse - 1] == 0) {
+            this.wordsInUse--;
+        }
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.words = new long[1];
+        this.wordsInUse = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<Integer> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set4 : ""
+                + "Violation of: source is of dynamic type Set4";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        Set4 localSource = (Set4) source;
+        this.words = localSource.words;
+        this.wordsInUse = localSource.wordsInUse;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert x >= 0 : "Violation of: x >= 0";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        int w = wordIndex(x);
+        this.ensureCapacity(w + 1);
+        this.words[w] |= 1L << x;
+        this.wordsInUse = Math.max(this.wordsInUse, w + 1);
+    }
+
+    @Override
+    public final Integer remove(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        int w = wordIndex(x);
+        this.words[w] &= ~(1L << x);
+        this.trimWordsInUse();
+
+        return x;
+    }
+
+    @Override
+    public final Integer removeAny() {
+        assert this.size() > 0 : "Violation of: |this| > 0";
+
+        /*
+         * Take the largest element, so the scan for the next non-zero word
+         * only runs when the last word in use becomes zero
+         */
+        int w = this.wordsInUse - 1;
+        int bit = BITS_PER_WORD - 1
+                - Long.numberOfLeadingZeros(this.words[w]);
+        this.words[w] &= ~(1L << bit);
+        this.trimWordsInUse();
+
+        return w * BITS_PER_WORD + bit;
+    }
+
+    @Override
+    public final boolean contains(Integer x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean exist = false;
+        if (x >= 0) {
+            int w = wordIndex(x);
+            exist = w < this.wordsInUse && (this.words[w] & (1L << x)) != 0;
+        }
+
+        return exist;
+    }
+
+    @Override
+    public final int size() {
+        int size = 0;
+        for (int w = 0; w < this.wordsInUse; w++) {
+            size += Long.bitCount(this.words[w]);
+        }
+        return size;
+    }
+
+    @Override
+    public final Iterator<Integer> iterator() {
+        return new Set4Iterator();
+    }
+
+    /*
+     * Bulk methods -----------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Set<Integer> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        if (s instanceof Set4) {
+            Set4 t = (Set4) s;
+            this.ensureCapacity(t.wordsInUse);
+            for (int w = 0; w < t.wordsInUse; w++) {
+                long common = this.words[w] & t.words[w];
+                this.words[w] |= t.words[w];
+                t.words[w] = common;
+            }
+            this.wordsInUse = Math.max(this.wordsInUse, t.wordsInUse);
+            t.trimWordsInUse();
+        } else {
+            super.add(s);
+        }
+    }
+
+    @Override
+    public final Set<Integer> remove(Set<Integer> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        Set<Integer> removed;
+        if (s instanceof Set4) {
+            Set4 t = (Set4) s;
+            Set4 r = new Set4();
+            int n = Math.min(this.wordsInUse, t.wordsInUse);
+            r.ensureCapacity(n);
+            for (int w = 0; w < n; w++) {
+                r.words[w] = this.words[w] & t.words[w];
+                this.words[w] &= ~t.words[w];
+            }
+            r.wordsInUse = n;
+            r.trimWordsInUse();
+            this.trimWordsInUse();
+            removed = r;
+        } else {
+            removed = super.remove(s);
+        }
+        return removed;
+    }
+
+    /**
+     * Adds to {@code this} all elements of {@code s}.
+     *
+     * @param s
+     *            the set whose elements are to be added
+     * @updates this
+     * @ensures this = #this union s
+     */
+    public final void unionWith(Set4 s) {
+        assert s != null : "Violation of: s is not null";
+
+        this.ensureCapacity(s.wordsInUse);
+        for (int w = 0; w < s.wordsInUse; w++) {
+            this.words[w] |= s.words[w];
+        }
+        this.wordsInUse = Math.max(this.wordsInUse, s.wordsInUse);
+    }
+
+    /**
+     * Removes from {@code this} all elements not in {@code s}.
+     *
+     * @param s
+     *            the set whose elements are to be kept
+     * @updates this
+     * @ensures this = #this intersection s
+     */
+    public final void intersectWith(Set4 s) {
+        assert s != null : "Violation of: s is not null";
+
+        for (int w = 0; w < this.wordsInUse; w++) {
+            if (w < s.wordsInUse) {
+                this.words[w] &= s.words[w];
+            } else {
+                this.words[w] = 0;
+            }
+        }
+        this.trimWordsInUse();
+    }
+
+    /**
+     * Removes from {@code this} all elements of {@code s}.
+     *
+     * @param s
+     *            the set whose elements are to be removed
+     * @updates this
+     * @ensures this = #this \ s
+     */
+    public final void differenceWith(Set4 s) {
+        assert s != null : "Violation of: s is not null";
+
+        int n = Math.min(this.wordsInUse, s.wordsInUse);
+        for (int w = 0; w < n; w++) {
+            this.words[w] &= ~s.words[w];
+        }
+        this.trimWordsInUse();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set4}, yielding
+     * the elements in increasing order.
+     */
+    private final class Set4Iterator implements Iterator<Integer> {
+
+        /**
+         * Position of the word holding the next elements.
+         */
+        private int wordIndex;
+
+        /**
+         * Bits of the word at {@code wordIndex} not yet seen.
+         */
+        private long unseenBits;
+
+        /**
+         * No-argument constructor.
+         */
+        Set4Iterator() {
+            this.wordIndex = 0;
+            this.unseenBits = Set4.this.words[0];
+            this.skipEmptyWords();
+        }
+
+        /**
+         * Moves to the next word with unseen bits, if there is one.
+         */
+        private void skipEmptyWords() {
+            while (this.unseenBits == 0
+                    && this.wordIndex + 1 < Set4.this.wordsInUse) {
+                this.wordIndex++;
+                this.unseenBits = Set4.this.words[this.wordIndex];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.unseenBits != 0;
+        }
+
+        @Override
+        public Integer next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int bit = Long.numberOfTrailingZeros(this.unseenBits);
+            this.unseenBits &= this.unseenBits - 1;
+            int element = this.wordIndex * BITS_PER_WORD + bit;
+            this.skipEmptyWords();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for self-organizing {@code Set2}; the inherited
+ * tests use {@code FREQUENCY_COUNT}.
+ */
+public class Set2TestSelfOrganizing extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set2<String>(SelfOrganizingPolicy.FREQUENCY_COUNT);
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Returns a {@code Set2} with the given policy and elements "a", "b", ...,
+     * "a" + (n - 1) added in order, so its queue is in that order.
+     *
+     * @param policy
+     *            the policy
+     * @param n
+     *            the number of elements, at most 26
+     * @return the new set
+     */
+    private static Set2<String> createSet(SelfOrganizingPolicy policy,
+            int n) {
+        Set2<String> s = new Set2<String>(policy);
+        for (int i = 0; i < n; i++) {
+            s.add(Character.toString((char) ('a' + i)));
+        }
+        return s;
+    }
+
+    /**
+     * Checks that iterating over {@code s} yields the characters of
+     * {@code order}, in that order.
+     *
+     * @param s
+     *            the set
+     * @param order
+     *            the expected elements, one character each
+     */
+    private static void assertOrder(Set<String> s, String order) {
+        Iterator<String> it = s.iterator();
+        for (int i = 0; i < order.length(); i++) {
+            assertEquals(order.substring(i, i + 1), it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /*
+     * Test that move-to-front moves the element found to the front
+     */
+    @Test
+    public final void testMoveToFront_1() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = createSet(SelfOrganizingPolicy.MOVE_TO_FRONT, 5);
+
+        /*
+         * Call method under test
+         */
+        boolean found = s.contains("d");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertTrue(found);
+        assertOrder(s, "dabce");
+    }
+
+    /*
+     * Test that transpose swaps the element found with its predecessor
+     */
+    @Test
+    public final void testTranspose_1() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = createSet(SelfOrganizingPolicy.TRANSPOSE, 5);
+
+        /*
+         * Call method under test
+         */
+        s.contains("d");
+        s.contains("d");
+        s.contains("a");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertOrder(s, "adbce");
+    }
+
+    /*
+     * Test that frequency-count keeps elements looked up more often in front
+     */
+    @Test
+    public final void testFrequencyCount_1() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = createSet(SelfOrganizingPolicy.FREQUENCY_COUNT, 5);
+
+        /*
+         * Call method under test
+         */
+        s.contains("c");
+        s.contains("e");
+        s.contains("e");
+        s.contains("b");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertOrder(s, "ecbad");
+    }
+
+    /*
+     * Test that a lookup without a policy stops at the element found and
+     * leaves the order alone
+     */
+    @Test
+    public final void testLookupCounts_1() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = createSet(SelfOrganizingPolicy.NONE, 5);
+
+        /*
+         * Call method under test
+         */
+        s.contains("b");
+        s.contains("z");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(2, s.lookups());
+        assertEquals(2 + 5, s.comparisons());
+        assertEquals(3.5, s.meanScanLength(), 0.0);
+        assertOrder(s, "abcde");
+    }
+
+    /*
+     * Test that move-to-front shortens repeated lookups of one element, and
+     * that the counts can be reset
+     */
+    @Test
+    public final void testLookupCounts_2() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = createSet(SelfOrganizingPolicy.MOVE_TO_FRONT, 10);
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < 10; i++) {
+            s.contains("j");
+        }
+        long comparisons = s.comparisons();
+        s.resetLookupCounts();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(10 + 9, comparisons);
+        assertEquals(0, s.lookups());
+        assertEquals(0.0, s.meanScanLength(), 0.0);
+    }
+
+    /*
+     * Test transferFrom into a frequency-count set from one without counts
+     */
+    @Test
+    public final void testTransferFrom_1() {
+        /*
+         * Set up variables
+         */
+        Set2<String> s = new Set2<String>(
+                SelfOrganizingPolicy.FREQUENCY_COUNT);
+        Set2<String> source = createSet(SelfOrganizingPolicy.NONE, 3);
+
+        /*
+         * Call method under test
+         */
+        s.transferFrom(source);
+        s.contains("c");
+        s.remove("a");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, source.size());
+        assertOrder(s, "cb");
+    }
+
+}
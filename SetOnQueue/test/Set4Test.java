@@ -0,0 +1,329 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * JUnit test fixture for {@code Set4}, the bitmap {@code Set<Integer>}. The
+ * kernel tests mirror those of {@code SetTest}, with integers for elements.
+ */
+public class Set4Test {
+
+    /**
+     * An element in the third word of the bitmap.
+     */
+    private static final int LARGE = 130;
+
+    /**
+     * Number of elements in the larger tests.
+     */
+    private static final int TEST_ELEMENTS = 1000;
+
+    /**
+     * Creates and returns a {@code Set4} with the given entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     * @requires [every entry in args is unique and non-negative]
+     * @ensures createFromArgsTest = [entries in args]
+     */
+    private static Set4 createFromArgsTest(int... args) {
+        Set4 set = new Set4();
+        for (int x : args) {
+            set.add(x);
+        }
+        return set;
+    }
+
+    /**
+     * Creates and returns a {@code Set1L<Integer>} with the given entries.
+     *
+     * @param args
+     *            the entries for the set
+     * @return the constructed set
+     * @requires [every entry in args is unique]
+     * @ensures createFromArgsRef = [entries in args]
+     */
+    private static Set<Integer> createFromArgsRef(int... args) {
+        Set<Integer> set = new Set1L<Integer>();
+        for (int x : args) {
+            set.add(x);
+        }
+        return set;
+    }
+
+    @Test
+    public final void testAdd_1() {
+        Set<Integer> refSet = createFromArgsRef();
+        Set<Integer> testSet = createFromArgsTest();
+
+        refSet.add(4);
+        testSet.add(4);
+
+        assertEquals(refSet, testSet);
+    }
+
+    @Test
+    public final void testAdd_2() {
+        Set<Integer> refSet = createFromArgsRef(4, 2, 7);
+        Set<Integer> testSet = createFromArgsTest(4, 2, 7);
+
+        refSet.add(LARGE);
+        refSet.add(0);
+        testSet.add(LARGE);
+        testSet.add(0);
+
+        assertEquals(refSet, testSet);
+    }
+
+    @Test
+    public final void testRemove_1() {
+        Set<Integer> refSet = createFromArgsRef(4, 2, 7, 1);
+        Set<Integer> testSet = createFromArgsTest(4, 2, 7, 1);
+
+        Integer refReturn = refSet.remove(4);
+        Integer testReturn = testSet.remove(4);
+
+        assertEquals(refSet, testSet);
+        assertEquals(refReturn, testReturn);
+    }
+
+    @Test
+    public final void testRemove_2() {
+        Set<Integer> refSet = createFromArgsRef(4, 2, 0, LARGE, 1);
+        Set<Integer> testSet = createFromArgsTest(4, 2, 0, LARGE, 1);
+
+        Integer refReturn1 = refSet.remove(LARGE);
+        Integer testReturn1 = testSet.remove(LARGE);
+        Integer refReturn2 = refSet.remove(0);
+        Integer testReturn2 = testSet.remove(0);
+
+        assertEquals(refSet, testSet);
+        assertEquals(refReturn1, testReturn1);
+        assertEquals(refReturn2, testReturn2);
+    }
+
+    @Test
+    public final void testContains_1() {
+        Set<Integer> testSet = createFromArgsTest();
+
+        assertFalse(testSet.contains(4));
+        assertFalse(testSet.contains(-1));
+    }
+
+    @Test
+    public final void testContains_2() {
+        Set<Integer> testSet = createFromArgsTest(4, 2, 7, LARGE);
+
+        assertTrue(testSet.contains(7));
+        assertTrue(testSet.contains(LARGE));
+        assertFalse(testSet.contains(9));
+        assertFalse(testSet.contains(LARGE + 1));
+        assertFalse(testSet.contains(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public final void testSize_1() {
+        Set<Integer> testSet = createFromArgsTest(4, 2, 7, 1, 63, 64, LARGE);
+
+        assertEquals(7, testSet.size());
+        assertEquals(0, createFromArgsTest().size());
+    }
+
+    @Test
+    public final void testRemoveAny_1() {
+        Set<Integer> refSet = createFromArgsRef(4, 2, 7, 1, LARGE);
+        Set<Integer> testSet = createFromArgsTest(4, 2, 7, 1, LARGE);
+
+        while (testSet.size() > 0) {
+            Integer testReturn = testSet.removeAny();
+            assertTrue(refSet.contains(testReturn));
+            refSet.remove(testReturn);
+        }
+
+        assertEquals(0, refSet.size());
+    }
+
+    /*
+     * Test that iteration yields the elements in increasing order
+     */
+    @Test
+    public final void testIterator_1() {
+        /*
+         * Set up variables
+         */
+        Set4 s = createFromArgsTest(LARGE, 64, 0, 63, 5);
+
+        /*
+         * Call method under test
+         */
+        Iterator<Integer> it = s.iterator();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        int[] expected = { 0, 5, 63, 64, LARGE };
+        for (int x : expected) {
+            assertEquals(Integer.valueOf(x), it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /*
+     * Test add(Set): this gets the union and s keeps the intersection
+     */
+    @Test
+    public final void testAddSet_1() {
+        /*
+         * Set up variables
+         */
+        Set4 s1 = createFromArgsTest(1, 2, 3);
+        Set4 s2 = createFromArgsTest(3, 4, LARGE);
+
+        /*
+         * Call method under test
+         */
+        s1.add(s2);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createFromArgsRef(1, 2, 3, 4, LARGE), s1);
+        assertEquals(createFromArgsRef(3), s2);
+    }
+
+    /*
+     * Test remove(Set): this loses the elements of s, which are returned
+     */
+    @Test
+    public final void testRemoveSet_1() {
+        /*
+         * Set up variables
+         */
+        Set4 s1 = createFromArgsTest(1, 2, 3, LARGE);
+        Set4 s2 = createFromArgsTest(3, LARGE, LARGE + 100);
+
+        /*
+         * Call method under test
+         */
+        Set<Integer> removed = s1.remove(s2);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createFromArgsRef(1, 2), s1);
+        assertEquals(createFromArgsRef(3, LARGE), removed);
+        assertEquals(createFromArgsRef(3, LARGE, LARGE + 100), s2);
+    }
+
+    /*
+     * Test unionWith, intersectWith and differenceWith against Set1L
+     */
+    @Test
+    public final void testBulk_1() {
+        /*
+         * Set up variables: multiples of 2 and multiples of 3
+         */
+        Set4 evens = new Set4();
+        Set4 threes = new Set4();
+        Set<Integer> union = new Set1L<Integer>();
+        Set<Integer> intersection = new Set1L<Integer>();
+        Set<Integer> difference = new Set1L<Integer>();
+        for (int i = 0; i < TEST_ELEMENTS; i++) {
+            if (i % 2 == 0) {
+                evens.add(i);
+            }
+            if (i % 3 == 0 && i < TEST_ELEMENTS / 2) {
+                threes.add(i);
+            }
+            if (i % 2 == 0 || (i % 3 == 0 && i < TEST_ELEMENTS / 2)) {
+                union.add(i);
+            }
+            if (i % 6 == 0 && i < TEST_ELEMENTS / 2) {
+                intersection.add(i);
+            }
+            if (i % 2 == 0 && !(i % 3 == 0 && i < TEST_ELEMENTS / 2)) {
+                difference.add(i);
+            }
+        }
+        Set4 u = createFromArgsTest();
+        Set4 n = createFromArgsTest();
+        Set4 d = createFromArgsTest();
+        u.unionWith(evens);
+        n.unionWith(evens);
+        d.unionWith(evens);
+
+        /*
+         * Call method under test
+         */
+        u.unionWith(threes);
+        n.intersectWith(threes);
+        d.differenceWith(threes);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(union, u);
+        assertEquals(intersection, n);
+        assertEquals(difference, d);
+        assertEquals(TEST_ELEMENTS / 2, evens.size());
+    }
+
+    /*
+     * Test that removing the largest elements lets the set shrink back to
+     * empty, and that it can grow again
+     */
+    @Test
+    public final void testShrink_1() {
+        /*
+         * Set up variables
+         */
+        Set4 s = createFromArgsTest(LARGE);
+
+        /*
+         * Call method under test
+         */
+        s.remove(LARGE);
+        s.add(1);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createFromArgsRef(1), s);
+        assertEquals(Integer.valueOf(1), s.removeAny());
+        assertEquals(0, s.size());
+        assertFalse(s.iterator().hasNext());
+    }
+
+    /*
+     * Test transferFrom
+     */
+    @Test
+    public final void testTransferFrom_1() {
+        /*
+         * Set up variables
+         */
+        Set4 s = createFromArgsTest(1);
+        Set4 source = createFromArgsTest(2, LARGE);
+
+        /*
+         * Call method under test
+         */
+        s.transferFrom(source);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(createFromArgsRef(2, LARGE), s);
+        assertEquals(0, source.size());
+        assertFalse(source.contains(2));
+    }
+
+}
@@ -0,0 +1,329 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import components.stack.Stack;
+import components.stack.StackSecondary;
+
+/**
+ * Thread-safe {@code Stack} represented as a singly linked list whose top is
+ * changed by compare-and-set (a Treiber stack), with implementations of
+ * primary methods.
+ *
+ * <p>
+ * {@code push}, {@code pop}, {@code tryPop}, {@code pushAll} and {@code top}
+ * are lock-free and atomic: each reads the top node, builds or picks its
+ * replacement, and installs it only if the top is still the node it read,
+ * retrying otherwise. A node is never reused once it is unlinked, and its
+ * {@code next} is not changed once it is linked, so the top cannot go from a
+ * node back to the same node with a different list below it while an
+ * operation is between its read and its compare-and-set (the ABA problem):
+ * the garbage collector keeps an unlinked node alive as long as any thread
+ * holds it.
+ *
+ * <p>
+ * The number of entries is kept in a separate counter, changed right after
+ * each successful compare-and-set, so while other threads are pushing and
+ * popping, {@code length} reports a value within the number of operations in
+ * progress of one {@code this} had during the call; {@code pop} therefore
+ * checks its precondition on the entry it takes rather than on
+ * {@code length}. {@code pop} requires {@code this} to be non-empty, which
+ * other threads can falsify; between threads, use {@code tryPop}.
+ * {@code replaceTop} and the other secondary methods are not atomic, and the
+ * standard methods ({@code newInstance}, {@code clear},
+ * {@code transferFrom}) are not thread-safe: no other thread may change
+ * {@code this} while they run. Iteration sees the entries as of its start.
+ *
+ * @param <T>
+ *            type of Stack entries
+ * @convention <pre>
+ * [$this.top holds null or the first node of a singly linked list, and
+ *  next in the last node of that list is null]  and
+ * [when no operation is in progress, $this.length holds the number of nodes
+ *  in that list]
+ * </pre>
+ * @correspondence this = [data in the nodes starting at $this.top]
+ */
+public class Stack2LockFree<T> extends StackSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node class for singly linked list nodes.
+     *
+     * @param <T>
+     *            type of the entry in the node
+     */
+    private static final class Node<T> {
+
+        /**
+         * Data in node.
+         */
+        private final T data;
+
+        /**
+         * Next node in singly linked list, or null; set only before the node
+         * is linked.
+         */
+        private Node<T> next;
+
+        /**
+         * Constructor.
+         *
+         * @param data
+         *            the data in the node
+         */
+        Node(T data) {
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * Top node of singly linked list, or null.
+     */
+    private AtomicReference<Node<T>> top;
+
+    /**
+     * Number of nodes in singly linked list, as of the last completed
+     * operation.
+     */
+    private AtomicInteger length;
+
+    /**
+     * Links {@code first} through {@code last} on top of the list and
+     * adds {@code n} to the length.
+     *
+     * @param first
+     *            the first node of the chain to link
+     * @param last
+     *            the last node of the chain to link
+     * @param n
+     *            the number of nodes in the chain
+     * @updates this
+     * @requires <pre>
+     * [first through last is a chain of n new nodes, not yet linked]
+     * </pre>
+     * @ensures this = [data in first through last] * #this
+     */
+    private void link(Node<T> first, Node<T> last, int n) {
+        Node<T> oldTop;
+        do {
+            oldTop = this.top.get();
+            last.next = oldTop;
+        } while (!this.top.compareAndSet(oldTop, first));
+        this.length.addAndGet(n);
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.top = new AtomicReference<Node<T>>(null);
+        this.length = new AtomicInteger(0);
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Stack2LockFree() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Stack<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Stack<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Stack2LockFree<?> : ""
+                + "Violation of: source is of dynamic type Stack2LockFree<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type
+         * Stack2LockFree<?>, and the ? must be T or the call would not have
+         * compiled.
+         */
+        Stack2LockFree<T> localSource = (Stack2LockFree<T>) source;
+        this.top = localSource.top;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void push(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Node<T> node = new Node<T>(x);
+        this.link(node, node, 1);
+    }
+
+    @Override
+    public final T pop() {
+        /*
+         * The length counter lags behind pushes still in progress, so the
+         * precondition is checked on what tryPop finds rather than on length
+         */
+        T removedValue = this.tryPop();
+        assert removedValue != null : "Violation of: this /= <>";
+        return removedValue;
+    }
+
+    @Override
+    public final int length() {
+        /*
+         * A pop can be counted before the push of the same entry, so the
+         * counter can be briefly negative
+         */
+        return Math.max(0, this.length.get());
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    @Override
+    public final T top() {
+        Node<T> topNode = this.top.get();
+        assert topNode != null : "Violation of: this /= <>";
+
+        return topNode.data;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Stack2LockFreeIterator();
+    }
+
+    /**
+     * Removes and returns the top entry of {@code this}, or returns null if
+     * {@code this} is empty.
+     *
+     * @return the top entry, or null
+     * @updates this
+     * @ensures <pre>
+     * if #this = <>
+     *  then (this = <>  and  tryPop = null)
+     *  else #this = <tryPop> * this
+     * </pre>
+     */
+    public final T tryPop() {
+        T removedValue = null;
+        Node<T> oldTop = this.top.get();
+        while (oldTop != null
+                && !this.top.compareAndSet(oldTop, oldTop.next)) {
+            oldTop = this.top.get();
+        }
+        if (oldTop != null) {
+            this.length.decrementAndGet();
+            removedValue = oldTop.data;
+        }
+        return removedValue;
+    }
+
+    /**
+     * Pushes all entries of {@code s} onto {@code this} at once, keeping their
+     * order, so they are never seen on {@code this} in part.
+     *
+     * @param s
+     *            the entries to push, top first
+     * @updates this
+     * @clears s
+     * @ensures this = #s * #this
+     */
+    public final void pushAll(Stack<T> s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        int n = s.length();
+        if (n > 0) {
+            Node<T> first = new Node<T>(s.pop());
+            Node<T> last = first;
+            while (s.length() > 0) {
+                Node<T> node = new Node<T>(s.pop());
+                last.next = node;
+                last = node;
+            }
+            this.link(first, last, n);
+        }
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for
+     * {@code Stack2LockFree}.
+     */
+    private final class Stack2LockFreeIterator implements Iterator<T> {
+
+        /**
+         * Current node in the linked list.
+         */
+        private Node<T> current;
+
+        /**
+         * No-argument constructor.
+         */
+        private Stack2LockFreeIterator() {
+            this.current = Stack2LockFree.this.top.get();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.current != null;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            T x = this.current.data;
+            this.current = this.current.next;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.stack.Stack;
+
+/**
+ * Times threads sharing one stack as a work pool, each pushing an entry and
+ * popping one in turn, on {@code Stack2LockFree} against a {@code Stack2}
+ * guarded by its own monitor, with 1, 2, 4, ... threads.
+ *
+ * @author Zhao Liu
+ *
+ */
+public final class Stack2LockFreeBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Stack2LockFreeBenchmark() {
+    }
+
+    /**
+     * Number of timed runs for each number of threads.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Largest number of threads timed.
+     */
+    private static final int MAX_THREADS = 16;
+
+    /**
+     * Number of entries on the stack before the threads start.
+     */
+    private static final int INITIAL_ENTRIES = 1000;
+
+    /**
+     * Pushes an entry onto {@code s} and pops one, {@code n} times, through
+     * {@code push} and {@code tryPop} if {@code s} is a
+     * {@code Stack2LockFree} and inside {@code synchronized (s)} otherwise.
+     *
+     * @param s
+     *            the stack
+     * @param n
+     *            the number of pushes and of pops
+     * @return the number of pops that found an entry
+     */
+    private static int work(Stack<Integer> s, int n) {
+        Integer entry = 1;
+        int popped = 0;
+        if (s instanceof Stack2LockFree<?>) {
+            Stack2LockFree<Integer> lockFree = (Stack2LockFree<Integer>) s;
+            for (int i = 0; i < n; i++) {
+                lockFree.push(entry);
+                if (lockFree.tryPop() != null) {
+                    popped++;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                synchronized (s) {
+                    s.push(entry);
+                }
+                synchronized (s) {
+                    if (s.length() > 0) {
+                        s.pop();
+                        popped++;
+                    }
+                }
+            }
+        }
+        return popped;
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} runs of {@code threads}
+     * threads each calling {@code work} on one new stack like
+     * {@code prototype}; one untimed run warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param prototype
+     *            a stack of the implementation to time
+     * @param threads
+     *            the number of threads
+     * @param n
+     *            the number of pushes and pops for each thread
+     * @updates out.content
+     * @requires out.is_open and threads > 0
+     */
+    private static void report(SimpleWriter out, Stack<Integer> prototype,
+            int threads, int n) {
+        long elapsed = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            final Stack<Integer> s = prototype.newInstance();
+            for (int i = 0; i < INITIAL_ENTRIES; i++) {
+                s.push(i);
+            }
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> work(s, n));
+            }
+            long start = System.nanoTime();
+            for (Thread t : workers) {
+                t.start();
+            }
+            for (Thread t : workers) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        double millis = elapsed / NANOS_PER_MILLI / ROUNDS;
+        out.println(prototype.getClass().getSimpleName() + "\t" + threads
+                + " threads\t" + String.format("%.1f", millis) + " ms\t"
+                + String.format("%.0f", 2.0 * threads * n / millis)
+                + " ops/ms");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Pushes and pops per thread (e.g., 1000000): ");
+        int n = in.nextInteger();
+        out.print("Implementation (Stack2 or Stack2LockFree): ");
+        String name = in.nextLine();
+        Stack<Integer> prototype = new Stack2LockFree<Integer>();
+        if (name.equals("Stack2")) {
+            prototype = new Stack2<Integer>();
+        }
+
+        out.println(Runtime.getRuntime().availableProcessors()
+                + " processors, average of " + ROUNDS + " runs:");
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            report(out, prototype, threads, n);
+        }
+        in.close();
+        out.close();
+    }
+
+}
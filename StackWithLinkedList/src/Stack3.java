@@ -0,0 +1,364 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.stack.Stack;
+import components.stack.StackSecondary;
+
+/**
+ * {@code Stack} represented as a singly linked list of fixed-size array
+ * chunks, done "bare-handed", with implementations of primary methods.
+ *
+ * <p>
+ * Entries are kept {@code CHUNK_SIZE} to a chunk, so {@code push} allocates a
+ * chunk only once every {@code CHUNK_SIZE} entries rather than a node for every
+ * entry, and neighboring entries are neighbors in memory. {@code pop} leaves
+ * an emptied chunk on top until a later {@code pop} needs the chunk below, and
+ * keeps the chunk it then unlinks as a spare for the next {@code push} that
+ * needs one, so a stack whose length goes back and forth across a chunk
+ * boundary, or down to empty and up again, does not allocate a chunk at every
+ * crossing.
+ *
+ * <p>
+ * Execution-time performance of all methods implemented in this class is O(1).
+ *
+ * @param <T>
+ *            type of Stack entries
+ * @convention <pre>
+ * $this.length >= 0  and
+ * if $this.top is null then
+ *   $this.length = 0  and  $this.topCount = 0
+ * else
+ *   [$this.top points to the first chunk of a singly linked list of k
+ *    chunks, each with an entries array of length CHUNK_SIZE]  and
+ *   [below in the last chunk of that list is null]  and
+ *   0 <= $this.topCount <= CHUNK_SIZE  and
+ *   $this.length = (k - 1) * CHUNK_SIZE + $this.topCount  and
+ *   [entries at positions topCount or later in the first chunk are null]
+ * </pre>
+ * @correspondence <pre>
+ * this = [entries at positions topCount - 1 down to 0 in the first chunk,
+ *         followed by entries at positions CHUNK_SIZE - 1 down to 0 in each
+ *         of the following chunks, in list order]
+ * </pre>
+ */
+public class Stack3<T> extends StackSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of entries in a chunk.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Chunk class for singly linked list chunks.
+     */
+    private final class Chunk {
+
+        /**
+         * Entries in chunk, bottom first.
+         */
+        private final Object[] entries = new Object[CHUNK_SIZE];
+
+        /**
+         * Next chunk down in singly linked list, or null.
+         */
+        private Chunk below;
+
+    }
+
+    /**
+     * Top chunk of singly linked list.
+     */
+    private Chunk top;
+
+    /**
+     * Number of entries in the top chunk.
+     */
+    private int topCount;
+
+    /**
+     * Number of entries in all chunks, i.e., length = |this|.
+     */
+    private int length;
+
+    /**
+     * An empty chunk to reuse on the next {@code push} that needs one, or
+     * null.
+     */
+    private Chunk spare;
+
+    /**
+     * Checks that the part of the convention repeated below holds for the
+     * current representation.
+     *
+     * @return true if the convention holds (or if assertion checking is off);
+     *         otherwise reports a violated assertion
+     * @convention <pre>
+     * $this.length >= 0  and
+     * if $this.top is null then
+     *   $this.length = 0  and  $this.topCount = 0
+     * else
+     *   [$this.top points to the first chunk of a singly linked list of k
+     *    chunks]  and
+     *   0 <= $this.topCount <= CHUNK_SIZE  and
+     *   $this.length = (k - 1) * CHUNK_SIZE + $this.topCount
+     * </pre>
+     */
+    private boolean conventionHolds() {
+        assert this.length >= 0 : "Violation of: $this.length >= 0";
+        if (this.top == null) {
+            assert this.length == 0 : ""
+                    + "Violation of: if $this.top is null then $this.length = 0";
+            assert this.topCount == 0 : ""
+                    + "Violation of: if $this.top is null then $this.topCount = 0";
+        } else {
+            assert 0 <= this.topCount && this.topCount <= CHUNK_SIZE : ""
+                    + "Violation of: 0 <= $this.topCount <= CHUNK_SIZE";
+            int chunks = 0;
+            Chunk tmp = this.top;
+            while (tmp != null) {
+                chunks++;
+                tmp = tmp.below;
+            }
+            assert this.length == (chunks - 1) * CHUNK_SIZE
+                    + this.topCount : "Violation of: $this.length = "
+                            + "(k - 1) * CHUNK_SIZE + $this.topCount";
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure the top entry is in the top chunk: if the top chunk is
+     * empty, keeps it as the spare and moves down to the full chunk below.
+     *
+     * @updates $this
+     * @requires |this| > 0
+     * @ensures this = #this  and  $this.topCount > 0
+     */
+    private void uncoverTop() {
+        if (this.topCount == 0) {
+            Chunk emptied = this.top;
+            this.top = emptied.below;
+            emptied.below = null;
+            this.spare = emptied;
+            this.topCount = CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.top = null;
+        this.topCount = 0;
+        this.length = 0;
+        this.spare = null;
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Stack3() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Stack<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+        assert this.conventionHolds();
+    }
+
+    @Override
+    public final void transferFrom(Stack<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Stack3<?> : ""
+                + "Violation of: source is of dynamic type Stack3<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Stack3<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Stack3<T> localSource = (Stack3<T>) source;
+        this.top = localSource.top;
+        this.topCount = localSource.topCount;
+        this.length = localSource.length;
+        this.spare = localSource.spare;
+        localSource.createNewRep();
+        assert this.conventionHolds();
+        assert localSource.conventionHolds();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void push(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        if (this.top == null || this.topCount == CHUNK_SIZE) {
+            Chunk chunk = this.spare;
+            if (chunk == null) {
+                chunk = new Chunk();
+            }
+            this.spare = null;
+            chunk.below = this.top;
+            this.top = chunk;
+            this.topCount = 0;
+        }
+        this.top.entries[this.topCount] = x;
+        this.topCount++;
+        this.length++;
+
+        assert this.conventionHolds();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T pop() {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        this.uncoverTop();
+        this.topCount--;
+        T removedValue = (T) this.top.entries[this.topCount];
+        // let the entry be garbage collected.
+        this.top.entries[this.topCount] = null;
+        this.length--;
+
+        assert this.conventionHolds();
+        return removedValue;
+    }
+
+    @Override
+    public final int length() {
+
+        assert this.conventionHolds();
+        return this.length;
+    }
+
+    /*
+     * Other methods (overridden for performance reasons) ---------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T top() {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        this.uncoverTop();
+        T topData = (T) this.top.entries[this.topCount - 1];
+
+        assert this.conventionHolds();
+        return topData;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T replaceTop(T x) {
+        assert this.length() > 0 : "Violation of: this /= <>";
+
+        this.uncoverTop();
+        T oldTopData = (T) this.top.entries[this.topCount - 1];
+        this.top.entries[this.topCount - 1] = x;
+
+        assert this.conventionHolds();
+        return oldTopData;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Stack3Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Stack3}.
+     */
+    private final class Stack3Iterator implements Iterator<T> {
+
+        /**
+         * Current chunk in the linked list.
+         */
+        private Chunk current;
+
+        /**
+         * Number of entries of the current chunk not yet seen.
+         */
+        private int unseen;
+
+        /**
+         * No-argument constructor.
+         */
+        private Stack3Iterator() {
+            this.current = Stack3.this.top;
+            this.unseen = Stack3.this.topCount;
+            if (this.unseen == 0 && this.current != null) {
+                // the top chunk is empty: start at the one below.
+                this.current = this.current.below;
+                this.unseen = CHUNK_SIZE;
+            }
+            assert Stack3.this.conventionHolds();
+        }
+
+        @Override
+        public boolean hasNext() {
+            assert Stack3.this.conventionHolds();
+            return this.current != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            this.unseen--;
+            T x = (T) this.current.entries[this.unseen];
+            if (this.unseen == 0) {
+                this.current = this.current.below;
+                this.unseen = CHUNK_SIZE;
+            }
+            assert Stack3.this.conventionHolds();
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.stack.Stack;
+import components.stack.Stack1L;
+
+/**
+ * Times push and pop throughput of {@code Stack3}, the chunked stack, against
+ * {@code Stack2}, the linked stack, and {@code Stack1L}: once filling a stack
+ * and emptying it again, and once keeping it shallow, as expression
+ * evaluation and parsing do, with short runs of pushes each followed by as
+ * many pops. Each run times one implementation, so that the JIT compiler
+ * does not see the calls to {@code push} and {@code pop} reach more than one
+ * class, which would slow down whichever is timed later.
+ *
+ * @author Zhao Liu
+ *
+ */
+public final class StackBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StackBenchmark() {
+    }
+
+    /**
+     * Number of timed runs of each pattern.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Number of pushes in each run of the shallow pattern.
+     */
+    private static final int SHALLOW_DEPTH = 8;
+
+    /**
+     * Pushes {@code n} entries onto {@code s} and pops them, all at once if
+     * {@code deep} and in runs of {@code SHALLOW_DEPTH} otherwise.
+     *
+     * @param s
+     *            the stack
+     * @param n
+     *            the number of entries to push
+     * @param deep
+     *            whether to push all entries before popping
+     * @return the number of entries popped that are not null
+     * @restores s
+     */
+    private static int pushPop(Stack<Integer> s, int n, boolean deep) {
+        int run = SHALLOW_DEPTH;
+        if (deep) {
+            run = n;
+        }
+        Integer entry = 0;
+        int popped = 0;
+        for (int done = 0; done < n; done += run) {
+            for (int i = 0; i < run; i++) {
+                s.push(entry);
+            }
+            for (int i = 0; i < run; i++) {
+                if (s.pop() != null) {
+                    popped++;
+                }
+            }
+        }
+        return popped;
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} runs of {@code pushPop} on a
+     * new stack like {@code prototype}; one untimed run warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param prototype
+     *            a stack of the implementation to time
+     * @param n
+     *            the number of entries to push
+     * @param deep
+     *            whether to push all entries before popping
+     * @updates out.content
+     * @requires out.is_open
+     */
+    private static void report(SimpleWriter out, Stack<Integer> prototype,
+            int n, boolean deep) {
+        long elapsed = 0;
+        int popped = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            Stack<Integer> s = prototype.newInstance();
+            long start = System.nanoTime();
+            popped = pushPop(s, n, deep);
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        String pattern = "shallow";
+        if (deep) {
+            pattern = "deep";
+        }
+        out.println(prototype.getClass().getSimpleName() + "\t" + pattern
+                + "\t" + String.format("%.1f",
+                        elapsed / NANOS_PER_MILLI / ROUNDS)
+                + " ms\t(" + popped + " popped)");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Number of pushes (e.g., 5000000): ");
+        int n = in.nextInteger();
+
+        out.print("Implementation (Stack1L, Stack2 or Stack3): ");
+        String name = in.nextLine();
+        Stack<Integer> prototype;
+        if (name.equals("Stack1L")) {
+            prototype = new Stack1L<Integer>();
+        } else if (name.equals("Stack2")) {
+            prototype = new Stack2<Integer>();
+        } else {
+            prototype = new Stack3<Integer>();
+        }
+
+        out.println(n + " pushes and pops, average of " + ROUNDS + " runs:");
+        report(out, prototype, n, true);
+        report(out, prototype, n, false);
+        in.close();
+        out.close();
+    }
+
+}
@@ -0,0 +1,256 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import components.stack.Stack;
+import components.stack.Stack1L;
+
+/**
+ * Customized JUnit test fixture for {@code Stack2LockFree}, with stress tests
+ * of concurrent pushes and pops.
+ */
+public class Stack2LockFreeTest extends StackTest {
+
+    /**
+     * Number of threads in the stress tests.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of entries each thread pushes in the stress tests.
+     */
+    private static final int ENTRIES_PER_THREAD = 20_000;
+
+    /**
+     * Number of entries each thread pushes at once with {@code pushAll}.
+     */
+    private static final int BATCH_SIZE = 10;
+
+    @Override
+    protected final Stack<String> constructorTest() {
+        return new Stack2LockFree<String>();
+    }
+
+    @Override
+    protected final Stack<String> constructorRef() {
+        return new Stack1L<String>();
+    }
+
+    /**
+     * Starts the given threads and waits for all of them to finish.
+     *
+     * @param threads
+     *            the threads
+     */
+    private static void runAll(Thread[] threads) {
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Interrupted while waiting", e);
+            }
+        }
+    }
+
+    /*
+     * Test tryPop on an empty and on a non-empty stack
+     */
+    @Test
+    public final void testTryPop_1() {
+        /*
+         * Set up variables
+         */
+        Stack2LockFree<String> s = new Stack2LockFree<String>();
+        s.push("a");
+
+        /*
+         * Call method under test
+         */
+        String first = s.tryPop();
+        String second = s.tryPop();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("a", first);
+        assertNull(second);
+        assertEquals(0, s.length());
+    }
+
+    /*
+     * Test that pushAll keeps the order of the entries and clears its
+     * argument
+     */
+    @Test
+    public final void testPushAll_1() {
+        /*
+         * Set up variables
+         */
+        Stack2LockFree<String> s = new Stack2LockFree<String>();
+        s.push("c");
+        Stack<String> batch = new Stack1L<String>();
+        batch.push("b");
+        batch.push("a");
+        Stack<String> sExpected = new Stack1L<String>();
+        sExpected.push("c");
+        sExpected.push("b");
+        sExpected.push("a");
+
+        /*
+         * Call method under test
+         */
+        s.pushAll(batch);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(0, batch.length());
+    }
+
+    /*
+     * Stress test: threads push distinct entries and pop concurrently; every
+     * entry must be popped exactly once
+     */
+    @Test
+    public final void testConcurrentPushPop_1() {
+        /*
+         * Set up variables
+         */
+        final Stack2LockFree<Integer> s = new Stack2LockFree<Integer>();
+        final int total = THREADS * ENTRIES_PER_THREAD;
+        final AtomicIntegerArray popCounts = new AtomicIntegerArray(total);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * ENTRIES_PER_THREAD;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                    s.push(base + i);
+                    Integer x = s.tryPop();
+                    if (x != null) {
+                        popCounts.incrementAndGet(x);
+                    }
+                }
+            });
+        }
+
+        /*
+         * Call method under test
+         */
+        runAll(threads);
+        Integer x = s.tryPop();
+        while (x != null) {
+            popCounts.incrementAndGet(x);
+            x = s.tryPop();
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, popCounts.get(i));
+        }
+        assertEquals(0, s.length());
+    }
+
+    /*
+     * Stress test: a consumer pops each entry as soon as it sees it on top,
+     * which may be before the producer's push has counted it in length; pop
+     * must not report a violated precondition on the non-empty stack
+     */
+    @Test
+    public final void testConcurrentPushPop_2() {
+        /*
+         * Set up variables
+         */
+        final Stack2LockFree<Integer> s = new Stack2LockFree<Integer>();
+        final AtomicInteger failures = new AtomicInteger(0);
+        final AtomicInteger popped = new AtomicInteger(0);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                s.push(i);
+                while (popped.get() <= i && failures.get() == 0) {
+                    Thread.yield();
+                }
+            }
+        });
+        Thread consumer = new Thread(() -> {
+            for (int i = 0; i < ENTRIES_PER_THREAD
+                    && failures.get() == 0; i++) {
+                while (!s.iterator().hasNext()) {
+                    Thread.yield();
+                }
+                try {
+                    s.pop();
+                    popped.incrementAndGet();
+                } catch (AssertionError e) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+
+        /*
+         * Call method under test
+         */
+        runAll(new Thread[] { producer, consumer });
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(0, failures.get());
+        assertEquals(ENTRIES_PER_THREAD, popped.get());
+        assertEquals(0, s.length());
+    }
+
+    /*
+     * Stress test: batches pushed with pushAll by several threads at once are
+     * each found whole and in order
+     */
+    @Test
+    public final void testConcurrentPushAll_1() {
+        /*
+         * Set up variables
+         */
+        final Stack2LockFree<Integer> s = new Stack2LockFree<Integer>();
+        final int batches = ENTRIES_PER_THREAD / BATCH_SIZE;
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * ENTRIES_PER_THREAD;
+            threads[t] = new Thread(() -> {
+                for (int b = 0; b < batches; b++) {
+                    Stack<Integer> batch = new Stack1L<Integer>();
+                    for (int i = BATCH_SIZE - 1; i >= 0; i--) {
+                        batch.push(base + b * BATCH_SIZE + i);
+                    }
+                    s.pushAll(batch);
+                }
+            });
+        }
+
+        /*
+         * Call method under test
+         */
+        runAll(threads);
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(THREADS * ENTRIES_PER_THREAD, s.length());
+        while (s.length() > 0) {
+            int first = s.pop();
+            assertEquals(0, first % BATCH_SIZE);
+            for (int i = 1; i < BATCH_SIZE; i++) {
+                assertEquals(first + i, s.pop().intValue());
+            }
+        }
+        assertNull(s.tryPop());
+    }
+
+}
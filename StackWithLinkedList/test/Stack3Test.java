@@ -0,0 +1,132 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.stack.Stack;
+import components.stack.Stack1L;
+
+/**
+ * Customized JUnit test fixture for {@code Stack3}.
+ */
+public class Stack3Test extends StackTest {
+
+    /**
+     * Number of entries in the larger tests, enough to fill several chunks.
+     */
+    private static final int LARGE_SIZE = 1000;
+
+    /**
+     * A multiple of the chunk size.
+     */
+    private static final int CHUNK_MULTIPLE = 512;
+
+    @Override
+    protected final Stack<String> constructorTest() {
+        return new Stack3<String>();
+    }
+
+    @Override
+    protected final Stack<String> constructorRef() {
+        return new Stack1L<String>();
+    }
+
+    /*
+     * Test push, pop, top and replaceTop across chunk boundaries
+     */
+    @Test
+    public final void testPushPopLarge_1() {
+        /*
+         * Set up variables
+         */
+        Stack<String> sExpected = this.constructorRef();
+        Stack<String> s = this.constructorTest();
+
+        /*
+         * Call method under test
+         */
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            sExpected.push("e" + i);
+            s.push("e" + i);
+        }
+        assertEquals(sExpected, s);
+        for (int i = 0; i < LARGE_SIZE / 2; i++) {
+            assertEquals(sExpected.pop(), s.pop());
+        }
+        for (int i = 0; i < LARGE_SIZE / 4; i++) {
+            sExpected.push("f" + i);
+            s.push("f" + i);
+        }
+        String valueExpected = sExpected.replaceTop("top");
+        String value = s.replaceTop("top");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(sExpected, s);
+        assertEquals(valueExpected, value);
+        assertEquals(sExpected.top(), s.top());
+        assertEquals(sExpected.length(), s.length());
+    }
+
+    /*
+     * Test popping back to empty and pushing again
+     */
+    @Test
+    public final void testPopToEmpty_1() {
+        /*
+         * Set up variables
+         */
+        Stack<String> s = this.constructorTest();
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            s.push("e" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        for (int i = LARGE_SIZE - 1; i >= 0; i--) {
+            assertEquals("e" + i, s.pop());
+        }
+        s.push("again");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(1, s.length());
+        assertEquals("again", s.top());
+    }
+
+    /*
+     * Test top, replaceTop and iteration when the last pop emptied a chunk
+     */
+    @Test
+    public final void testChunkBoundary_1() {
+        /*
+         * Set up variables
+         */
+        Stack<String> sExpected = this.constructorRef();
+        Stack<String> s = this.constructorTest();
+        for (int i = 0; i <= CHUNK_MULTIPLE; i++) {
+            sExpected.push("e" + i);
+            s.push("e" + i);
+        }
+
+        /*
+         * Call method under test
+         */
+        String poppedExpected = sExpected.pop();
+        String popped = s.pop();
+        assertEquals(sExpected, s);
+        String valueExpected = sExpected.replaceTop("top");
+        String value = s.replaceTop("top");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(poppedExpected, popped);
+        assertEquals(valueExpected, value);
+        assertEquals(sExpected.top(), s.top());
+        assertEquals(sExpected, s);
+    }
+
+}
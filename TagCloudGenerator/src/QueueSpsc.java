@@ -0,0 +1,285 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free queue for handing entries from exactly one producer
+ * thread to exactly one consumer thread, e.g., from a stage reading lines to
+ * a stage counting words, so the two stages can overlap. Entries are kept in
+ * a circular array whose length is a power of two.
+ *
+ * <p>
+ * Only the producer writes the tail index and only the consumer writes the
+ * head index, so neither needs a compare-and-set: each publishes its index
+ * with an ordered write after touching the array slot, which makes the slot
+ * visible to the other thread before the index. The two indexes are kept in
+ * separate objects padded to a cache line each, so that the producer and the
+ * consumer do not invalidate each other's cache line with every operation;
+ * each also caches the last index it read of the other and reads it again
+ * only when the cached value says the queue is full (for the producer) or
+ * empty (for the consumer).
+ *
+ * <p>
+ * {@code enqueue} and {@code dequeue} wait, yielding the processor, while
+ * the queue is full or empty; {@code tryEnqueue} and {@code tryDequeue}
+ * return at once. The producer calls {@code close} after its last entry;
+ * {@code dequeue} then returns null once the queue is empty.
+ * {@code enqueue}, {@code tryEnqueue} and {@code close} may be called only by
+ * the producer, and {@code dequeue} and {@code tryDequeue} only by the
+ * consumer.
+ *
+ * @param <T>
+ *            type of {@code QueueSpsc} entries
+ * @convention <pre>
+ * [|$this.entries| is a power of two]  and
+ * 0 <= $this.tail - $this.head <= |$this.entries|  and
+ * [the entries at positions head mod |$this.entries| through
+ *  (tail - 1) mod |$this.entries|, wrapping around, are not null, and the
+ *  others are null]
+ * </pre>
+ * @correspondence <pre>
+ * this = [the entries at positions head mod |$this.entries| through
+ *  (tail - 1) mod |$this.entries|, wrapping around, in that order]
+ * </pre>
+ */
+public final class QueueSpsc<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Index of one thread, padded so that no other index shares its cache
+     * line, with that thread's cached copy of the other thread's index.
+     */
+    private static final class PaddedIndex extends AtomicLong {
+
+        /**
+         * Serial version UID, since {@code AtomicLong} is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Last value read of the other thread's index.
+         */
+        private long cachedOther;
+
+        /**
+         * Padding to fill the rest of a 64-byte cache line.
+         */
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6;
+
+    }
+
+    /**
+     * The circular array of entries.
+     */
+    private final Object[] entries;
+
+    /**
+     * Mask giving the position of an index in {@code entries}.
+     */
+    private final int mask;
+
+    /**
+     * Number of entries dequeued so far, written only by the consumer; its
+     * cached other index is the tail.
+     */
+    private final PaddedIndex head = new PaddedIndex();
+
+    /**
+     * Number of entries enqueued so far, written only by the producer; its
+     * cached other index is the head.
+     */
+    private final PaddedIndex tail = new PaddedIndex();
+
+    /**
+     * Whether the producer has called {@code close}.
+     */
+    private volatile boolean closed;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from the capacity, which is rounded up to a power of two.
+     *
+     * @param capacity
+     *            the least number of entries the queue can hold
+     * @requires 0 < capacity <= 2^30
+     * @ensures this = <>  and  [this.capacity() >= capacity]
+     */
+    public QueueSpsc(int capacity) {
+        assert 0 < capacity
+                && capacity <= 1 << 30 : "Violation of: 0 < capacity <= 2^30";
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size *= 2;
+        }
+        this.entries = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /*
+     * Producer methods -------------------------------------------------------
+     */
+
+    /**
+     * Adds {@code x} at the end of {@code this} if there is room, and reports
+     * whether it did.
+     *
+     * @param x
+     *            the entry to be added
+     * @return true iff {@code x} was added
+     * @aliases reference {@code x}
+     * @updates this
+     * @requires [called by the producer]  and  [close has not been called]
+     * @ensures <pre>
+     * if |#this| < capacity
+     *  then (this = #this * <x>  and  tryEnqueue = true)
+     *  else (this = #this  and  tryEnqueue = false)
+     * </pre>
+     */
+    public boolean tryEnqueue(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.closed : "Violation of: close has not been called";
+
+        long t = this.tail.get();
+        boolean added = true;
+        if (t - this.tail.cachedOther == this.entries.length) {
+            this.tail.cachedOther = this.head.get();
+            added = t - this.tail.cachedOther < this.entries.length;
+        }
+        if (added) {
+            this.entries[(int) t & this.mask] = x;
+            // publish the slot before the index.
+            this.tail.lazySet(t + 1);
+        }
+        return added;
+    }
+
+    /**
+     * Adds {@code x} at the end of {@code this}, waiting while {@code this} is
+     * full.
+     *
+     * @param x
+     *            the entry to be added
+     * @aliases reference {@code x}
+     * @updates this
+     * @requires [called by the producer]  and  [close has not been called]
+     * @ensures this = #this * <x>
+     */
+    public void enqueue(T x) {
+        while (!this.tryEnqueue(x)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Reports that no more entries will be added, so that {@code dequeue}
+     * returns null once {@code this} is empty.
+     *
+     * @requires [called by the producer]
+     */
+    public void close() {
+        this.closed = true;
+    }
+
+    /*
+     * Consumer methods -------------------------------------------------------
+     */
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, or returns
+     * null if {@code this} is empty.
+     *
+     * @return the front entry, or null
+     * @updates this
+     * @requires [called by the consumer]
+     * @ensures <pre>
+     * if #this = <>
+     *  then (this = <>  and  tryDequeue = null)
+     *  else #this = <tryDequeue> * this
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public T tryDequeue() {
+        long h = this.head.get();
+        T front = null;
+        if (h == this.head.cachedOther) {
+            this.head.cachedOther = this.tail.get();
+        }
+        if (h < this.head.cachedOther) {
+            int position = (int) h & this.mask;
+            front = (T) this.entries[position];
+            // let the entry be garbage collected.
+            this.entries[position] = null;
+            // free the slot before the index says it is free.
+            this.head.lazySet(h + 1);
+        }
+        return front;
+    }
+
+    /**
+     * Removes and returns the entry at the front of {@code this}, waiting
+     * while {@code this} is empty and not closed; returns null if {@code this}
+     * is empty and closed.
+     *
+     * @return the front entry, or null
+     * @updates this
+     * @requires [called by the consumer]
+     * @ensures <pre>
+     * if #this = <>  and  [close was called]
+     *  then (this = <>  and  dequeue = null)
+     *  else #this = <dequeue> * this
+     * </pre>
+     */
+    public T dequeue() {
+        T front = this.tryDequeue();
+        while (front == null && !this.closed) {
+            Thread.yield();
+            front = this.tryDequeue();
+        }
+        if (front == null) {
+            // the producer may have added entries before closing.
+            front = this.tryDequeue();
+        }
+        return front;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the length of {@code this}; while the other thread is running,
+     * only an estimate, clamped to between 0 and the capacity.
+     *
+     * @return the length of {@code this}, or an estimate of it
+     * @ensures <pre>
+     * 0 <= length <= |$this.entries|  and
+     * [if neither thread is changing this, length = |this|]
+     * </pre>
+     */
+    public int length() {
+        /*
+         * The indexes are read one after the other, so entries added and
+         * taken in between can make t - h overshoot the capacity
+         */
+        long h = this.head.get();
+        long t = this.tail.get();
+        return (int) Math.min(Math.max(0, t - h), this.entries.length);
+    }
+
+    /**
+     * Reports the number of entries {@code this} can hold.
+     *
+     * @return the capacity of {@code this}
+     * @ensures capacity = |$this.entries|
+     */
+    public int capacity() {
+        return this.entries.length;
+    }
+
+}
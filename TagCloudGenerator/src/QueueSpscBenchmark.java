@@ -0,0 +1,186 @@
+import components.map.Map;
+import components.map.Map1L;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Times reading the lines of a file and counting their words, once with the
+ * reading done first and the counting after it, as
+ * {@code convertInputFileToQueue} and {@code countWords} do, and once with a
+ * reader thread handing the lines to a counter thread through a
+ * {@code QueueSpsc}, so the two stages overlap.
+ *
+ * @author Zhao Liu
+ * @author Zishu Ling
+ *
+ */
+public final class QueueSpscBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private QueueSpscBenchmark() {
+    }
+
+    /**
+     * Number of timed runs of each way.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Capacity of the queue between the stages.
+     */
+    private static final int CAPACITY = 1024;
+
+    /**
+     * Adds one to the count in {@code counts} of each word of {@code line},
+     * a word being a longest run of letters, in lower case.
+     *
+     * @param line
+     *            the line
+     * @param counts
+     *            the counts of the words
+     * @updates counts
+     */
+    private static void countLine(String line, Map<String, Integer> counts) {
+        int i = 0;
+        while (i < line.length()) {
+            while (i < line.length() && !Character.isLetter(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < line.length() && Character.isLetter(line.charAt(i))) {
+                i++;
+            }
+            if (start < i) {
+                String word = line.substring(start, i).toLowerCase();
+                if (counts.hasKey(word)) {
+                    counts.replaceValue(word, counts.value(word) + 1);
+                } else {
+                    counts.add(word, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the lines of {@code fileName} {@code repeats} times and counts
+     * their words, through a {@code QueueSpsc} between a reader thread and
+     * this thread if {@code pipelined}, and reading all lines before counting
+     * otherwise.
+     *
+     * @param fileName
+     *            the name of the file
+     * @param repeats
+     *            the number of times to read the file
+     * @param pipelined
+     *            whether to overlap reading and counting
+     * @return the counts of the words
+     * @requires repeats > 0
+     */
+    private static Map<String, Integer> count(String fileName, int repeats,
+            boolean pipelined) {
+        Map<String, Integer> counts = new Map1L<String, Integer>();
+        if (pipelined) {
+            QueueSpsc<String> lines = new QueueSpsc<String>(CAPACITY);
+            Thread reader = new Thread(() -> {
+                for (int r = 0; r < repeats; r++) {
+                    SimpleReader in = new SimpleReader1L(fileName);
+                    while (!in.atEOS()) {
+                        lines.enqueue(in.nextLine());
+                    }
+                    in.close();
+                }
+                lines.close();
+            });
+            reader.start();
+            String line = lines.dequeue();
+            while (line != null) {
+                countLine(line, counts);
+                line = lines.dequeue();
+            }
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            for (int r = 0; r < repeats; r++) {
+                SimpleReader in = new SimpleReader1L(fileName);
+                Queue<String> lines = TagCloudGenerator
+                        .convertInputFileToQueue(in);
+                in.close();
+                for (String line : lines) {
+                    countLine(line, counts);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Reports the average time of {@code ROUNDS} runs of {@code count}; one
+     * untimed run warms up first.
+     *
+     * @param out
+     *            the output stream
+     * @param fileName
+     *            the name of the file
+     * @param repeats
+     *            the number of times to read the file
+     * @param pipelined
+     *            whether to overlap reading and counting
+     * @updates out.content
+     * @requires out.is_open and repeats > 0
+     */
+    private static void report(SimpleWriter out, String fileName, int repeats,
+            boolean pipelined) {
+        long elapsed = 0;
+        int words = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            words = count(fileName, repeats, pipelined).size();
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        String how = "read, then count";
+        if (pipelined) {
+            how = "pipelined";
+        }
+        out.println(how + "\t"
+                + String.format("%.1f", elapsed / NANOS_PER_MILLI / ROUNDS)
+                + " ms\t(" + words + " distinct words)");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        out.print("Name of input file (e.g., data/lesmiz.txt): ");
+        String fileName = in.nextLine();
+        out.print("Number of times to read it (e.g., 5): ");
+        int repeats = in.nextInteger();
+
+        out.println(Runtime.getRuntime().availableProcessors()
+                + " processors, average of " + ROUNDS + " runs:");
+        report(out, fileName, repeats, false);
+        report(out, fileName, repeats, true);
+        in.close();
+        out.close();
+    }
+
+}
@@ -0,0 +1,131 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code QueueSpsc}.
+ */
+public class QueueSpscTest {
+
+    /**
+     * Number of entries handed over in the two-thread test.
+     */
+    private static final int ENTRIES = 200_000;
+
+    /*
+     * Test that the capacity is rounded up to a power of two, and that
+     * tryEnqueue fails only when the queue is full
+     */
+    @Test
+    public final void testTryEnqueueFull() {
+        /*
+         * Set up variables
+         */
+        QueueSpsc<String> q = new QueueSpsc<String>(3);
+
+        /*
+         * Call method under test
+         */
+        boolean added = true;
+        for (int i = 0; i < 4; i++) {
+            added = added && q.tryEnqueue("e" + i);
+        }
+        boolean addedWhenFull = q.tryEnqueue("full");
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(4, q.capacity());
+        assertTrue(added);
+        assertFalse(addedWhenFull);
+        assertEquals(4, q.length());
+    }
+
+    /*
+     * Test that entries come out in order across the end of the array, and
+     * that tryDequeue returns null when the queue is empty
+     */
+    @Test
+    public final void testTryDequeueWrapAround() {
+        /*
+         * Set up variables
+         */
+        QueueSpsc<String> q = new QueueSpsc<String>(4);
+
+        /*
+         * Call method under test and assert that values match expectations
+         */
+        for (int i = 0; i < 10; i++) {
+            q.enqueue("a" + i);
+            q.enqueue("b" + i);
+            assertEquals("a" + i, q.tryDequeue());
+            assertEquals("b" + i, q.dequeue());
+        }
+        assertNull(q.tryDequeue());
+        assertEquals(0, q.length());
+    }
+
+    /*
+     * Test that dequeue returns the entries left, then null, after close
+     */
+    @Test
+    public final void testDequeueAfterClose() {
+        /*
+         * Set up variables
+         */
+        QueueSpsc<String> q = new QueueSpsc<String>(4);
+        q.enqueue("red");
+
+        /*
+         * Call method under test
+         */
+        q.close();
+        String first = q.dequeue();
+        String second = q.dequeue();
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals("red", first);
+        assertNull(second);
+    }
+
+    /*
+     * Test a producer thread handing entries to the consumer through a small
+     * queue: every entry arrives once and in order
+     */
+    @Test
+    public final void testProducerConsumer() {
+        /*
+         * Set up variables
+         */
+        final QueueSpsc<Integer> q = new QueueSpsc<Integer>(16);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < ENTRIES; i++) {
+                q.enqueue(i);
+            }
+            q.close();
+        });
+
+        /*
+         * Call method under test
+         */
+        producer.start();
+        int expected = 0;
+        Integer x = q.dequeue();
+        while (x != null) {
+            assertEquals(expected, x.intValue());
+            expected++;
+            x = q.dequeue();
+        }
+
+        /*
+         * Assert that values of variables match expectations
+         */
+        assertEquals(ENTRIES, expected);
+    }
+
+}